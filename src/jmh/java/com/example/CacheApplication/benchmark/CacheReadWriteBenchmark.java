@@ -0,0 +1,153 @@
+package com.example.CacheApplication.benchmark;
+
+import com.example.CacheApplication.core.CacheConfiguration;
+import com.example.CacheApplication.core.InMemoryCache;
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.expiration.ExpirationPolicy;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.expiration.TimeSinceLastAccessExpiration;
+import com.example.CacheApplication.expiration.TimeSinceLastWriteExpiration;
+import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.writepolicy.WriteBackPropagationPolicy;
+import com.example.CacheApplication.writepolicy.WritePropagationPolicy;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link InMemoryCache} get/put for read-heavy, write-heavy and mixed workloads over
+ * uniform and Zipfian keys, for every expiration and write propagation policy. The key space is
+ * four times the cache capacity so misses load from the datastore and writes evict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheReadWriteBenchmark {
+    private static final int CAPACITY = 1 << 14;
+    private static final int KEY_SPACE = CAPACITY * 4;
+    private static final int OPERATIONS = 1 << 20;
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    public enum Workload {
+        READ_HEAVY(95), MIXED(50), WRITE_HEAVY(5);
+
+        private final int readPercent;
+
+        Workload(int readPercent) {
+            this.readPercent = readPercent;
+        }
+    }
+
+    public enum Expiration {
+        CREATION, LAST_ACCESS, LAST_WRITE;
+
+        private ExpirationPolicy<String, String> create() {
+            return switch (this) {
+                case CREATION -> new TimeSinceCreationExpiration<>(TTL_MILLIS);
+                case LAST_ACCESS -> new TimeSinceLastAccessExpiration<>(TTL_MILLIS);
+                case LAST_WRITE -> new TimeSinceLastWriteExpiration<>(TTL_MILLIS);
+            };
+        }
+    }
+
+    public enum WritePropagation {
+        WRITE_THROUGH, WRITE_BACK;
+
+        private WritePropagationPolicy<String, String> create(DataStore<String, String> dataStore) {
+            return switch (this) {
+                case WRITE_THROUGH -> new WriteThroughPropagationPolicy<>();
+                case WRITE_BACK -> new WriteBackPropagationPolicy<>(100L, dataStore);
+            };
+        }
+    }
+
+    @Param
+    private Workload workload;
+
+    @Param
+    private KeyDistribution distribution;
+
+    @Param
+    private Expiration expiration;
+
+    @Param
+    private WritePropagation writePropagation;
+
+    private InMemoryCache<String, String> cache;
+    private String[] keys;
+    private int[] keyIndexes;
+    private boolean[] reads;
+
+    @Setup
+    public void setUp() {
+        ConcurrentHashMap<String, String> store = new ConcurrentHashMap<>();
+        keys = new String[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = "key" + i;
+            store.put(keys[i], "value" + i);
+        }
+        DataStore<String, String> dataStore = new InMemoryDataStore<>(store);
+        cache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(CAPACITY)
+                .expirationPolicy(expiration.create())
+                .writePropagationPolicy(writePropagation.create(dataStore))
+                .refreshPolicy(new FixedDurationRefreshPolicy<>(TimeUnit.HOURS.toMillis(1)))
+                .dataStore(dataStore)
+                .build());
+
+        keyIndexes = distribution.generate(KEY_SPACE, OPERATIONS, 42L);
+        reads = new boolean[OPERATIONS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < OPERATIONS; i++) {
+            reads[i] = random.nextInt(100) < workload.readPercent;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.close();
+    }
+
+    /**
+     * Position of a thread in the pre-generated operations, threads start at different offsets.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index = ThreadLocalRandom.current().nextInt(OPERATIONS);
+
+        int next() {
+            index = (index + 1) & (OPERATIONS - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThread(Cursor cursor, Blackhole blackhole) {
+        operation(cursor, blackhole);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void allThreads(Cursor cursor, Blackhole blackhole) {
+        operation(cursor, blackhole);
+    }
+
+    private void operation(Cursor cursor, Blackhole blackhole) {
+        int i = cursor.next();
+        String key = keys[keyIndexes[i]];
+        if (reads[i]) {
+            blackhole.consume(cache.get(key));
+        } else {
+            cache.put(key, key);
+        }
+    }
+}
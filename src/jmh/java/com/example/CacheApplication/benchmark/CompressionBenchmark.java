@@ -0,0 +1,91 @@
+package com.example.CacheApplication.benchmark;
+
+import com.example.CacheApplication.core.CacheConfiguration;
+import com.example.CacheApplication.core.InMemoryCache;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.storage.StorageMode;
+import com.example.CacheApplication.storage.StringSerializer;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link StorageMode#COMPRESSED} storage for 2 KB JSON values against plain objects on heap,
+ * with and without the decompressed-value cache. Reads follow a Zipfian distribution so the hot
+ * keys fit in the decompressed-value cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+    private static final int KEY_SPACE = 1 << 12;
+    private static final int INDEXES = 1 << 16;
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"ON_HEAP", "COMPRESSED"})
+    private StorageMode storageMode;
+
+    @Param({"0", "256"})
+    private int decompressedCacheSize;
+
+    private InMemoryCache<String, String> cache;
+    private String[] keys;
+    private String[] values;
+    private int[] indexes;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        ConcurrentHashMap<String, String> store = new ConcurrentHashMap<>();
+        keys = new String[KEY_SPACE];
+        values = new String[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = "key" + i;
+            StringBuilder json = new StringBuilder("[");
+            for (int j = 0; json.length() < 2048; j++) {
+                json.append("{\"id\":").append(i * 100 + j).append(",\"name\":\"item").append(j)
+                        .append("\",\"active\":").append(j % 3 == 0).append("},");
+            }
+            values[i] = json.append("{}]").toString();
+            store.put(keys[i], values[i]);
+        }
+        indexes = KeyDistribution.ZIPFIAN.generate(KEY_SPACE, INDEXES, 42L);
+        cache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(KEY_SPACE)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(TTL_MILLIS))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(new FixedDurationRefreshPolicy<>(TTL_MILLIS))
+                .dataStore(new InMemoryDataStore<>(store))
+                .storageMode(storageMode)
+                .valueSerializer(new StringSerializer())
+                .decompressedCacheSize(decompressedCacheSize)
+                .build());
+        for (int i = 0; i < KEY_SPACE; i++) {
+            cache.put(keys[i], values[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Benchmark
+    public String get() {
+        int i = indexes[cursor++ & (INDEXES - 1)];
+        return cache.get(keys[i]);
+    }
+
+    @Benchmark
+    public void put() {
+        int i = indexes[cursor++ & (INDEXES - 1)];
+        cache.put(keys[i], values[i]);
+    }
+}
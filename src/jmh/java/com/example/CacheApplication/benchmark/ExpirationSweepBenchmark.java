@@ -0,0 +1,50 @@
+package com.example.CacheApplication.benchmark;
+
+import com.example.CacheApplication.expiration.TimerWheel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one expiration sweep, advancing the {@link TimerWheel} the cache expires entries with by
+ * one cleanup period, at 10k, 1M and 10M scheduled entries. Expiration times are spread over
+ * ten minutes and expired keys are scheduled again, so every sweep handles a steady share of keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class ExpirationSweepBenchmark {
+    private static final long SPREAD_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Param({"10000", "1000000", "10000000"})
+    private int entries;
+
+    private TimerWheel<Integer> timerWheel;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        now = 0L;
+        timerWheel = new TimerWheel<>(now);
+        Random random = new Random(42L);
+        for (int i = 0; i < entries; i++) {
+            timerWheel.schedule(i, 1L + (long) (random.nextDouble() * SPREAD_MILLIS));
+        }
+    }
+
+    @Benchmark
+    public void sweep(Blackhole blackhole) {
+        now += TimerWheel.TICK_MILLIS;
+        List<Integer> expired = timerWheel.advance(now);
+        for (Integer key : expired) {
+            timerWheel.schedule(key, now + SPREAD_MILLIS);
+        }
+        blackhole.consume(expired);
+    }
+}
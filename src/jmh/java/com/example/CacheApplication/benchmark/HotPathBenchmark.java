@@ -0,0 +1,109 @@
+package com.example.CacheApplication.benchmark;
+
+import com.example.CacheApplication.core.CacheConfiguration;
+import com.example.CacheApplication.core.InMemoryCache;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.expiration.ExpirationPolicy;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.expiration.TimeSinceLastAccessExpiration;
+import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.util.Ticker;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and allocation of {@link InMemoryCache} hits and overwrites, the key space fits in the
+ * cache so nothing is loaded or evicted. Run with -prof gc, gc.alloc.rate.norm is the bytes
+ * allocated per operation and should stay at 0 for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HotPathBenchmark {
+    private static final int KEY_SPACE = 1 << 12;
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    public enum Clock {
+        SYSTEM, COARSE;
+
+        private Ticker create() {
+            return this == SYSTEM ? Ticker.system() : Ticker.coarse();
+        }
+    }
+
+    public enum Expiration {
+        CREATION, LAST_ACCESS;
+
+        private ExpirationPolicy<String, String> create() {
+            return this == CREATION
+                    ? new TimeSinceCreationExpiration<>(TTL_MILLIS)
+                    : new TimeSinceLastAccessExpiration<>(TTL_MILLIS);
+        }
+    }
+
+    @Param
+    private Clock clock;
+
+    @Param
+    private Expiration expiration;
+
+    private InMemoryCache<String, String> cache;
+    private String[] keys;
+    private String[] values;
+
+    @Setup
+    public void setUp() {
+        ConcurrentHashMap<String, String> store = new ConcurrentHashMap<>();
+        keys = new String[KEY_SPACE];
+        values = new String[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = "key" + i;
+            values[i] = "value" + i;
+            store.put(keys[i], values[i]);
+        }
+        cache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(KEY_SPACE)
+                .expirationPolicy(expiration.create())
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(new FixedDurationRefreshPolicy<>(TTL_MILLIS))
+                .dataStore(new InMemoryDataStore<>(store))
+                .ticker(clock.create())
+                .build());
+        for (int i = 0; i < KEY_SPACE; i++) {
+            cache.put(keys[i], values[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index = ThreadLocalRandom.current().nextInt(KEY_SPACE);
+
+        int next() {
+            index = (index + 1) & (KEY_SPACE - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    public String getHit(Cursor cursor) {
+        return cache.get(keys[cursor.next()]);
+    }
+
+    @Benchmark
+    public void putOverwrite(Cursor cursor) {
+        int i = cursor.next();
+        cache.put(keys[i], values[i]);
+    }
+}
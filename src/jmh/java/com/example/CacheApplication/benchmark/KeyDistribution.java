@@ -0,0 +1,46 @@
+package com.example.CacheApplication.benchmark;
+
+import java.util.Random;
+
+/**
+ * Key index distributions used by the benchmarks, generated up front so the benchmark loop
+ * only reads the next index.
+ */
+public enum KeyDistribution {
+    UNIFORM,
+    /** Zipfian with skew 0.99, a small set of hot keys gets most of the traffic. */
+    ZIPFIAN;
+
+    private static final double ZIPFIAN_SKEW = 0.99;
+
+    /**
+     * Generate count key indexes in [0, keySpace).
+     * @param keySpace
+     * @param count
+     * @param seed
+     * @return key indexes
+     */
+    public int[] generate(int keySpace, int count, long seed) {
+        Random random = new Random(seed);
+        int[] indexes = new int[count];
+        if (this == UNIFORM) {
+            for (int i = 0; i < count; i++) {
+                indexes[i] = random.nextInt(keySpace);
+            }
+            return indexes;
+        }
+        double[] cdf = new double[keySpace];
+        double sum = 0;
+        for (int i = 0; i < keySpace; i++) {
+            sum += 1.0 / Math.pow(i + 1, ZIPFIAN_SKEW);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < count; i++) {
+            int index = java.util.Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            // spread the hot keys over the key space instead of the lowest indexes
+            int rank = index >= 0 ? index : Math.min(-index - 1, keySpace - 1);
+            indexes[i] = (int) (((long) rank * 0x9E3779B1L & 0xFFFFFFFFL) % keySpace);
+        }
+        return indexes;
+    }
+}
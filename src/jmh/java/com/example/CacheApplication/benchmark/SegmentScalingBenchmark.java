@@ -0,0 +1,81 @@
+package com.example.CacheApplication.benchmark;
+
+import com.example.CacheApplication.core.CacheConfiguration;
+import com.example.CacheApplication.core.InMemoryCache;
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput of {@link InMemoryCache} from 1 to 64 threads with one eviction segment and with
+ * many. Every put takes the eviction lock of its segment, with one segment all writers contend on it.
+ * The key space is four times the capacity so writes evict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentScalingBenchmark {
+    private static final int CAPACITY = 1 << 14;
+    private static final int KEY_SPACE = CAPACITY * 4;
+
+    @Param({"1", "16", "64"})
+    private int segments;
+
+    private InMemoryCache<String, String> cache;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        keys = new String[KEY_SPACE];
+        for (int i = 0; i < KEY_SPACE; i++) {
+            keys[i] = "key" + i;
+        }
+        DataStore<String, String> dataStore = new InMemoryDataStore<>(new ConcurrentHashMap<>());
+        cache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(CAPACITY)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(TimeUnit.HOURS.toMillis(1)))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(new FixedDurationRefreshPolicy<>(TimeUnit.HOURS.toMillis(1)))
+                .dataStore(dataStore)
+                .evictionSegments(segments)
+                .build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void put1Thread() {
+        put();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void put8Threads() {
+        put();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void put64Threads() {
+        put();
+    }
+
+    private void put() {
+        String key = keys[ThreadLocalRandom.current().nextInt(KEY_SPACE)];
+        cache.put(key, key);
+    }
+}
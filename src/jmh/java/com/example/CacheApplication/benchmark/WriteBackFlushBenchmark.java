@@ -0,0 +1,68 @@
+package com.example.CacheApplication.benchmark;
+
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.util.CacheScheduler;
+import com.example.CacheApplication.writepolicy.WriteBackPropagationPolicy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained write throughput through the write-behind buffer with flushes running in the background,
+ * by flush batch size and key space. A small key space measures coalescing, a large one the flushes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBackFlushBenchmark {
+    @Param({"1000", "1000000"})
+    private int keySpace;
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private CacheScheduler scheduler;
+    private DataStore<Integer, Integer> dataStore;
+    private WriteBackPropagationPolicy<Integer, Integer> policy;
+
+    @Setup
+    public void setUp() {
+        scheduler = new CacheScheduler();
+        dataStore = new InMemoryDataStore<>(new ConcurrentHashMap<>());
+        policy = WriteBackPropagationPolicy.<Integer, Integer>builder()
+                .flushInterval(100L)
+                .dataStore(dataStore)
+                .maxBatchSize(batchSize)
+                .maxBufferSize(batchSize * 10)
+                .build();
+        policy.scheduleWrite(scheduler);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleWriter() {
+        write();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void allWriters() {
+        write();
+    }
+
+    private void write() {
+        int key = ThreadLocalRandom.current().nextInt(keySpace);
+        policy.write(key, key, dataStore);
+    }
+}
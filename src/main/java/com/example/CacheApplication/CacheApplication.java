@@ -6,7 +6,6 @@ import com.example.CacheApplication.datastore.DataStore;
 import com.example.CacheApplication.datastore.InMemoryDataStore;
 import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
 import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
-import com.example.CacheApplication.util.ScheduledExecutorUtil;
 import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -61,8 +60,8 @@ public class CacheApplication {
 		cache.put(KEY3, "value3");
 		System.out.println("Get current size of cache after eviction: " + cache.getSize());
 
-		// shutdown scheduled executor
-		ScheduledExecutorUtil.shutdown();
+		// stop the scheduled tasks of the cache
+		cache.close();
 	}
 
 }
@@ -0,0 +1,63 @@
+package com.example.CacheApplication.cluster;
+
+import com.example.CacheApplication.core.CacheConfiguration;
+import com.example.CacheApplication.storage.Serializer;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Objects;
+
+@Getter
+@Builder
+public class ClusterConfiguration<K, V> {
+    // partition of the keys owned by this node
+    private final CacheConfiguration<K, V> cacheConfiguration;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+
+    // nodes are identified by the address they listen on, port 0 picks a free port
+    @Builder.Default
+    private final InetSocketAddress bindAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    // listen addresses of the nodes of the cluster, the local node is always a member
+    @Builder.Default
+    private final List<InetSocketAddress> members = List.of();
+    @Builder.Default
+    private final int virtualNodes = 128;
+    @Builder.Default
+    private final long requestTimeoutMillis = 2000L;
+
+    // hot keys owned by other nodes cached locally for nearCacheTtlMillis, 0 to disable
+    private final int nearCacheCapacity;
+    @Builder.Default
+    private final long nearCacheTtlMillis = 1000L;
+
+    private ClusterConfiguration(CacheConfiguration<K, V> cacheConfiguration, Serializer<K> keySerializer,
+                                 Serializer<V> valueSerializer, InetSocketAddress bindAddress,
+                                 List<InetSocketAddress> members, int virtualNodes, long requestTimeoutMillis,
+                                 int nearCacheCapacity, long nearCacheTtlMillis) {
+        this.cacheConfiguration = Objects.requireNonNull(cacheConfiguration, "Cache configuration cannot be null.");
+        this.keySerializer = Objects.requireNonNull(keySerializer, "Key serializer cannot be null.");
+        this.valueSerializer = Objects.requireNonNull(valueSerializer, "Value serializer cannot be null.");
+        this.bindAddress = Objects.requireNonNull(bindAddress, "Bind address cannot be null.");
+        this.members = List.copyOf(Objects.requireNonNull(members, "Members cannot be null."));
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be greater than zero.");
+        }
+        this.virtualNodes = virtualNodes;
+        if (requestTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Request timeout must be greater than zero.");
+        }
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        if (nearCacheCapacity < 0) {
+            throw new IllegalArgumentException("Near cache capacity must not be negative.");
+        }
+        if (nearCacheCapacity > 0 && nearCacheTtlMillis <= 0) {
+            throw new IllegalArgumentException("Near cache TTL must be greater than zero.");
+        }
+        this.nearCacheCapacity = nearCacheCapacity;
+        this.nearCacheTtlMillis = nearCacheTtlMillis;
+    }
+}
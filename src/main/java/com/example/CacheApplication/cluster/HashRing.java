@@ -0,0 +1,70 @@
+package com.example.CacheApplication.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Consistent-hash ring of node ids. Every node is placed at virtualNodes points of the ring and
+ * owns the keys hashing between the previous point and its own, so keys spread evenly and adding
+ * or removing a node only moves the keys of its points. Keys are hashed from their serialized
+ * bytes, every process computes the same owner for a key. Immutable, rebuilt on membership changes.
+ */
+public class HashRing {
+    private final Set<String> nodes;
+    // sorted ring positions and the node at each
+    private final long[] points;
+    private final String[] owners;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring needs at least one node.");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be greater than zero.");
+        }
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for (String node : new TreeSet<>(nodes)) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // on a collision the first node in sorted order keeps the point, on every process
+                ring.putIfAbsent(hash((node + "#" + i).getBytes(StandardCharsets.UTF_8)), node);
+            }
+        }
+        this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+        this.points = ring.keySet().stream().mapToLong(Long::longValue).toArray();
+        this.owners = ring.values().toArray(new String[0]);
+    }
+
+    /**
+     * @param key serialized key
+     * @return id of the node owning key
+     */
+    public String ownerOf(byte[] key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 64-bit FNV-1a with a final mix, stable across JVMs unlike hashCode of arbitrary keys.
+     */
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.CacheApplication.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Connection to another node. Requests are written as they are sent without waiting for earlier
+ * responses, a virtual thread reads the responses and completes the request with the same id.
+ * When the connection fails every pending request fails with it and the client is closed,
+ * the next request to the node opens a new client.
+ */
+class NodeClient implements AutoCloseable {
+    private final String nodeId;
+    private final long requestTimeoutMillis;
+    private final SocketChannel channel;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final Map<Long, CompletableFuture<ByteBuffer>> pendingRequests = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    NodeClient(String nodeId, InetSocketAddress address, long requestTimeoutMillis) {
+        this.nodeId = nodeId;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        try {
+            this.channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to connect to node " + nodeId, e);
+        }
+        Thread.ofVirtual().name("cache-node-client-" + nodeId).start(this::readLoop);
+    }
+
+    /**
+     * Send a request, failing with an {@link UncheckedIOException} if the connection fails or no
+     * response arrives within the request timeout.
+     * @param op
+     * @param key
+     * @param value
+     * @return response positioned at the status
+     */
+    CompletableFuture<ByteBuffer> send(byte op, byte[] key, byte[] value) {
+        long id = nextRequestId.incrementAndGet();
+        CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+        pendingRequests.put(id, response);
+        if (closed) {
+            fail(id, new IOException("Connection closed"));
+            return response;
+        }
+        writeLock.lock();
+        try {
+            Protocol.writeFully(channel, Protocol.request(id, op, key, value));
+        } catch (IOException e) {
+            close(e);
+        } finally {
+            writeLock.unlock();
+        }
+        return response.orTimeout(requestTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((result, failure) -> pendingRequests.remove(id));
+    }
+
+    /**
+     * Wait for a response sent by {@link #send}.
+     * @param response
+     * @return response positioned at the status
+     */
+    ByteBuffer await(CompletableFuture<ByteBuffer> response) {
+        ByteBuffer frame;
+        try {
+            frame = response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new UncheckedIOException(new SocketTimeoutException(
+                        "No response from node " + nodeId + " within " + requestTimeoutMillis + " ms"));
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        if (frame.get(frame.position()) == Protocol.ERROR) {
+            frame.get();
+            throw new IllegalStateException("Node " + nodeId + " failed the request: "
+                    + new String(Protocol.remaining(frame), StandardCharsets.UTF_8));
+        }
+        return frame;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                ByteBuffer frame = Protocol.readFrame(channel);
+                CompletableFuture<ByteBuffer> response = pendingRequests.remove(frame.getLong());
+                if (response != null) {
+                    response.complete(frame);
+                }
+            }
+        } catch (IOException e) {
+            close(e);
+        }
+    }
+
+    private void fail(long id, IOException cause) {
+        CompletableFuture<ByteBuffer> response = pendingRequests.remove(id);
+        if (response != null) {
+            response.completeExceptionally(new UncheckedIOException("Request to node " + nodeId + " failed", cause));
+        }
+    }
+
+    private void close(IOException cause) {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+        pendingRequests.keySet().forEach(id -> fail(id, cause));
+    }
+
+    @Override
+    public void close() {
+        close(new IOException("Connection closed"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.CacheApplication.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Accepts connections of other nodes and answers their requests with handler. A connection is read
+ * by one virtual thread and every request is handled on its own, so a slow load does not hold up
+ * the requests pipelined behind it. Responses are written as they complete.
+ */
+class NodeServer implements AutoCloseable {
+    private final ServerSocketChannel serverChannel;
+    private final Function<ByteBuffer, ByteBuffer> handler;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * @param bindAddress address to listen on, port 0 for any free port
+     * @param handler maps a request frame, positioned at the request id, to its response frame
+     */
+    NodeServer(InetSocketAddress bindAddress, Function<ByteBuffer, ByteBuffer> handler) {
+        this.handler = handler;
+        try {
+            this.serverChannel = ServerSocketChannel.open().bind(bindAddress);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen on " + bindAddress, e);
+        }
+        Thread.ofVirtual().name("cache-node-acceptor").start(this::acceptLoop);
+    }
+
+    InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to get the server address", e);
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                // closed, or a connection failed while being accepted
+                continue;
+            }
+            connections.add(channel);
+            try {
+                executor.execute(() -> serve(channel));
+            } catch (RejectedExecutionException e) {
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        ReentrantLock writeLock = new ReentrantLock();
+        try {
+            while (!closed) {
+                ByteBuffer request = Protocol.readFrame(channel);
+                executor.execute(() -> respond(channel, writeLock, handler.apply(request)));
+            }
+        } catch (IOException | RejectedExecutionException e) {
+            // peer disconnected or the server is closing
+        } finally {
+            closeQuietly(channel);
+        }
+    }
+
+    private void respond(SocketChannel channel, ReentrantLock writeLock, ByteBuffer response) {
+        writeLock.lock();
+        try {
+            Protocol.writeFully(channel, response);
+        } catch (IOException e) {
+            closeQuietly(channel);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void closeQuietly(SocketChannel channel) {
+        connections.remove(channel);
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close the server", e);
+        } finally {
+            connections.forEach(this::closeQuietly);
+            executor.shutdownNow();
+        }
+    }
+}
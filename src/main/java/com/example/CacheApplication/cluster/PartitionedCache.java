@@ -0,0 +1,379 @@
+package com.example.CacheApplication.cluster;
+
+import com.example.CacheApplication.core.Cache;
+import com.example.CacheApplication.core.CacheConfiguration;
+import com.example.CacheApplication.core.InMemoryCache;
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.refreshpolicy.RefreshAfterWritePolicy;
+import com.example.CacheApplication.stats.CacheStats;
+import com.example.CacheApplication.storage.Serializer;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Node of a cache partitioned over several nodes. Keys are owned by the nodes of a {@link HashRing},
+ * each node caches only the keys it owns in its local {@link InMemoryCache} and forwards the other
+ * reads and writes to their owner, so the cluster holds one copy of every key.
+ * Nodes talk over {@link NodeServer} and {@link NodeClient} connections, requests to a node are
+ * pipelined on one connection and getAll sends the requests for all remote keys before awaiting any.
+ * An optional near cache keeps hot keys owned by other nodes for a short TTL, writes through it
+ * go to the owner, writes from other nodes are seen once the near entry expires.
+ * Membership is static or set with {@link #updateMembers}, keys are not migrated when it changes,
+ * their new owner loads them from the datastore.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class PartitionedCache<K, V> implements Cache<K, V>, AutoCloseable {
+    private final InMemoryCache<K, V> localCache;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int virtualNodes;
+    private final long requestTimeoutMillis;
+    private final NodeServer server;
+    private final String localNodeId;
+    private final Map<String, NodeClient> clients = new ConcurrentHashMap<>();
+    private final DataStore<K, V> remoteStore = new RemoteDataStore();
+    // null when the near cache is disabled
+    private final InMemoryCache<K, V> nearCache;
+    private volatile Membership membership;
+
+    private record Membership(HashRing ring, Map<String, InetSocketAddress> addresses) {
+    }
+
+    /**
+     * Start the node, listening on the bind address, with the configured members.
+     * @param config
+     */
+    public PartitionedCache(ClusterConfiguration<K, V> config) {
+        this.keySerializer = config.getKeySerializer();
+        this.valueSerializer = config.getValueSerializer();
+        this.virtualNodes = config.getVirtualNodes();
+        this.requestTimeoutMillis = config.getRequestTimeoutMillis();
+        this.localCache = new InMemoryCache<>(config.getCacheConfiguration());
+        this.server = new NodeServer(config.getBindAddress(), this::handle);
+        this.localNodeId = nodeId(server.getAddress());
+
+        CacheConfiguration<K, V> cacheConfig = config.getCacheConfiguration();
+        this.nearCache = config.getNearCacheCapacity() == 0 ? null : new InMemoryCache<>(CacheConfiguration.<K, V>builder()
+                .maxCapacity(config.getNearCacheCapacity())
+                .expirationPolicy(new TimeSinceCreationExpiration<>(config.getNearCacheTtlMillis()))
+                // hot near entries are reloaded from their owner in the background before they expire
+                .refreshPolicy(new RefreshAfterWritePolicy<>(Math.max(1L, config.getNearCacheTtlMillis() / 2)))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .dataStore(remoteStore)
+                .recordStats(cacheConfig.isRecordStats())
+                .name(cacheConfig.getName() + "-near")
+                .meterRegistry(cacheConfig.getMeterRegistry())
+                .ticker(cacheConfig.getTicker())
+                .build());
+        updateMembers(config.getMembers());
+    }
+
+    @Override
+    public void put(K key, V value) {
+        byte[] keyBytes = keySerializer.serialize(key);
+        String owner = ownerOf(keyBytes);
+        if (owner.equals(localNodeId)) {
+            localCache.put(key, value);
+        } else if (nearCache != null) {
+            nearCache.put(key, value);
+        } else {
+            putTo(owner, key, keyBytes, value);
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        byte[] keyBytes = keySerializer.serialize(key);
+        String owner = ownerOf(keyBytes);
+        if (owner.equals(localNodeId)) {
+            return localCache.get(key);
+        }
+        return nearCache != null ? nearCache.get(key) : getFrom(owner, key, keyBytes);
+    }
+
+    /**
+     * Get value for key, computed by the loader on a miss. For a key owned by another node the
+     * loader runs on this node and its value is written to the owner, concurrent loads of the key
+     * on different nodes are not coalesced.
+     */
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        byte[] keyBytes = keySerializer.serialize(key);
+        if (ownerOf(keyBytes).equals(localNodeId)) {
+            return localCache.get(key, loader);
+        }
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        List<K> localKeys = new ArrayList<>();
+        List<K> remoteKeys = new ArrayList<>();
+        for (K key : keys) {
+            if (ownerOf(keySerializer.serialize(key)).equals(localNodeId)) {
+                localKeys.add(key);
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        Map<K, V> values = new HashMap<>(localCache.getAll(localKeys));
+        if (!remoteKeys.isEmpty()) {
+            values.putAll(nearCache != null ? nearCache.getAll(remoteKeys) : remoteStore.getAll(remoteKeys));
+        }
+        return values;
+    }
+
+    @Override
+    public void remove(K key) {
+        byte[] keyBytes = keySerializer.serialize(key);
+        String owner = ownerOf(keyBytes);
+        if (owner.equals(localNodeId)) {
+            localCache.remove(key);
+            return;
+        }
+        removeFrom(owner, key, keyBytes);
+        if (nearCache != null) {
+            nearCache.remove(key);
+        }
+    }
+
+    /**
+     * Replace the members of the cluster, the local node is always one of them. Clients of nodes
+     * that left are closed and the keys this node no longer owns are dropped from its caches.
+     * @param members listen addresses of the nodes
+     */
+    public synchronized void updateMembers(Collection<InetSocketAddress> members) {
+        Map<String, InetSocketAddress> addresses = new HashMap<>();
+        members.forEach(address -> addresses.put(nodeId(address), address));
+        addresses.putIfAbsent(localNodeId, server.getAddress());
+        membership = new Membership(new HashRing(addresses.keySet(), virtualNodes), Map.copyOf(addresses));
+
+        clients.keySet().removeIf(node -> {
+            if (addresses.containsKey(node)) {
+                return false;
+            }
+            clients.get(node).close();
+            return true;
+        });
+        for (K key : List.copyOf(localCache.getKeys())) {
+            if (!ownerOf(keySerializer.serialize(key)).equals(localNodeId)) {
+                localCache.remove(key);
+            }
+        }
+        if (nearCache != null) {
+            for (K key : List.copyOf(nearCache.getKeys())) {
+                if (ownerOf(keySerializer.serialize(key)).equals(localNodeId)) {
+                    nearCache.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return address this node listens on, the one to list in the members of the other nodes
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public Set<String> getMembers() {
+        return membership.ring().getNodes();
+    }
+
+    /**
+     * Statistics of the partition owned by this node.
+     * @return CacheStats
+     */
+    public CacheStats localStats() {
+        return localCache.stats();
+    }
+
+    /**
+     * Statistics of the near cache, empty when it is disabled.
+     * @return CacheStats
+     */
+    public CacheStats nearStats() {
+        return nearCache == null ? CacheStats.EMPTY : nearCache.stats();
+    }
+
+    public int getLocalSize() {
+        return localCache.getSize();
+    }
+
+    @Override
+    public void close() {
+        server.close();
+        clients.values().forEach(NodeClient::close);
+        clients.clear();
+        if (nearCache != null) {
+            nearCache.close();
+        }
+        localCache.close();
+    }
+
+    private String ownerOf(byte[] keyBytes) {
+        return membership.ring().ownerOf(keyBytes);
+    }
+
+    private V getFrom(String owner, K key, byte[] keyBytes) {
+        if (owner.equals(localNodeId)) {
+            return localCache.get(key);
+        }
+        NodeClient client = client(owner);
+        return valueOf(client.await(client.send(Protocol.GET, keyBytes, null)));
+    }
+
+    private void putTo(String owner, K key, byte[] keyBytes, V value) {
+        if (owner.equals(localNodeId)) {
+            localCache.put(key, value);
+            return;
+        }
+        NodeClient client = client(owner);
+        client.await(client.send(Protocol.PUT, keyBytes, valueSerializer.serialize(value)));
+    }
+
+    private void removeFrom(String owner, K key, byte[] keyBytes) {
+        if (owner.equals(localNodeId)) {
+            localCache.remove(key);
+            return;
+        }
+        NodeClient client = client(owner);
+        client.await(client.send(Protocol.REMOVE, keyBytes, null));
+    }
+
+    private V valueOf(ByteBuffer response) {
+        return response.get() == Protocol.FOUND ? valueSerializer.deserialize(Protocol.remaining(response)) : null;
+    }
+
+    /**
+     * Open client to node, a new one replaces a client whose connection failed.
+     */
+    private NodeClient client(String node) {
+        NodeClient client = clients.get(node);
+        if (client != null && !client.isClosed()) {
+            return client;
+        }
+        InetSocketAddress address = membership.addresses().get(node);
+        return clients.compute(node, (id, existing) -> existing != null && !existing.isClosed()
+                ? existing
+                : new NodeClient(id, address, requestTimeoutMillis));
+    }
+
+    /**
+     * Answer a request of another node from the local partition.
+     */
+    private ByteBuffer handle(ByteBuffer request) {
+        long id = request.getLong();
+        byte op = request.get();
+        try {
+            byte[] keyBytes = new byte[request.getInt()];
+            request.get(keyBytes);
+            K key = keySerializer.deserialize(keyBytes);
+            return switch (op) {
+                case Protocol.GET -> {
+                    V value = localCache.get(key);
+                    yield value == null
+                            ? Protocol.response(id, Protocol.NOT_FOUND, null)
+                            : Protocol.response(id, Protocol.FOUND, valueSerializer.serialize(value));
+                }
+                case Protocol.PUT -> {
+                    localCache.put(key, valueSerializer.deserialize(Protocol.remaining(request)));
+                    yield Protocol.response(id, Protocol.OK, null);
+                }
+                case Protocol.REMOVE -> {
+                    localCache.remove(key);
+                    yield Protocol.response(id, Protocol.OK, null);
+                }
+                default -> Protocol.response(id, Protocol.ERROR,
+                        ("Unknown operation " + op).getBytes(StandardCharsets.UTF_8));
+            };
+        } catch (RuntimeException e) {
+            return Protocol.response(id, Protocol.ERROR, String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String nodeId(InetSocketAddress address) {
+        String host = address.isUnresolved() ? address.getHostString() : address.getAddress().getHostAddress();
+        return host + ":" + address.getPort();
+    }
+
+    /**
+     * Keys owned by other nodes, read and written at their owner. Backs the near cache and the
+     * remote keys of getAll, whose reads are all sent before any response is awaited.
+     */
+    private class RemoteDataStore implements DataStore<K, V> {
+        @Override
+        public void put(K key, V value) {
+            byte[] keyBytes = keySerializer.serialize(key);
+            putTo(ownerOf(keyBytes), key, keyBytes, value);
+        }
+
+        @Override
+        public V get(K key) {
+            byte[] keyBytes = keySerializer.serialize(key);
+            return getFrom(ownerOf(keyBytes), key, keyBytes);
+        }
+
+        @Override
+        public void remove(K key) {
+            byte[] keyBytes = keySerializer.serialize(key);
+            removeFrom(ownerOf(keyBytes), key, keyBytes);
+        }
+
+        @Override
+        public Iterable<K> getTopKeys(int limit) {
+            return List.of();
+        }
+
+        @Override
+        public Map<K, V> getAll(Collection<? extends K> keys) {
+            Map<K, V> values = new HashMap<>();
+            Map<K, NodeClient> clientsByKey = new HashMap<>();
+            Map<K, CompletableFuture<ByteBuffer>> responses = new LinkedHashMap<>();
+            for (K key : keys) {
+                byte[] keyBytes = keySerializer.serialize(key);
+                String owner = ownerOf(keyBytes);
+                if (owner.equals(localNodeId)) {
+                    V value = localCache.get(key);
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                    continue;
+                }
+                NodeClient client = client(owner);
+                clientsByKey.put(key, client);
+                responses.put(key, client.send(Protocol.GET, keyBytes, null));
+            }
+            responses.forEach((key, response) -> {
+                V value = valueOf(clientsByKey.get(key).await(response));
+                if (value != null) {
+                    values.put(key, value);
+                }
+            });
+            return values;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.CacheApplication.cluster;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Wire format between nodes. Every frame starts with its length and the id of the request, a node
+ * may send many requests on a connection before the first response arrives and responses carry the
+ * id of their request, in completion order.
+ * Request: int length, long id, byte op, int key length, key, value (PUT only).
+ * Response: int length, long id, byte status, value (FOUND) or error message (ERROR).
+ */
+final class Protocol {
+    static final byte GET = 1;
+    static final byte PUT = 2;
+    static final byte REMOVE = 3;
+
+    static final byte FOUND = 1;
+    static final byte NOT_FOUND = 2;
+    static final byte OK = 3;
+    static final byte ERROR = 4;
+
+    static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private Protocol() {
+    }
+
+    static ByteBuffer request(long id, byte op, byte[] key, byte[] value) {
+        byte[] payload = value == null ? EMPTY : value;
+        ByteBuffer frame = ByteBuffer.allocate(4 + 8 + 1 + 4 + key.length + payload.length);
+        frame.putInt(frame.capacity() - 4).putLong(id).put(op).putInt(key.length).put(key).put(payload);
+        return frame.flip();
+    }
+
+    static ByteBuffer response(long id, byte status, byte[] value) {
+        byte[] payload = value == null ? EMPTY : value;
+        ByteBuffer frame = ByteBuffer.allocate(4 + 8 + 1 + payload.length);
+        frame.putInt(frame.capacity() - 4).putLong(id).put(status).put(payload);
+        return frame.flip();
+    }
+
+    /**
+     * Read the next frame, without its length prefix.
+     * @param channel blocking channel
+     * @return frame positioned at the request id
+     * @throws EOFException if the channel was closed by the peer
+     */
+    static ByteBuffer readFrame(ReadableByteChannel channel) throws IOException {
+        ByteBuffer length = readFully(channel, ByteBuffer.allocate(4));
+        int frameLength = length.getInt();
+        if (frameLength < 9 || frameLength > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length " + frameLength);
+        }
+        return readFully(channel, ByteBuffer.allocate(frameLength));
+    }
+
+    static void writeFully(WritableByteChannel channel, ByteBuffer frame) throws IOException {
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    static byte[] remaining(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Connection closed by peer");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.CacheApplication.core;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Non-blocking view of a {@link Cache}, loads and writes run on an executor instead of the
+ * caller's thread.
+ * @param <K>
+ * @param <V>
+ */
+public interface AsyncCache<K, V> {
+    /**
+     * Get value for key, completed immediately on a hit. Concurrent callers for a missing key
+     * share a single load.
+     */
+    CompletableFuture<V> getAsync(K key);
+
+    CompletableFuture<V> getAsync(K key, Function<? super K, ? extends V> loader);
+
+    /**
+     * Get the values of keys, keys without a value are absent from the result.
+     */
+    CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys);
+
+    CompletableFuture<Void> putAsync(K key, V value);
+
+    /**
+     * Blocking view of the same cache.
+     */
+    Cache<K, V> synchronous();
+}
@@ -0,0 +1,73 @@
+package com.example.CacheApplication.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the keys of a datastore. {@link #mightContain} never returns false for a key
+ * that was put, and returns true for a key that was not put with about falsePositiveRate probability
+ * as long as at most expectedKeys keys were put. Keys cannot be removed.
+ * Bits are set with CAS, so puts and reads are safe from any thread.
+ *
+ * @param <K>
+ */
+class BloomFilter<K> {
+    private static final int MAXIMUM_HASHES = 16;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("Expected keys must be greater than zero.");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between zero and one.");
+        }
+        double optimalBits = -expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(1L, ((long) Math.ceil(optimalBits) + 63) >>> 6));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = (int) Math.max(1L,
+                Math.min(MAXIMUM_HASHES, Math.round((double) bitCount / expectedKeys * Math.log(2))));
+    }
+
+    void put(K key) {
+        long hash = mix(key.hashCode());
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(hash1 + (long) i * hash2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            while (((word = bits.get(index)) & mask) == 0
+                    && !bits.compareAndSet(index, word, word | mask)) {
+                // another bit of the word was set concurrently, retry
+            }
+        }
+    }
+
+    boolean mightContain(K key) {
+        long hash = mix(key.hashCode());
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(hash1 + (long) i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spread the 32-bit hash code over 64 bits, the two halves seed the double hashing of the bits.
+     */
+    private static long mix(int hashCode) {
+        long hash = hashCode * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -1,7 +1,41 @@
 package com.example.CacheApplication.core;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
 public interface Cache<K, V> {
     void put(K key, V value);
+
     V get(K key);
+
+    /**
+     * Get value for key from cache. On a miss the value is computed by the loader,
+     * with concurrent callers for the same key sharing a single loader invocation.
+     */
+    V get(K key, Function<? super K, ? extends V> loader);
     void remove(K key);
+
+    /**
+     * Get the values of keys, keys without a value are absent from the result.
+     */
+    default Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> values = new HashMap<>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    default void putAll(Map<? extends K, ? extends V> entries) {
+        entries.forEach(this::put);
+    }
+
+    default void removeAll(Collection<? extends K> keys) {
+        keys.forEach(this::remove);
+    }
 }
@@ -1,13 +1,26 @@
 package com.example.CacheApplication.core;
 
 import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.ObservableDataStore;
+import com.example.CacheApplication.eviction.EvictionPolicy;
+import com.example.CacheApplication.eviction.LruEvictionPolicy;
 import com.example.CacheApplication.expiration.ExpirationPolicy;
+import com.example.CacheApplication.expiration.Expiry;
 import com.example.CacheApplication.refreshpolicy.RefreshPolicy;
+import com.example.CacheApplication.storage.Codec;
+import com.example.CacheApplication.storage.DeflateCodec;
+import com.example.CacheApplication.storage.Serializer;
+import com.example.CacheApplication.storage.StorageMode;
+import com.example.CacheApplication.util.Ticker;
 import com.example.CacheApplication.writepolicy.WritePropagationPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Builder;
 import lombok.Getter;
 
+import java.nio.file.Path;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Getter
 @Builder
@@ -16,6 +29,9 @@ public class CacheConfiguration<K, V> {
     private final int maxCapacity = 10;
 
     private final ExpirationPolicy<K, V> expirationPolicy;
+    // when set, computes the expiration time of every entry instead of the expiration policy,
+    // which still schedules the cleanup
+    private final Expiry<K, V> expiry;
     private final WritePropagationPolicy<K, V> writePropagationPolicy;
     private final RefreshPolicy<K, V> refreshPolicy;
     private final DataStore<K, V> dataStore;
@@ -23,19 +39,180 @@ public class CacheConfiguration<K, V> {
     @Builder.Default
     private final boolean asyncLoad = false;
 
-    private CacheConfiguration(int maxCapacity, ExpirationPolicy<K, V> expirationPolicy,
+    @Builder.Default
+    private final EvictionPolicy.Factory<K> evictionPolicyFactory = LruEvictionPolicy::new;
+    // keys are hashed to this many segments, each evicting its share of the maximum under its own lock
+    @Builder.Default
+    private final int evictionSegments = 1;
+    // move the share of the maximum towards the segments evicting the most at this period, 0 for fixed shares
+    private final long segmentRebalanceIntervalMillis;
+
+    // when set, eviction bounds the total weight of the entries by maxWeight instead of maxCapacity
+    private final Weigher<? super K, ? super V> weigher;
+    private final long maxWeight;
+
+    @Builder.Default
+    private final StorageMode storageMode = StorageMode.ON_HEAP;
+    // required to store values off heap, in a file or compressed
+    private final Serializer<V> valueSerializer;
+    // bytes of the slabs values are stored in off heap or in a file. When they are full the cache evicts
+    // its coldest entries to make room, even within maxCapacity or maxWeight
+    @Builder.Default
+    private final long offHeapCapacity = 64L * 1024 * 1024;
+    // directory of the file backing FILE storage, the system temp directory when not set
+    private final Path storageDirectory;
+    // codec of COMPRESSED storage, values serializing to fewer than compressionThresholdBytes stay objects
+    @Builder.Default
+    private final Codec compressionCodec = new DeflateCodec();
+    @Builder.Default
+    private final int compressionThresholdBytes = 512;
+    // values of the hottest entries kept decompressed with COMPRESSED storage, 0 to disable
+    private final int decompressedCacheSize;
+
+    // runs expiration, write-back and refresh tasks, the cache owns a daemon scheduler when not set
+    private final ScheduledExecutorService maintenanceExecutor;
+    // runs async loads and reloads, a virtual thread per task when not set
+    private final Executor loaderExecutor;
+
+    // record hit, load, eviction, expiration and refresh stats and publish them as meters
+    @Builder.Default
+    private final boolean recordStats = false;
+    @Builder.Default
+    private final String name = "cache";
+    // registry to publish stats to, Micrometer's global registry when not set
+    private final MeterRegistry meterRegistry;
+
+    // cache keys the datastore has no value for as tombstones for this long, 0 to disable
+    private final long negativeCacheTtlMillis;
+    // when set, a bloom filter of the datastore keys rejects absent keys without reading the datastore.
+    // Built from the datastore keys on creation and updated on writes through the cache, so keys
+    // added to the datastore by other writers are only seen with a custom loader or subscribeToChanges
+    private final long bloomFilterExpectedKeys;
+    @Builder.Default
+    private final double bloomFilterFalsePositiveRate = 0.01;
+
+    // clock for entry times and expiration, Ticker.coarse() trades precision for cheaper reads
+    @Builder.Default
+    private final Ticker ticker = Ticker.system();
+
+    // update and invalidate cached keys on the change events of an ObservableDataStore
+    private final boolean subscribeToChanges;
+
+    // file the hot entries are written to on close and restored from on creation, before warming up
+    // from the datastore. Restored asynchronously with asyncLoad
+    private final Path snapshotPath;
+    // also write the snapshot at this period, 0 to write it on close only
+    private final long snapshotIntervalMillis;
+    // required for snapshots, with the value serializer
+    private final Serializer<K> keySerializer;
+
+    // warm-up reads the top keys from the datastore in batches of this size, up to warmUpConcurrency at a time
+    @Builder.Default
+    private final int warmUpBatchSize = 512;
+    @Builder.Default
+    private final int warmUpConcurrency = 4;
+
+    private CacheConfiguration(int maxCapacity, ExpirationPolicy<K, V> expirationPolicy, Expiry<K, V> expiry,
                                WritePropagationPolicy<K, V> writePropagationPolicy,
                                RefreshPolicy<K, V> refreshPolicy, DataStore<K, V> dataStore,
-                               boolean asyncLoad) {
+                               boolean asyncLoad, EvictionPolicy.Factory<K> evictionPolicyFactory,
+                               int evictionSegments, long segmentRebalanceIntervalMillis,
+                               Weigher<? super K, ? super V> weigher, long maxWeight,
+                               StorageMode storageMode, Serializer<V> valueSerializer, long offHeapCapacity,
+                               Path storageDirectory, Codec compressionCodec, int compressionThresholdBytes,
+                               int decompressedCacheSize,
+                               ScheduledExecutorService maintenanceExecutor, Executor loaderExecutor,
+                               boolean recordStats, String name, MeterRegistry meterRegistry,
+                               long negativeCacheTtlMillis, long bloomFilterExpectedKeys,
+                               double bloomFilterFalsePositiveRate, Ticker ticker, boolean subscribeToChanges,
+                               Path snapshotPath, long snapshotIntervalMillis, Serializer<K> keySerializer,
+                               int warmUpBatchSize, int warmUpConcurrency) {
         if (maxCapacity > 0) {
             this.maxCapacity = maxCapacity;
         } else {
             throw new IllegalArgumentException("Max capacity must be greater than zero.");
         }
         this.expirationPolicy = Objects.requireNonNull(expirationPolicy, "Expiration policy cannot be null.");
+        this.expiry = expiry;
         this.writePropagationPolicy = Objects.requireNonNull(writePropagationPolicy, "Write propagation policy cannot be null.");
         this.refreshPolicy = Objects.requireNonNull(refreshPolicy, "Refresh policy cannot be null.");
         this.dataStore = Objects.requireNonNull(dataStore, "Backing store cannot be null.");
         this.asyncLoad = asyncLoad;
+        this.evictionPolicyFactory = Objects.requireNonNull(evictionPolicyFactory, "Eviction policy cannot be null.");
+        if (weigher != null && maxWeight <= 0) {
+            throw new IllegalArgumentException("Max weight must be greater than zero when a weigher is set.");
+        }
+        this.weigher = weigher;
+        this.maxWeight = maxWeight;
+        if (evictionSegments <= 0 || evictionSegments > (weigher == null ? maxCapacity : maxWeight)) {
+            throw new IllegalArgumentException("Eviction segments must be between one and the maximum capacity or weight.");
+        }
+        if (segmentRebalanceIntervalMillis < 0) {
+            throw new IllegalArgumentException("Segment rebalance interval must not be negative.");
+        }
+        this.evictionSegments = evictionSegments;
+        this.segmentRebalanceIntervalMillis = segmentRebalanceIntervalMillis;
+        this.storageMode = Objects.requireNonNull(storageMode, "Storage mode cannot be null.");
+        if (storageMode == StorageMode.OFF_HEAP || storageMode == StorageMode.FILE) {
+            Objects.requireNonNull(valueSerializer, "Value serializer cannot be null for off-heap storage.");
+            if (offHeapCapacity <= 0) {
+                throw new IllegalArgumentException("Off-heap capacity must be greater than zero.");
+            }
+        }
+        if (storageMode == StorageMode.COMPRESSED) {
+            Objects.requireNonNull(valueSerializer, "Value serializer cannot be null for compressed storage.");
+        }
+        this.valueSerializer = valueSerializer;
+        this.offHeapCapacity = offHeapCapacity;
+        this.storageDirectory = storageDirectory;
+        this.compressionCodec = Objects.requireNonNull(compressionCodec, "Compression codec cannot be null.");
+        if (compressionThresholdBytes < 0) {
+            throw new IllegalArgumentException("Compression threshold must not be negative.");
+        }
+        if (decompressedCacheSize < 0) {
+            throw new IllegalArgumentException("Decompressed cache size must not be negative.");
+        }
+        this.compressionThresholdBytes = compressionThresholdBytes;
+        this.decompressedCacheSize = decompressedCacheSize;
+        this.maintenanceExecutor = maintenanceExecutor;
+        this.loaderExecutor = loaderExecutor;
+        this.recordStats = recordStats;
+        this.name = Objects.requireNonNull(name, "Cache name cannot be null.");
+        this.meterRegistry = meterRegistry;
+        if (negativeCacheTtlMillis < 0) {
+            throw new IllegalArgumentException("Negative cache TTL must not be negative.");
+        }
+        this.negativeCacheTtlMillis = negativeCacheTtlMillis;
+        if (bloomFilterExpectedKeys < 0) {
+            throw new IllegalArgumentException("Bloom filter expected keys must not be negative.");
+        }
+        if (bloomFilterFalsePositiveRate <= 0 || bloomFilterFalsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Bloom filter false positive rate must be between zero and one.");
+        }
+        this.bloomFilterExpectedKeys = bloomFilterExpectedKeys;
+        this.bloomFilterFalsePositiveRate = bloomFilterFalsePositiveRate;
+        this.ticker = Objects.requireNonNull(ticker, "Ticker cannot be null.");
+        if (subscribeToChanges && !(dataStore instanceof ObservableDataStore)) {
+            throw new IllegalArgumentException("Datastore must be an ObservableDataStore to subscribe to its changes.");
+        }
+        this.subscribeToChanges = subscribeToChanges;
+        if (snapshotPath != null) {
+            Objects.requireNonNull(keySerializer, "Key serializer cannot be null for snapshots.");
+            Objects.requireNonNull(valueSerializer, "Value serializer cannot be null for snapshots.");
+        }
+        if (snapshotIntervalMillis < 0) {
+            throw new IllegalArgumentException("Snapshot interval must not be negative.");
+        }
+        this.snapshotPath = snapshotPath;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+        this.keySerializer = keySerializer;
+        if (warmUpBatchSize <= 0) {
+            throw new IllegalArgumentException("Warm-up batch size must be greater than zero.");
+        }
+        if (warmUpConcurrency <= 0) {
+            throw new IllegalArgumentException("Warm-up concurrency must be greater than zero.");
+        }
+        this.warmUpBatchSize = warmUpBatchSize;
+        this.warmUpConcurrency = warmUpConcurrency;
     }
 }
@@ -1,26 +1,152 @@
 package com.example.CacheApplication.core;
 
-import lombok.Getter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
-import java.util.concurrent.atomic.AtomicLong;
-
-@Getter
+/**
+ * Cached value with the time it was written and last accessed, and its own expiration time when it
+ * does not expire as per the cache's {@link com.example.CacheApplication.expiration.ExpirationPolicy}. Fields are plain and accessed through
+ * {@link VarHandle}s instead of atomics, so an entry is a single small object. An overwrite replaces
+ * the value in place, once released the entry holds no value and can no longer be replaced.
+ *
+ * @param <V>
+ */
 public class CacheEntry<V> {
-    private final V value;
-    private final long creationTime;
-    private final AtomicLong lastAccessTime;
+    // expiration time of an entry expiring as per the ExpirationPolicy
+    public static final long UNSET_EXPIRATION_TIME = Long.MIN_VALUE;
+
+    private static final VarHandle VALUE;
+    private static final VarHandle CREATION_TIME;
+    private static final VarHandle LAST_ACCESS_TIME;
+    private static final VarHandle EXPIRATION_TIME;
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            VALUE = lookup.findVarHandle(CacheEntry.class, "value", Object.class);
+            CREATION_TIME = lookup.findVarHandle(CacheEntry.class, "creationTime", long.class);
+            LAST_ACCESS_TIME = lookup.findVarHandle(CacheEntry.class, "lastAccessTime", long.class);
+            EXPIRATION_TIME = lookup.findVarHandle(CacheEntry.class, "expirationTime", long.class);
+            VERSION = lookup.findVarHandle(CacheEntry.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private V value;
+    private long creationTime;
+    private long lastAccessTime;
+    private long expirationTime;
+    private long version;
 
-    public CacheEntry(V value) {
+    public CacheEntry(V value, long creationTime) {
         this.value = value;
-        this.creationTime = System.currentTimeMillis();
-        this.lastAccessTime = new AtomicLong(creationTime);
+        this.creationTime = creationTime;
+        this.lastAccessTime = creationTime;
+        this.expirationTime = UNSET_EXPIRATION_TIME;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getValue() {
+        return (V) VALUE.getAcquire(this);
     }
 
-    public void updateLastAccessTime() {
-        lastAccessTime.set(System.currentTimeMillis());
+    /**
+     * Time the current value was written, reset when the value is replaced in place.
+     * @return creation time in millis
+     */
+    public long getCreationTime() {
+        return (long) CREATION_TIME.getOpaque(this);
     }
 
     public long getLastAccessTime() {
-        return lastAccessTime.get();
+        return (long) LAST_ACCESS_TIME.getOpaque(this);
+    }
+
+    public void updateLastAccessTime(long now) {
+        LAST_ACCESS_TIME.setOpaque(this, now);
+    }
+
+    /**
+     * Own expiration time of the entry.
+     * @return expiration time in millis, or {@link #UNSET_EXPIRATION_TIME}
+     */
+    public long getExpirationTime() {
+        return (long) EXPIRATION_TIME.getOpaque(this);
+    }
+
+    public void setExpirationTime(long expirationTime) {
+        EXPIRATION_TIME.setOpaque(this, expirationTime);
+    }
+
+    /**
+     * Version of the datastore change the value is at least as new as, changes up to it are
+     * already reflected by the value.
+     * @return version, 0 when unknown
+     */
+    public long getVersion() {
+        return (long) VERSION.getOpaque(this);
+    }
+
+    public void setVersion(long version) {
+        VERSION.setOpaque(this, version);
+    }
+
+    /**
+     * Replace the value in place as if the entry was created at now.
+     * @param newValue
+     * @param now
+     * @param expirationTime own expiration time of the new value, or {@link #UNSET_EXPIRATION_TIME}
+     * @param version datastore change version of the new value, or 0
+     * @return false if the entry was released
+     */
+    public boolean replaceValue(V newValue, long now, long expirationTime, long version) {
+        for (;;) {
+            V current = getValue();
+            if (current == null) {
+                return false;
+            }
+            if (compareAndSetValue(current, newValue, now, expirationTime, version)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Replace the value in place as if the entry was created at now, only if it is still expected.
+     * Replacements are serialized on the entry, so only the one that wins sets the times. They are
+     * set before the new value is published, a reader that sees it never finds it already expired.
+     * @param expected
+     * @param newValue
+     * @param now
+     * @param expirationTime own expiration time of the new value, or {@link #UNSET_EXPIRATION_TIME}
+     * @param version datastore change version of the new value, or 0
+     * @return false if the value changed or the entry was released
+     */
+    public boolean compareAndSetValue(V expected, V newValue, long now, long expirationTime, long version) {
+        if (expected == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (getValue() != expected) {
+                return false;
+            }
+            CREATION_TIME.setOpaque(this, now);
+            LAST_ACCESS_TIME.setOpaque(this, now);
+            EXPIRATION_TIME.setOpaque(this, expirationTime);
+            VERSION.setOpaque(this, version);
+            // release() does not take the lock, the times of a released entry are never read again
+            return VALUE.compareAndSet(this, expected, newValue);
+        }
+    }
+
+    /**
+     * Called once the entry is removed from the cache. Drops the value, so a concurrent reader
+     * reads the key again and a concurrent in-place replacement fails. Entries storing the value
+     * elsewhere free it.
+     */
+    public void release() {
+        VALUE.setRelease(this, null);
     }
 }
@@ -0,0 +1,240 @@
+package com.example.CacheApplication.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file of the hot entries of a cache, hottest entry first so a smaller cache restores the
+ * hottest part. Entries are grouped in chunks which are mapped and decoded independently, so a
+ * restore can read them in parallel, and each chunk has a checksum so a damaged chunk is skipped
+ * without losing the others. The file is written next to its path and moved into place once
+ * complete, a crash while writing leaves the previous snapshot.
+ * File layout - magic (int), version (int), chunks, chunk index, footer.
+ * Chunk index - offset (long), length (int), entries (int), crc (int) per chunk.
+ * Footer - index offset (long), chunk count (int), magic (int).
+ * Entry layout - expiration time, creation time, last access time (long), key length,
+ * value length (int), key, value.
+ */
+final class CacheSnapshot {
+    static final int CHUNK_ENTRIES = 4096;
+
+    private static final int MAGIC = 0x43534e50;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int INDEX_ENTRY_SIZE = 20;
+    private static final int FOOTER_SIZE = 16;
+
+    record Chunk(long offset, int length, int entries, int crc) {}
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(byte[] key, byte[] value, long expirationTime, long creationTime, long lastAccessTime);
+    }
+
+    private CacheSnapshot() {}
+
+    /**
+     * Writes a snapshot to a temporary file, {@link #commit()} replaces the snapshot at path with it.
+     */
+    static final class Writer implements Closeable {
+        private final Path path;
+        private final Path tempFile;
+        private final FileChannel channel;
+        private final List<Chunk> chunks = new ArrayList<>();
+        private final ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream();
+        private final DataOutputStream chunkOut = new DataOutputStream(chunkBytes);
+        private int chunkEntries;
+        private int entries;
+        private long position;
+        private boolean committed;
+
+        Writer(Path path) throws IOException {
+            this.path = path;
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            this.tempFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            this.channel = FileChannel.open(tempFile, StandardOpenOption.WRITE);
+            write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+        }
+
+        void append(byte[] key, byte[] value, long expirationTime, long creationTime, long lastAccessTime)
+                throws IOException {
+            chunkOut.writeLong(expirationTime);
+            chunkOut.writeLong(creationTime);
+            chunkOut.writeLong(lastAccessTime);
+            chunkOut.writeInt(key.length);
+            chunkOut.writeInt(value.length);
+            chunkOut.write(key);
+            chunkOut.write(value);
+            entries++;
+            if (++chunkEntries == CHUNK_ENTRIES) {
+                flushChunk();
+            }
+        }
+
+        int getEntries() {
+            return entries;
+        }
+
+        /**
+         * Write the chunk index and move the file into place.
+         */
+        void commit() throws IOException {
+            flushChunk();
+            long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(chunks.size() * INDEX_ENTRY_SIZE + FOOTER_SIZE);
+            for (Chunk chunk : chunks) {
+                index.putLong(chunk.offset()).putInt(chunk.length()).putInt(chunk.entries()).putInt(chunk.crc());
+            }
+            index.putLong(indexOffset).putInt(chunks.size()).putInt(MAGIC);
+            write(index.flip());
+            channel.force(false);
+            channel.close();
+            try {
+                Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            committed = true;
+        }
+
+        private void flushChunk() throws IOException {
+            if (chunkEntries == 0) {
+                return;
+            }
+            byte[] bytes = chunkBytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            chunks.add(new Chunk(position, bytes.length, chunkEntries, (int) crc.getValue()));
+            write(ByteBuffer.wrap(bytes));
+            chunkBytes.reset();
+            chunkEntries = 0;
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer);
+            }
+        }
+
+        /**
+         * Delete the temporary file unless the snapshot was committed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Reads the chunk index of a snapshot, chunks may be read concurrently.
+     */
+    static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final List<Chunk> chunks;
+
+        Reader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                this.chunks = readIndex(path);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        List<Chunk> getChunks() {
+            return chunks;
+        }
+
+        /**
+         * Map chunk and decode up to limit of its entries in file order, entries expired at now are skipped.
+         * @param chunk
+         * @param limit
+         * @param now
+         * @param consumer
+         * @return false if the checksum of the chunk does not match, nothing is decoded
+         */
+        boolean read(Chunk chunk, int limit, long now, EntryConsumer consumer) throws IOException {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.offset(), chunk.length());
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != chunk.crc()) {
+                return false;
+            }
+            int entries = Math.min(limit, chunk.entries());
+            for (int i = 0; i < entries; i++) {
+                long expirationTime = buffer.getLong();
+                long creationTime = buffer.getLong();
+                long lastAccessTime = buffer.getLong();
+                int keyLength = buffer.getInt();
+                int valueLength = buffer.getInt();
+                if (now > expirationTime) {
+                    buffer.position(buffer.position() + keyLength + valueLength);
+                    continue;
+                }
+                byte[] key = new byte[keyLength];
+                byte[] value = new byte[valueLength];
+                buffer.get(key).get(value);
+                consumer.accept(key, value, expirationTime, creationTime, lastAccessTime);
+            }
+            return true;
+        }
+
+        private List<Chunk> readIndex(Path path) throws IOException {
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException("Not a cache snapshot: " + path);
+            }
+            ByteBuffer header = read(0, HEADER_SIZE);
+            ByteBuffer footer = read(size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            int chunkCount = footer.getInt();
+            if (header.getInt() != MAGIC || footer.getInt() != MAGIC
+                    || indexOffset + (long) chunkCount * INDEX_ENTRY_SIZE + FOOTER_SIZE != size) {
+                throw new IOException("Not a cache snapshot: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported cache snapshot version " + version + ": " + path);
+            }
+            ByteBuffer index = read(indexOffset, chunkCount * INDEX_ENTRY_SIZE);
+            List<Chunk> chunks = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                chunks.add(new Chunk(index.getLong(), index.getInt(), index.getInt(), index.getInt()));
+            }
+            return List.copyOf(chunks);
+        }
+
+        private ByteBuffer read(long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of cache snapshot");
+                }
+            }
+            return buffer.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.CacheApplication.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * {@link AsyncCache} over an {@link InMemoryCache}. Hits complete on the caller's thread, misses
+ * and writes run on the loader executor, by default the cache's own, a virtual thread per task unless
+ * configured otherwise, so callers never park a platform thread on datastore I/O. Loads share the in-flight loads of the underlying cache,
+ * async and blocking callers of a missing key wait on the same load.
+ * @param <K>
+ * @param <V>
+ */
+public class InMemoryAsyncCache<K, V> implements AsyncCache<K, V> {
+    private final InMemoryCache<K, V> cache;
+    private final Executor executor;
+
+    public InMemoryAsyncCache(InMemoryCache<K, V> cache) {
+        this(cache, cache.getLoaderExecutor());
+    }
+
+    public InMemoryAsyncCache(InMemoryCache<K, V> cache, Executor executor) {
+        this.cache = Objects.requireNonNull(cache, "Cache cannot be null.");
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null.");
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        V value = cache.getIfPresent(key);
+        return value != null ? CompletableFuture.completedFuture(value) : cache.loadAsync(key, executor);
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends V> loader) {
+        Objects.requireNonNull(loader, "Loader cannot be null.");
+        V value = cache.getIfPresent(key);
+        return value != null ? CompletableFuture.completedFuture(value) : cache.loadAsync(key, loader, executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        List<K> missingKeys = new ArrayList<>();
+        Map<K, V> values = cache.getAllPresent(keys, missingKeys);
+        if (missingKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(values);
+        }
+        return CompletableFuture.supplyAsync(() -> cache.loadAll(missingKeys), executor)
+                .thenApply(loaded -> {
+                    values.putAll(loaded);
+                    return values;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value) {
+        return CompletableFuture.runAsync(() -> cache.put(key, value), executor);
+    }
+
+    @Override
+    public Cache<K, V> synchronous() {
+        return cache;
+    }
+}
@@ -1,32 +1,142 @@
 package com.example.CacheApplication.core;
 
 import com.example.CacheApplication.refreshpolicy.RefreshPolicy;
-import com.example.CacheApplication.util.ScheduledExecutorUtil;
+import com.example.CacheApplication.util.CacheScheduler;
+import com.example.CacheApplication.util.Ticker;
 import com.example.CacheApplication.writepolicy.WritePropagationPolicy;
+import com.example.CacheApplication.datastore.ChangeEvent;
 import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.ObservableDataStore;
 import com.example.CacheApplication.expiration.ExpirationPolicy;
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.example.CacheApplication.expiration.Expiry;
+import com.example.CacheApplication.expiration.TimerWheel;
+import com.example.CacheApplication.eviction.EvictionPolicy;
+import com.example.CacheApplication.storage.CompressedStore;
+import com.example.CacheApplication.storage.OffHeapStore;
+import com.example.CacheApplication.storage.Serializer;
+import com.example.CacheApplication.storage.StorageMode;
+import com.example.CacheApplication.storage.ValueStore;
+import com.example.CacheApplication.stats.CacheMetricsBinder;
+import com.example.CacheApplication.stats.CacheStats;
+import com.example.CacheApplication.stats.ConcurrentStatsCounter;
+import com.example.CacheApplication.stats.StatsCounter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 /**
  * {@link InMemoryCache} capable of storing and retrieving key-value pairs.
  * Uses {@link CacheConfiguration} for cache properties. Enabled with following features -
- *  maxCapacity limit with LRU Eviction from the cache
- *  {@link ExpirationPolicy} to automatically remove expired items from cache
+ *  maxCapacity limit, or maxWeight limit with a {@link Weigher}, with Eviction from the cache
+ *  as per the {@link EvictionPolicy}
+ *  {@link ExpirationPolicy} to treat expired items as misses on read and remove them
+ *  from cache through a {@link TimerWheel}, or a lifetime per entry from an {@link Expiry}
+ *  or {@link #put(Object, Object, long)}
  *  {@link DataStore} backing the cache for cache miss, load during creation and refresh
  *  {@link WritePropagationPolicy} to propagate updates in cached data to the backing datastore
- *  {@link RefreshPolicy} to auto refresh cache item after a duration from the datastore
+ *  {@link RefreshPolicy} to auto refresh cache item after a duration from the datastore,
+ *  or asynchronously when a read hits an entry the policy considers stale
+ *  Single-flight loading on a miss, concurrent callers for a key wait on one in-flight load
+ *  Bulk getAll/putAll going to the datastore once per batch for the missing or written keys
+ *  {@link StorageMode} to keep values on heap, serialized in an {@link OffHeapStore} or compressed
+ *  in a {@link CompressedStore}
+ *  Own {@link CacheScheduler} for maintenance tasks and loader executor for async loads,
+ *  {@link #close()} stops the tasks of this cache only
+ *  Optional {@link CacheStats} recording, published as Micrometer meters through {@link CacheMetricsBinder}
+ *  Optional negative caching, keys absent from the datastore are cached as tombstones with their own TTL
+ *  and count against capacity, and a {@link BloomFilter} of the datastore keys rejecting absent keys
+ *  without a datastore read
+ *  Overwrites replace the value of an on-heap entry in place, entry times come from the configured {@link Ticker}
+ *  Optional subscription to the changes of an {@link ObservableDataStore}, updating or invalidating
+ *  only the changed keys that are cached
+ *  As the upper tier of a {@link TieredCache}, evicted entries are demoted to the lower tier and
+ *  misses promote the lower tier's entry before going to the datastore
+ *  Optional segmentation of eviction, keys hashed to segments with their own {@link EvictionPolicy},
+ *  lock and {@link TimerWheel} and a share of the maximum, rebalanced towards the busiest segments
+ *  Optional snapshot of the hot entries written to a file on close or on a schedule, restored in
+ *  parallel on creation instead of warming up from the datastore
  * See Unit Tests for InMemoryCache.
  * @param <K>
  * @param <V>
  */
-public class InMemoryCache<K, V> implements Cache<K, V>, RefreshableCache<K, V>, ExpirableCache  {
-    private final Map<K, CacheEntry<V>> cache;
+@Slf4j
+public class InMemoryCache<K, V> implements TtlCache<K, V>, RefreshableCache<K, V>, ExpirableCache, AutoCloseable {
+    private static final int REFRESH_BATCH_SIZE = 512;
+    // looked up value of a key cached as absent from the datastore
+    private static final Object ABSENT = new Object();
+    // TTLs of internal writes, the entry expires as per the Expiry or the ExpirationPolicy
+    private static final long NO_TTL = 0L;
+    // or keeps its own expiration time, for reloads
+    private static final long KEEP_TTL = -1L;
+
+    private final Map<K, CacheEntry<V>> cache = new ConcurrentHashMap<>();
+    // keys are hashed to segments, each evicting its share of the maximum
+    private final Segment<K, V>[] segments;
+    private final long maximum;
     private final DataStore<K, V> dataStore;
+    // bound once, a method reference per get would allocate on every hit
+    private final Function<K, V> dataStoreLoader;
     private final ExpirationPolicy<K,V> expirationPolicy;
+    // null unless entries have their own lifetime
+    private final Expiry<K, V> expiry;
     private final WritePropagationPolicy<K, V> writePropagationPolicy;
     private final RefreshPolicy<K, V> refreshPolicy;
+    private final Weigher<? super K, ? super V> weigher;
+    // null when values are held as objects on heap
+    private final ValueStore<V> valueStore;
+    private final Map<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+    private final Set<K> inFlightRefreshes = ConcurrentHashMap.newKeySet();
+    private final Ticker ticker;
+    private final CacheScheduler scheduler;
+    private final Executor loaderExecutor;
+    // created by the cache when no loader executor is configured, shut down on close
+    private final ExecutorService ownedLoaderExecutor;
+    private final boolean recordStats;
+    private final StatsCounter statsCounter;
+    private final CacheMetricsBinder metricsBinder;
+    private final long negativeCacheTtlMillis;
+    private final BloomFilter<K> keyFilter;
+    // tier evicted entries are demoted to and misses are promoted from, null unless tiered
+    private final InMemoryCache<K, V> lowerTier;
+    // entries evicted towards the lower tier and not yet stored there, null unless tiered
+    private final Map<K, CacheEntry<V>> inFlightDemotions;
+    // null unless subscribed to the changes of the datastore
+    private final ObservableDataStore.Subscription changeSubscription;
+    // null unless snapshots are configured
+    private final Path snapshotPath;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    // completes once the cache is loaded from the snapshot or the datastore
+    private final CompletableFuture<Void> warmUp;
+    private final int warmUpBatchSize;
+    private final int warmUpConcurrency;
 
     /**
      * Constructor for InMemoryCache with {@link CacheConfiguration} as param.
@@ -35,43 +145,315 @@ public class InMemoryCache<K, V> implements Cache<K, V>, RefreshableCache<K, V>,
      * @param config
      */
     public InMemoryCache(CacheConfiguration<K, V> config) {
+        this(config, null, true);
+    }
+
+    /**
+     * Tier of a {@link TieredCache}, the upper tier is backed by lowerTier.
+     * Only the upper tier warms up, the lower tier is filled by demotions.
+     * @param config
+     * @param lowerTier null for the lower tier
+     * @param warmUp whether to load the cache from the snapshot or the data store
+     */
+    InMemoryCache(CacheConfiguration<K, V> config, InMemoryCache<K, V> lowerTier, boolean warmUp) {
+        this.lowerTier = lowerTier;
+        this.inFlightDemotions = lowerTier == null ? null : new ConcurrentHashMap<>();
         // get config properties
+        this.ticker = config.getTicker();
         this.expirationPolicy = config.getExpirationPolicy();
+        this.expiry = config.getExpiry();
         this.writePropagationPolicy = config.getWritePropagationPolicy();
         this.refreshPolicy = config.getRefreshPolicy();
 
         this.dataStore = config.getDataStore();
-        // build cache object
-        this.cache = new ConcurrentLinkedHashMap.Builder<K, CacheEntry<V>>()
-                .maximumWeightedCapacity(config.getMaxCapacity())
-                .build();
+        this.dataStoreLoader = dataStore::get;
+        this.weigher = config.getWeigher();
+        this.maximum = weigher == null ? config.getMaxCapacity() : config.getMaxWeight();
+        this.segments = newSegments(config.getEvictionPolicyFactory(), config.getEvictionSegments());
+        this.valueStore = switch (config.getStorageMode()) {
+            case ON_HEAP -> null;
+            case OFF_HEAP -> new OffHeapStore<>(config.getOffHeapCapacity(), config.getValueSerializer());
+            case FILE -> OffHeapStore.mappedFile(config.getOffHeapCapacity(), config.getValueSerializer(),
+                    config.getStorageDirectory() != null
+                            ? config.getStorageDirectory()
+                            : Path.of(System.getProperty("java.io.tmpdir")));
+            case COMPRESSED -> new CompressedStore<>(config.getValueSerializer(), config.getCompressionCodec(),
+                    config.getCompressionThresholdBytes(), config.getDecompressedCacheSize());
+        };
+
+        this.scheduler = config.getMaintenanceExecutor() == null
+                ? new CacheScheduler()
+                : new CacheScheduler(config.getMaintenanceExecutor());
+        this.ownedLoaderExecutor = config.getLoaderExecutor() == null
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : null;
+        this.loaderExecutor = ownedLoaderExecutor != null ? ownedLoaderExecutor : config.getLoaderExecutor();
+
+        this.recordStats = config.isRecordStats();
+        this.statsCounter = recordStats ? new ConcurrentStatsCounter() : StatsCounter.disabled();
+        if (recordStats) {
+            this.metricsBinder = new CacheMetricsBinder(this, config.getName());
+            metricsBinder.bindTo(config.getMeterRegistry() != null ? config.getMeterRegistry() : Metrics.globalRegistry);
+        } else {
+            this.metricsBinder = null;
+        }
+
+        this.negativeCacheTtlMillis = config.getNegativeCacheTtlMillis();
+        if (config.getBloomFilterExpectedKeys() > 0) {
+            this.keyFilter = new BloomFilter<>(config.getBloomFilterExpectedKeys(), config.getBloomFilterFalsePositiveRate());
+            dataStore.getKeys().forEach(keyFilter::put);
+        } else {
+            this.keyFilter = null;
+        }
 
         // setup scheduled policy tasks - expiration, writePropagation, refresh
-        expirationPolicy.scheduleAutoCleanup(this);
-        writePropagationPolicy.scheduleWrite();
-        refreshPolicy.scheduleAutoRefresh(this);
+        expirationPolicy.scheduleAutoCleanup(this, scheduler);
+        writePropagationPolicy.scheduleWrite(scheduler);
+        refreshPolicy.scheduleAutoRefresh(this, scheduler);
+
+        this.changeSubscription = config.isSubscribeToChanges()
+                ? ((ObservableDataStore<K, V>) dataStore).subscribe(this::applyChanges)
+                : null;
 
-        // load cache from data store
-        if (config.isAsyncLoad()) {
-            ScheduledExecutorUtil.executeAsync(() -> this.loadCacheFromDataStore(config.getMaxCapacity()));
+        this.snapshotPath = config.getSnapshotPath();
+        this.keySerializer = config.getKeySerializer();
+        this.valueSerializer = config.getValueSerializer();
+        this.warmUpBatchSize = config.getWarmUpBatchSize();
+        this.warmUpConcurrency = config.getWarmUpConcurrency();
+
+        // load cache from the snapshot or the data store
+        if (!warmUp) {
+            this.warmUp = CompletableFuture.completedFuture(null);
+        } else if (config.isAsyncLoad()) {
+            this.warmUp = CompletableFuture.runAsync(() -> warmUp(config.getMaxCapacity()), loaderExecutor);
         } else {
-            loadCacheFromDataStore(config.getMaxCapacity());
+            warmUp(config.getMaxCapacity());
+            this.warmUp = CompletableFuture.completedFuture(null);
+        }
+        if (segments.length > 1 && config.getSegmentRebalanceIntervalMillis() > 0) {
+            scheduler.scheduleWithFixedDelay(this::rebalanceSegments, config.getSegmentRebalanceIntervalMillis(),
+                    config.getSegmentRebalanceIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (snapshotPath != null && config.getSnapshotIntervalMillis() > 0) {
+            scheduler.scheduleWithFixedDelay(this::writeSnapshotIfWarm, config.getSnapshotIntervalMillis(),
+                    config.getSnapshotIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Segment<K, V>[] newSegments(EvictionPolicy.Factory<K> evictionPolicyFactory, int count) {
+        Segment<K, V>[] newSegments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            long share = maximum / count + (i < maximum % count ? 1 : 0);
+            newSegments[i] = new Segment<>(evictionPolicyFactory.create(share), new TimerWheel<>(ticker.read()), share);
+        }
+        return newSegments;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        if (segments.length == 1) {
+            return segments[0];
+        }
+        // high bits of a multiplicative hash, the maps of a segment spread its keys by the low bits
+        long hash = (key.hashCode() * 0x9E3779B9) & 0xFFFFFFFFL;
+        return segments[(int) ((hash * segments.length) >>> 32)];
+    }
+
+    private void warmUp(int maxCapacity) {
+        if (snapshotPath == null || restoreSnapshot(maxCapacity) == 0) {
+            loadCacheFromDataStore(maxCapacity);
         }
     }
 
     /**
-     * Method to load cache from datastore. Datastore returns topKeys limit maxCapacity.
+     * Method to load cache from datastore. Datastore returns topKeys limit maxCapacity,
+     * their values are read in bulk calls of warmUpBatchSize keys, warmUpConcurrency of them
+     * running in parallel on the loader executor.
      * @param maxCapacity
      */
     private void loadCacheFromDataStore(int maxCapacity) {
-        for (K key : dataStore.getTopKeys(maxCapacity)) {
-            V value = dataStore.get(key);
-            if (value != null) {
-                put(key, value);
+        List<K> keys = new ArrayList<>();
+        dataStore.getTopKeys(maxCapacity).forEach(keys::add);
+        if (keys.size() <= warmUpBatchSize) {
+            loadWarmUpBatch(keys);
+            return;
+        }
+        Semaphore permits = new Semaphore(warmUpConcurrency);
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += warmUpBatchSize) {
+            List<K> batch = keys.subList(from, Math.min(from + warmUpBatchSize, keys.size()));
+            permits.acquireUninterruptibly();
+            try {
+                batches.add(CompletableFuture.runAsync(() -> loadWarmUpBatch(batch), loaderExecutor)
+                        .whenComplete((result, failure) -> permits.release()));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        awaitLoad(CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)));
+    }
+
+    private void loadWarmUpBatch(List<K> keys) {
+        if (!keys.isEmpty()) {
+            dataStore.getAll(keys).forEach((key, value) -> cacheLoadedValue(key, value, weigh(key, value)));
+        }
+    }
+
+    /**
+     * Restore the entries of the snapshot file that have not expired, keeping their creation and
+     * access times. Chunks are mapped and decoded in parallel on the loader executor, each inserted
+     * coldest entry first so the {@link EvictionPolicy} roughly keeps the order it had. Without a
+     * weigher only the maxCapacity hottest entries are read.
+     * @param maxCapacity
+     * @return number of entries restored, 0 if there is no readable snapshot
+     */
+    private int restoreSnapshot(int maxCapacity) {
+        if (!Files.exists(snapshotPath)) {
+            return 0;
+        }
+        try (CacheSnapshot.Reader reader = new CacheSnapshot.Reader(snapshotPath)) {
+            long now = ticker.read();
+            AtomicInteger restored = new AtomicInteger();
+            List<CompletableFuture<Void>> restores = new ArrayList<>();
+            long entries = 0;
+            for (CacheSnapshot.Chunk chunk : reader.getChunks()) {
+                int limit = weigher == null ? (int) Math.min(chunk.entries(), maxCapacity - entries) : chunk.entries();
+                if (limit <= 0) {
+                    break;
+                }
+                entries += limit;
+                restores.add(CompletableFuture.runAsync(
+                        () -> restored.addAndGet(restoreChunk(reader, chunk, limit, now)), loaderExecutor));
+            }
+            CompletableFuture.allOf(restores.toArray(CompletableFuture[]::new)).join();
+            return restored.get();
+        } catch (IOException | UncheckedIOException | CompletionException e) {
+            // unreadable or incompatible snapshot, warm up from the datastore instead
+            return 0;
+        }
+    }
+
+    private int restoreChunk(CacheSnapshot.Reader reader, CacheSnapshot.Chunk chunk, int limit, long now) {
+        List<K> keys = new ArrayList<>(limit);
+        List<V> values = new ArrayList<>(limit);
+        List<CacheEntry<V>> entries = new ArrayList<>(limit);
+        try {
+            reader.read(chunk, limit, now, (keyBytes, valueBytes, expirationTime, creationTime, lastAccessTime) -> {
+                V value = valueSerializer.deserialize(valueBytes);
+                CacheEntry<V> entry = newEntry(value, creationTime);
+                if (entry == null) {
+                    return;
+                }
+                entry.updateLastAccessTime(lastAccessTime);
+                if (expirationTime != expirationPolicy.getExpirationTime(entry)) {
+                    // the entry had its own expiration time
+                    entry.setExpirationTime(expirationTime);
+                }
+                if (isExpired(entry, now)) {
+                    entry.release();
+                    return;
+                }
+                keys.add(keySerializer.deserialize(keyBytes));
+                values.add(value);
+                entries.add(entry);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the cache snapshot " + snapshotPath, e);
+        }
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            K key = keys.get(i);
+            V value = values.get(i);
+            addToKeyFilter(key);
+            cacheLoadedEntry(key, value, entries.get(i), weigh(key, value));
+        }
+        return keys.size();
+    }
+
+    /**
+     * Write the cached entries to the snapshot file in the order of the {@link EvictionPolicy},
+     * hottest first. Tombstones and expired entries are left out, concurrent writes of the
+     * snapshot run one at a time.
+     * @return number of entries written
+     */
+    public int writeSnapshot() {
+        if (snapshotPath == null) {
+            throw new IllegalStateException("Snapshots are not configured for this cache.");
+        }
+        List<K> keys = hottestKeys();
+        snapshotLock.lock();
+        try (CacheSnapshot.Writer writer = new CacheSnapshot.Writer(snapshotPath)) {
+            long now = ticker.read();
+            for (K key : keys) {
+                CacheEntry<V> entry = cache.get(key);
+                if (entry == null || entry instanceof TombstoneEntry || isExpired(entry, now)) {
+                    continue;
+                }
+                V value = entry.getValue();
+                if (value != null) {
+                    writer.append(keySerializer.serialize(key), valueSerializer.serialize(value),
+                            expirationTime(entry), entry.getCreationTime(),
+                            entry.getLastAccessTime());
+                }
+            }
+            writer.commit();
+            return writer.getEntries();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the cache snapshot " + snapshotPath, e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Keys of every segment hottest first, interleaving the segments rank by rank.
+     * @return keys
+     */
+    private List<K> hottestKeys() {
+        List<List<K>> segmentKeys = new ArrayList<>(segments.length);
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.readBuffer.drainTo(segment.policy::recordAccess);
+                segmentKeys.add(segment.policy.hottestKeys(Integer.MAX_VALUE));
+            } finally {
+                segment.lock.unlock();
             }
+            size += segmentKeys.getLast().size();
+        }
+        if (segmentKeys.size() == 1) {
+            return segmentKeys.getFirst();
+        }
+        List<K> keys = new ArrayList<>(size);
+        for (int rank = 0; keys.size() < size; rank++) {
+            for (List<K> ranked : segmentKeys) {
+                if (rank < ranked.size()) {
+                    keys.add(ranked.get(rank));
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Write the snapshot unless the cache is still warming up, it would replace the snapshot being
+     * restored with part of it.
+     */
+    private void writeSnapshotIfWarm() {
+        if (warmUp.isDone()) {
+            writeSnapshot();
         }
     }
 
+    /**
+     * Completes once the cache is loaded from its snapshot or the datastore, right away unless asyncLoad is configured.
+     * @return warm-up future
+     */
+    public CompletableFuture<Void> getWarmUp() {
+        return warmUp.copy();
+    }
+
     /**
      * Write entry to cache, propagate policy to datastore
      * and invoke expirationPolicy for updating access time.
@@ -80,14 +462,132 @@ public class InMemoryCache<K, V> implements Cache<K, V>, RefreshableCache<K, V>,
      */
     @Override
     public void put(K key, V value) {
+        int weight = weigh(key, value);
+        addToKeyFilter(key);
+        long version = changeVersion();
         writePropagationPolicy.write(key, value, dataStore);
-        cache.compute(key, (k, existingEntry) -> {
-            CacheEntry<V> newEntry = new CacheEntry<>(value);
-            expirationPolicy.updateAccessTimeForWrite(newEntry);
-            return newEntry;
+        putEntry(key, value, weight, NO_TTL, version);
+        statsCounter.recordPut();
+    }
+
+    /**
+     * Write entry to cache expiring ttlMillis from now, in place of the {@link ExpirationPolicy}
+     * or {@link Expiry}, and propagate it to the datastore. A later write without a TTL drops it.
+     * @param key
+     * @param value
+     * @param ttlMillis
+     */
+    @Override
+    public void put(K key, V value, long ttlMillis) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("TTL must be greater than zero.");
+        }
+        int weight = weigh(key, value);
+        addToKeyFilter(key);
+        long version = changeVersion();
+        writePropagationPolicy.write(key, value, dataStore);
+        putEntry(key, value, weight, ttlMillis, version);
+        statsCounter.recordPut();
+    }
+
+    /**
+     * Write entries to cache, propagating them to the datastore as one batch.
+     * @param entries
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        Map<K, Integer> weights = new LinkedHashMap<>();
+        entries.forEach((key, value) -> weights.put(key, weigh(key, value)));
+        entries.keySet().forEach(this::addToKeyFilter);
+        long version = changeVersion();
+        writePropagationPolicy.writeAll(entries, dataStore);
+        entries.forEach((key, value) -> {
+            putEntry(key, value, weights.get(key), NO_TTL, version);
+            statsCounter.recordPut();
         });
     }
 
+    /**
+     * Store value for key. The value of a live on-heap entry is replaced in place, without
+     * allocating an entry or locking the map, otherwise a new entry replaces the existing one.
+     * @param key
+     * @param value
+     * @param weight
+     * @param ttlMillis lifetime of the value, {@link #NO_TTL} or {@link #KEEP_TTL}
+     * @param version datastore change version read before the value was written or read
+     */
+    private void putEntry(K key, V value, int weight, long ttlMillis, long version) {
+        long now = ticker.read();
+        CacheEntry<V> entry = cache.get(key);
+        if (entry != null && (entry instanceof TombstoneEntry || isExpired(entry, now))) {
+            entry = null;
+        }
+        long expirationTime = writeExpirationTime(key, value, entry, ttlMillis, now);
+        if (valueStore == null && entry != null && entry.replaceValue(value, now, expirationTime, version)) {
+            expirationPolicy.updateAccessTimeForWrite(entry, now);
+            scheduleExpiration(key, entry);
+            afterWrite(key, weight);
+            return;
+        }
+        CacheEntry<V> newEntry = newEntry(value, now);
+        if (newEntry != null) {
+            expirationPolicy.updateAccessTimeForWrite(newEntry, now);
+            newEntry.setExpirationTime(expirationTime);
+            newEntry.setVersion(version);
+        }
+        writeEntry(key, newEntry, weight);
+    }
+
+    /**
+     * Own expiration time of value written for key at now.
+     * @param key
+     * @param value
+     * @param existing live entry the value replaces, or null
+     * @param ttlMillis lifetime given with the write, {@link #NO_TTL} or {@link #KEEP_TTL}
+     * @param now
+     * @return expiration time, {@link CacheEntry#UNSET_EXPIRATION_TIME} to expire as per the policy
+     */
+    private long writeExpirationTime(K key, V value, CacheEntry<V> existing, long ttlMillis, long now) {
+        if (ttlMillis > 0) {
+            return expirationTimeAfter(now, ttlMillis);
+        }
+        if (expiry != null) {
+            return expirationTimeAfter(now, existing == null
+                    ? expiry.expireAfterCreate(key, value, now)
+                    : expiry.expireAfterUpdate(key, value, now, remainingMillis(existing, now)));
+        }
+        return ttlMillis == KEEP_TTL && existing != null
+                ? existing.getExpirationTime()
+                : CacheEntry.UNSET_EXPIRATION_TIME;
+    }
+
+    /**
+     * Let the {@link Expiry} change the lifetime of entry on a read. The timer wheel reschedules
+     * a later expiration time when it comes due, an earlier one is rescheduled right away.
+     */
+    private void expireAfterRead(K key, CacheEntry<V> entry, V value, long now) {
+        long expirationTime = expirationTime(entry);
+        long newExpirationTime = expirationTimeAfter(now,
+                expiry.expireAfterRead(key, value, now, remainingMillis(entry, now)));
+        if (newExpirationTime != expirationTime) {
+            entry.setExpirationTime(newExpirationTime);
+            if (newExpirationTime < expirationTime) {
+                scheduleExpiration(key, entry);
+            }
+        }
+    }
+
+    private long remainingMillis(CacheEntry<V> entry, long now) {
+        return Math.max(0L, expirationTime(entry) - now);
+    }
+
+    private static long expirationTimeAfter(long now, long durationMillis) {
+        if (durationMillis <= 0) {
+            return now;
+        }
+        return durationMillis >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + durationMillis;
+    }
+
     /**
      * Get value for key from cache. Retrieve from datastore if not present in cache
      * @param key
@@ -95,55 +595,1264 @@ public class InMemoryCache<K, V> implements Cache<K, V>, RefreshableCache<K, V>,
      */
     @Override
     public V get(K key) {
-        CacheEntry<V> entry = cache.get(key);
-        if (entry == null) {
-            V value = dataStore.get(key);
+        return getOrLoad(key, dataStoreLoader, false);
+    }
+
+    /**
+     * Get value for key from cache. Compute it with the loader if not present in cache,
+     * the computed value is propagated to the datastore as per the {@link WritePropagationPolicy}.
+     * @param key
+     * @param loader
+     * @return <V>
+     */
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Objects.requireNonNull(loader, "Loader cannot be null.");
+        return getOrLoad(key, loader, true);
+    }
+
+    /**
+     * Get values for keys from cache. The keys not present in cache are retrieved from the
+     * datastore in one bulk call, keys already being loaded wait on their in-flight load.
+     * @param keys
+     * @return values by key, keys without a value are absent
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        List<K> missingKeys = new ArrayList<>();
+        Map<K, V> values = getAllPresent(keys, missingKeys);
+        if (!missingKeys.isEmpty()) {
+            values.putAll(loadAll(missingKeys));
+        }
+        return values;
+    }
+
+    /**
+     * Get the cached values for keys and record the accesses, collecting the misses to load. Keys
+     * with a tombstone or known to be absent from the datastore are not collected.
+     * @param keys
+     * @param missingKeys
+     * @return cached values by key
+     */
+    @SuppressWarnings("unchecked")
+    Map<K, V> getAllPresent(Collection<? extends K> keys, List<K> missingKeys) {
+        Map<K, V> values = new HashMap<>();
+        for (K key : keys) {
+            Object value = lookup(key);
+            if (value == ABSENT) {
+                continue;
+            }
+            if (value != null) {
+                values.put(key, (V) value);
+            } else if (mightBeInDataStore(key)) {
+                missingKeys.add(key);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Loads from the datastore are the ones not propagated back to it, they skip keys known to be
+     * absent from the datastore. A loader computes a value for such keys as for any other miss.
+     */
+    @SuppressWarnings("unchecked")
+    private V getOrLoad(K key, Function<? super K, ? extends V> loader, boolean propagateWrite) {
+        Object value = lookup(key);
+        if (value != null && value != ABSENT) {
+            return (V) value;
+        }
+        if (!propagateWrite && (value == ABSENT || !mightBeInDataStore(key))) {
+            return null;
+        }
+        return load(key, loader, propagateWrite);
+    }
+
+    /**
+     * Get value for key from cache and record the access, without loading it on a miss.
+     * @param key
+     * @return <V> or null
+     */
+    @SuppressWarnings("unchecked")
+    public V getIfPresent(K key) {
+        Object value = lookup(key);
+        return value == ABSENT ? null : (V) value;
+    }
+
+    /**
+     * Look up key and record the access. A tombstone is a hit, the absence of the key is cached.
+     * @param key
+     * @return the cached value, {@link #ABSENT} for a tombstone or null on a miss
+     */
+    private Object lookup(K key) {
+        long now = ticker.read();
+        for (;;) {
+            CacheEntry<V> entry = getIfUnexpired(key, now);
+            if (entry == null) {
+                statsCounter.recordMisses(1);
+                return null;
+            }
+            if (entry instanceof TombstoneEntry) {
+                statsCounter.recordHits(1);
+                afterRead(key);
+                return ABSENT;
+            }
+            V value = entry.getValue();
             if (value != null) {
-                put(key, value);
+                statsCounter.recordHits(1);
+                expirationPolicy.updateAccessTimeForRead(entry, now);
+                if (expiry != null) {
+                    expireAfterRead(key, entry, value, now);
+                }
+                afterRead(key);
+                if (refreshPolicy.shouldRefreshOnRead(entry, now)) {
+                    refreshAsync(key, entry, value);
+                }
+                return value;
+            }
+            // entry was released by a concurrent write or removal, read the key again
+        }
+    }
+
+    /**
+     * Reload entry for key from the datastore in the background, at most one reload per key runs
+     * at a time. The reloaded value only replaces entry if it is still the cached one holding value,
+     * so a write made during the reload is kept. A failed or rejected reload keeps the current value,
+     * the read never fails because of it.
+     * @param key
+     * @param entry
+     * @param value
+     */
+    private void refreshAsync(K key, CacheEntry<V> entry, V value) {
+        if (!inFlightRefreshes.add(key)) {
+            return;
+        }
+        try {
+            loaderExecutor.execute(() -> {
+                long startTime = startTimer();
+                try {
+                    long version = changeVersion();
+                    V newValue = dataStore.get(key);
+                    if (newValue != null) {
+                        replaceEntry(key, entry, value, newValue, version);
+                    }
+                    recordRefresh(startTime, newValue != null);
+                } catch (RuntimeException e) {
+                    recordRefresh(startTime, false);
+                    log.warn("Failed to refresh key {}", key, e);
+                } finally {
+                    inFlightRefreshes.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // executor is saturated or shut down, serve the current value and reload on a later read
+            inFlightRefreshes.remove(key);
+        }
+    }
+
+    private void replaceEntry(K key, CacheEntry<V> expected, V expectedValue, V newValue, long version) {
+        int weight = weigh(key, newValue);
+        long now = ticker.read();
+        long expirationTime = writeExpirationTime(key, newValue, expected, KEEP_TTL, now);
+        if (valueStore == null && expected.compareAndSetValue(expectedValue, newValue, now, expirationTime, version)) {
+            expirationPolicy.updateAccessTimeForWrite(expected, now);
+            scheduleExpiration(key, expected);
+            afterWrite(key, weight);
+            return;
+        }
+        if (valueStore == null) {
+            // the on-heap value was overwritten or removed during the reload
+            return;
+        }
+        CacheEntry<V> newEntry = newEntry(newValue, now);
+        if (newEntry == null) {
+            return;
+        }
+        expirationPolicy.updateAccessTimeForWrite(newEntry, now);
+        newEntry.setExpirationTime(expirationTime);
+        newEntry.setVersion(version);
+        boolean[] replaced = new boolean[1];
+        cache.computeIfPresent(key, (k, existingEntry) -> {
+            if (existingEntry != expected) {
+                return existingEntry;
             }
+            existingEntry.release();
+            scheduleExpiration(k, newEntry);
+            replaced[0] = true;
+            return newEntry;
+        });
+        if (replaced[0]) {
+            afterWrite(key, weight);
+        } else {
+            newEntry.release();
+        }
+    }
+
+    /**
+     * Load the value for a missing key. Only the first caller for a key runs the loader,
+     * other callers wait on the in-flight result instead of hitting the datastore again.
+     * @param key
+     * @param loader
+     * @param propagateWrite write the loaded value through the {@link WritePropagationPolicy}
+     * @return <V>
+     */
+    private V load(K key, Function<? super K, ? extends V> loader, boolean propagateWrite) {
+        CompletableFuture<V> newLoad = new CompletableFuture<>();
+        CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, newLoad);
+        if (inFlightLoad != null) {
+            return awaitLoad(inFlightLoad);
+        }
+        try {
+            V value = loadAndCache(key, loader, propagateWrite);
+            newLoad.complete(value);
             return value;
+        } catch (RuntimeException | Error e) {
+            newLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, newLoad);
         }
-        expirationPolicy.updateAccessTimeForRead(entry);
-        return entry.getValue();
     }
 
-    @Override
-    public void remove(K key) {
-        cache.remove(key);
+    /**
+     * Load the values for missing keys with one bulk read from the datastore. Keys with a load
+     * already in flight are not read again, their callers' results are awaited instead.
+     * @param keys
+     * @return values by key, keys without a value are absent
+     */
+    Map<K, V> loadAll(List<K> keys) {
+        Map<K, CompletableFuture<V>> newLoads = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> inFlight = new HashMap<>();
+        for (K key : keys) {
+            if (newLoads.containsKey(key) || inFlight.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> newLoad = new CompletableFuture<>();
+            CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, newLoad);
+            if (inFlightLoad == null) {
+                newLoads.put(key, newLoad);
+            } else {
+                inFlight.put(key, inFlightLoad);
+            }
+        }
+        Map<K, V> values = new HashMap<>();
+        if (!newLoads.isEmpty()) {
+            try {
+                loadAndCacheAll(newLoads, values);
+            } catch (RuntimeException | Error e) {
+                newLoads.values().forEach(newLoad -> newLoad.completeExceptionally(e));
+                throw e;
+            } finally {
+                newLoads.forEach(inFlightLoads::remove);
+            }
+        }
+        inFlight.forEach((key, inFlightLoad) -> {
+            V value = awaitLoad(inFlightLoad);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void loadAndCacheAll(Map<K, CompletableFuture<V>> newLoads, Map<K, V> values) {
+        List<K> keysToLoad = new ArrayList<>();
+        newLoads.forEach((key, newLoad) -> {
+            // a previous load may have completed between the miss and registering this one
+            Object cachedValue = peek(key);
+            if (cachedValue == ABSENT) {
+                newLoad.complete(null);
+            } else if (cachedValue != null) {
+                values.put(key, (V) cachedValue);
+                newLoad.complete((V) cachedValue);
+            } else {
+                V promotedValue = promote(key);
+                if (promotedValue != null) {
+                    values.put(key, promotedValue);
+                    newLoad.complete(promotedValue);
+                } else {
+                    keysToLoad.add(key);
+                }
+            }
+        });
+        Map<K, V> loaded = keysToLoad.isEmpty() ? Map.of() : loadBatch(keysToLoad);
+        for (K key : keysToLoad) {
+            V value = loaded.get(key);
+            if (value != null) {
+                value = cacheLoadedValue(key, value, weigh(key, value));
+                values.put(key, value);
+            } else {
+                cacheAbsent(key);
+            }
+            newLoads.get(key).complete(value);
+        }
+    }
+
+    CompletableFuture<V> loadAsync(K key, Executor executor) {
+        return loadAsync(key, dataStoreLoader, false, executor);
+    }
+
+    CompletableFuture<V> loadAsync(K key, Function<? super K, ? extends V> loader, Executor executor) {
+        return loadAsync(key, loader, true, executor);
     }
 
     /**
-     * Expire cache items runnable as per the {@link ExpirationPolicy} implementation
-     * @return Runnable
+     * Load the value for a missing key on executor, joining the load already in flight for the key.
+     * @param key
+     * @param loader
+     * @param propagateWrite write the loaded value through the {@link WritePropagationPolicy}
+     * @param executor
+     * @return a copy of the shared load, completing it does not affect other callers
      */
-    @Override
-    public Runnable getAutoExpirationRunnable() {
-        return () -> cache.entrySet().removeIf(
-                entry -> expirationPolicy.isExpired(entry.getValue()));
+    private CompletableFuture<V> loadAsync(K key, Function<? super K, ? extends V> loader, boolean propagateWrite,
+                                           Executor executor) {
+        CompletableFuture<V> newLoad = new CompletableFuture<>();
+        CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, newLoad);
+        if (inFlightLoad != null) {
+            return inFlightLoad.copy();
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    newLoad.complete(loadAndCache(key, loader, propagateWrite));
+                } catch (Throwable e) {
+                    newLoad.completeExceptionally(e);
+                } finally {
+                    inFlightLoads.remove(key, newLoad);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlightLoads.remove(key, newLoad);
+            newLoad.completeExceptionally(e);
+        }
+        return newLoad.copy();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V loadAndCache(K key, Function<? super K, ? extends V> loader, boolean propagateWrite) {
+        // a previous load may have completed between the miss and registering this one
+        Object cachedValue = peek(key);
+        if (cachedValue != null && cachedValue != ABSENT) {
+            return (V) cachedValue;
+        }
+        if (!propagateWrite && cachedValue == ABSENT) {
+            return null;
+        }
+        V promotedValue = promote(key);
+        if (promotedValue != null) {
+            return promotedValue;
+        }
+        if (!propagateWrite && !mightBeInDataStore(key)) {
+            return null;
+        }
+        long startTime = startTimer();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            recordLoad(startTime, false);
+            throw e;
+        }
+        recordLoad(startTime, value != null);
+        if (value == null) {
+            if (!propagateWrite) {
+                cacheAbsent(key);
+            }
+            return null;
+        }
+        int weight = weigh(key, value);
+        if (propagateWrite) {
+            addToKeyFilter(key);
+            writePropagationPolicy.write(key, value, dataStore);
+        }
+        return cacheLoadedValue(key, value, weight);
     }
 
     /**
-     * Refresh cache items runnable as per the {@link RefreshPolicy} implementation
-     * @return Runnable
+     * Read keys from the datastore in one bulk call, recorded as a single load.
      */
-    @Override
-    public Runnable getAutoRefreshRunnable() {
-        return () -> cache.keySet().forEach(this::updateCacheValue);
+    private Map<K, V> loadBatch(List<K> keys) {
+        long startTime = startTimer();
+        try {
+            Map<K, V> loaded = dataStore.getAll(keys);
+            recordLoad(startTime, !loaded.isEmpty());
+            return loaded;
+        } catch (RuntimeException e) {
+            recordLoad(startTime, false);
+            throw e;
+        }
     }
 
     /**
-     * Update cache item with newValue retrieved from the {@link DataStore} implementation
+     * Get the cached value for key without recording the access.
      * @param key
+     * @return the cached value, {@link #ABSENT} for a tombstone or null
      */
-    @Override
-    public void updateCacheValue(K key) {
-        V newValue = dataStore.get(key);
-        if (newValue != null) {
-            cache.compute(key, (k, existingEntry) -> new CacheEntry<>(newValue));
+    private Object peek(K key) {
+        CacheEntry<V> entry = getIfUnexpired(key, ticker.read());
+        if (entry instanceof TombstoneEntry) {
+            return ABSENT;
         }
+        return entry == null ? null : entry.getValue();
     }
 
-    public int getSize() {
-        return cache.size();
+    private boolean mightBeInDataStore(K key) {
+        return keyFilter == null || keyFilter.mightContain(key);
+    }
+
+    private void addToKeyFilter(K key) {
+        if (keyFilter != null) {
+            keyFilter.put(key);
+        }
+    }
+
+    /**
+     * Cache a tombstone for a key the datastore has no value for, unless negative caching is
+     * disabled or a concurrent write cached the key first. A tombstone has weight 1.
+     * @param key
+     */
+    private void cacheAbsent(K key) {
+        if (negativeCacheTtlMillis <= 0) {
+            return;
+        }
+        TombstoneEntry<V> tombstone = new TombstoneEntry<>(negativeCacheTtlMillis, ticker.read());
+        CacheEntry<V> cachedEntry = cache.computeIfAbsent(key, k -> {
+            scheduleExpiration(k, tombstone);
+            return tombstone;
+        });
+        if (cachedEntry == tombstone) {
+            afterWrite(key, 1);
+        }
+    }
+
+    /**
+     * Cache a value loaded for key unless a concurrent put cached one first, replacing a tombstone.
+     * @param key
+     * @param value
+     * @param weight
+     * @return the cached value for key
+     */
+    private V cacheLoadedValue(K key, V value, int weight) {
+        long now = ticker.read();
+        CacheEntry<V> newEntry = newEntry(value, now);
+        if (newEntry == null) {
+            return value;
+        }
+        expirationPolicy.updateAccessTimeForWrite(newEntry, now);
+        newEntry.setExpirationTime(writeExpirationTime(key, value, null, NO_TTL, now));
+        return cacheLoadedEntry(key, value, newEntry, weight);
+    }
+
+    private V cacheLoadedEntry(K key, V value, CacheEntry<V> newEntry, int weight) {
+        // keep a value written by a concurrent put over the loaded one
+        CacheEntry<V> cachedEntry = cache.compute(key, (k, existingEntry) -> {
+            if (existingEntry != null && !(existingEntry instanceof TombstoneEntry)) {
+                return existingEntry;
+            }
+            scheduleExpiration(k, newEntry);
+            return newEntry;
+        });
+        if (cachedEntry != newEntry) {
+            newEntry.release();
+            V cachedValue = cachedEntry.getValue();
+            return cachedValue != null ? cachedValue : value;
+        }
+        afterWrite(key, weight);
+        return value;
+    }
+
+    /**
+     * Move the entry for key from the lower tier into this cache, keeping its creation and access
+     * times so it expires as if it had never left. Not recorded as a load, the datastore is not read.
+     * @param key
+     * @return the promoted value, or null if the lower tier has no live entry for key
+     */
+    V promote(K key) {
+        if (lowerTier == null) {
+            return null;
+        }
+        CacheEntry<V> lowerEntry = lowerTier.take(key);
+        if (lowerEntry == null) {
+            return null;
+        }
+        V value = lowerEntry.getValue();
+        CacheEntry<V> newEntry = copyEntry(lowerEntry, value);
+        if (newEntry == null) {
+            return value;
+        }
+        expirationPolicy.updateAccessTimeForRead(newEntry, ticker.read());
+        return cacheLoadedEntry(key, value, newEntry, weigh(key, value));
+    }
+
+    /**
+     * Remove the live entry for key for the upper tier to promote, tombstones and expired
+     * entries are left to expire. Recorded as a hit or a miss of this tier.
+     * @param key
+     * @return detached on-heap copy of the entry, or null
+     */
+    private CacheEntry<V> take(K key) {
+        long now = ticker.read();
+        List<CacheEntry<V>> taken = new ArrayList<>(1);
+        cache.computeIfPresent(key, (k, existingEntry) -> {
+            if (existingEntry instanceof TombstoneEntry || isExpired(existingEntry, now)) {
+                return existingEntry;
+            }
+            V value = existingEntry.getValue();
+            if (value == null) {
+                return existingEntry;
+            }
+            taken.add(detach(existingEntry, value));
+            segmentFor(k).timerWheel.deschedule(k);
+            existingEntry.release();
+            return null;
+        });
+        if (taken.isEmpty()) {
+            statsCounter.recordMisses(1);
+            return null;
+        }
+        statsCounter.recordHits(1);
+        afterRemoval(key);
+        return taken.get(0);
+    }
+
+    /**
+     * Store an entry evicted from the upper tier, keeping its creation and access times.
+     * Replaces the entry cached for key, the upper tier held the newer value. Skipped once the
+     * upper tier wrote or removed key since the eviction, checked under the lock of key so a
+     * write to this tier that follows the upper tier's write always wins.
+     * @param key
+     * @param evictedEntry detached on-heap copy of the evicted entry
+     * @param upperTier tier the entry was evicted from
+     */
+    private void demote(K key, CacheEntry<V> evictedEntry, InMemoryCache<K, V> upperTier) {
+        if (isExpired(evictedEntry, ticker.read())) {
+            return;
+        }
+        V value = evictedEntry.getValue();
+        CacheEntry<V> newEntry = copyEntry(evictedEntry, value);
+        boolean[] applied = new boolean[1];
+        cache.compute(key, (k, existingEntry) -> {
+            if (upperTier.inFlightDemotions.get(k) != evictedEntry) {
+                return existingEntry;
+            }
+            applied[0] = true;
+            if (existingEntry != null) {
+                existingEntry.release();
+            }
+            if (newEntry == null) {
+                segmentFor(k).timerWheel.deschedule(k);
+                return null;
+            }
+            scheduleExpiration(k, newEntry);
+            return newEntry;
+        });
+        if (!applied[0]) {
+            if (newEntry != null) {
+                newEntry.release();
+            }
+        } else if (newEntry == null) {
+            afterRemoval(key);
+        } else {
+            afterWrite(key, weigh(key, value));
+        }
+    }
+
+    /**
+     * Hand the entries evicted from this tier to the lower tier, outside of any segment lock.
+     * @param demotions
+     */
+    private void demoteAll(Map<K, CacheEntry<V>> demotions) {
+        demotions.forEach((key, evictedEntry) -> {
+            try {
+                lowerTier.demote(key, evictedEntry, this);
+            } finally {
+                inFlightDemotions.remove(key, evictedEntry);
+            }
+        });
+    }
+
+    /**
+     * Entry of this cache's {@link StorageMode} holding value with the times of entry.
+     * @return entry, entry itself when stored on heap, or null if the value could not be stored
+     */
+    private CacheEntry<V> copyEntry(CacheEntry<V> entry, V value) {
+        if (valueStore == null) {
+            return entry;
+        }
+        CacheEntry<V> newEntry = storeEntry(value, entry.getCreationTime());
+        if (newEntry != null) {
+            newEntry.updateLastAccessTime(entry.getLastAccessTime());
+            newEntry.setExpirationTime(entry.getExpirationTime());
+            newEntry.setVersion(entry.getVersion());
+        }
+        return newEntry;
+    }
+
+    /**
+     * Create the entry holding value as per the {@link StorageMode}.
+     * @param value
+     * @param now
+     * @return entry, or null if the value could not be stored
+     */
+    private CacheEntry<V> newEntry(V value, long now) {
+        return valueStore == null ? new CacheEntry<>(value, now) : storeEntry(value, now);
+    }
+
+    /**
+     * Store value in the {@link ValueStore}, evicting the coldest entries while it has no room for it.
+     * A value too large for the store, or not fitting once the cache is empty, is recorded as a
+     * rejected write.
+     * @param value
+     * @param now
+     * @return entry, or null if the value could not be stored
+     */
+    private CacheEntry<V> storeEntry(V value, long now) {
+        try {
+            CacheEntry<V> entry;
+            while ((entry = valueStore.newEntry(value, now)) == null) {
+                if (!evictForSpace()) {
+                    statsCounter.recordRejectedWrite();
+                    return null;
+                }
+            }
+            return entry;
+        } catch (IllegalArgumentException e) {
+            statsCounter.recordRejectedWrite();
+            return null;
+        }
+    }
+
+    /**
+     * Store newEntry for key and release the entry it replaces. A null newEntry, a rejected write,
+     * removes the existing entry, so a value that could not be stored never leaves a stale one behind.
+     * @param key
+     * @param newEntry
+     * @param weight
+     */
+    private void writeEntry(K key, CacheEntry<V> newEntry, int weight) {
+        cache.compute(key, (k, existingEntry) -> {
+            if (existingEntry != null) {
+                existingEntry.release();
+            }
+            if (newEntry == null) {
+                segmentFor(k).timerWheel.deschedule(k);
+                return null;
+            }
+            scheduleExpiration(k, newEntry);
+            return newEntry;
+        });
+        if (newEntry == null) {
+            afterRemoval(key);
+        } else {
+            afterWrite(key, weight);
+        }
+    }
+
+    /**
+     * Get the cached entry for key, an entry past its expiration time is removed
+     * and treated as a miss even if the scheduled cleanup has not run yet.
+     * @param key
+     * @param now
+     * @return entry or null
+     */
+    private CacheEntry<V> getIfUnexpired(K key, long now) {
+        CacheEntry<V> entry = cache.get(key);
+        if (entry != null && isExpired(entry, now)) {
+            expireEntry(key, entry, now);
+            return null;
+        }
+        return entry;
+    }
+
+    private boolean isExpired(CacheEntry<V> entry, long now) {
+        long expirationTime = entry.getExpirationTime();
+        return expirationTime != CacheEntry.UNSET_EXPIRATION_TIME
+                ? now > expirationTime
+                : expirationPolicy.isExpired(entry, now);
+    }
+
+    /**
+     * Expiration time of entry, its own or as per the {@link ExpirationPolicy}.
+     */
+    private long expirationTime(CacheEntry<V> entry) {
+        long expirationTime = entry.getExpirationTime();
+        return expirationTime != CacheEntry.UNSET_EXPIRATION_TIME
+                ? expirationTime
+                : expirationPolicy.getExpirationTime(entry);
+    }
+
+    /**
+     * Remove entry for key if it is still cached and expired. An in-place write may have renewed
+     * the entry since it was found expired, the expiration is checked again under the map lock.
+     * @param key
+     * @param entry
+     * @param now
+     */
+    private void expireEntry(K key, CacheEntry<V> entry, long now) {
+        boolean[] removed = new boolean[1];
+        cache.computeIfPresent(key, (k, existingEntry) -> {
+            if (existingEntry != entry || !isExpired(existingEntry, now)) {
+                return existingEntry;
+            }
+            segmentFor(k).timerWheel.deschedule(k);
+            existingEntry.release();
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            afterRemoval(key);
+            statsCounter.recordExpiration();
+        }
+    }
+
+    private void scheduleExpiration(K key, CacheEntry<V> entry) {
+        segmentFor(key).timerWheel.schedule(key, expirationTime(entry));
+    }
+
+    /**
+     * Remove the entry for key.
+     * @param key
+     */
+    private void removeEntry(K key) {
+        boolean[] removed = new boolean[1];
+        cache.computeIfPresent(key, (k, existingEntry) -> {
+            segmentFor(k).timerWheel.deschedule(k);
+            existingEntry.release();
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            afterRemoval(key);
+        }
+    }
+
+    /**
+     * Record the read with the {@link EvictionPolicy}. Reads are buffered and replayed when
+     * the eviction lock is free, so readers never wait on it.
+     * @param key
+     */
+    private void afterRead(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        if (segment.readBuffer.offer(key) && segment.lock.tryLock()) {
+            try {
+                segment.readBuffer.drainTo(segment.policy::recordAccess);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null) {
+            return 1;
+        }
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative.");
+        }
+        return weight;
+    }
+
+    /**
+     * Record the write with the {@link EvictionPolicy} of the key's segment and evict entries until
+     * the segment is back within its share of the maximum capacity or weight. The map is updated
+     * before the policy, so whether key is still mapped is checked under the segment lock: a write
+     * overtaken by a removal of key is not recorded, the policy only tracks mapped keys.
+     * @param key
+     * @param weight
+     */
+    private void afterWrite(K key, int weight) {
+        if (inFlightDemotions != null) {
+            inFlightDemotions.remove(key);
+        }
+        Segment<K, V> segment = segmentFor(key);
+        Map<K, CacheEntry<V>> demotions;
+        segment.lock.lock();
+        try {
+            segment.readBuffer.drainTo(segment.policy::recordAccess);
+            if (cache.containsKey(key)) {
+                segment.policy.recordWrite(key, weight);
+            }
+            demotions = evict(segment);
+        } finally {
+            segment.lock.unlock();
+        }
+        if (demotions != null) {
+            demoteAll(demotions);
+        }
+    }
+
+    /**
+     * Evict the entries of segment its policy selects, called with the segment lock held.
+     * @param segment
+     * @return entries to demote once the lock is released, or null
+     */
+    private Map<K, CacheEntry<V>> evict(Segment<K, V> segment) {
+        K victim;
+        while ((victim = segment.policy.evict()) != null) {
+            evictEntry(segment, victim);
+        }
+        return takeDemotions(segment);
+    }
+
+    /**
+     * Evict the coldest entry of a segment, starting from a random one, when the {@link ValueStore}
+     * has no room for a value.
+     * @return false if every segment is empty
+     */
+    private boolean evictForSpace() {
+        int start = ThreadLocalRandom.current().nextInt(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            Segment<K, V> segment = segments[(start + i) % segments.length];
+            Map<K, CacheEntry<V>> demotions;
+            segment.lock.lock();
+            try {
+                segment.readBuffer.drainTo(segment.policy::recordAccess);
+                K victim = segment.policy.evictColdest();
+                if (victim == null) {
+                    continue;
+                }
+                evictEntry(segment, victim);
+                demotions = takeDemotions(segment);
+            } finally {
+                segment.lock.unlock();
+            }
+            if (demotions != null) {
+                demoteAll(demotions);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove the entry of a key its segment's policy evicted, called with the segment lock held.
+     * @param segment
+     * @param victim
+     */
+    private void evictEntry(Segment<K, V> segment, K victim) {
+        boolean[] evicted = new boolean[1];
+        cache.computeIfPresent(victim, (k, evictedEntry) -> {
+            segment.timerWheel.deschedule(k);
+            if (lowerTier != null && !(evictedEntry instanceof TombstoneEntry)) {
+                detachForDemotion(segment, k, evictedEntry);
+            }
+            evictedEntry.release();
+            evicted[0] = true;
+            return null;
+        });
+        if (evicted[0]) {
+            segment.evictions++;
+            statsCounter.recordEviction();
+        }
+    }
+
+    private Map<K, CacheEntry<V>> takeDemotions(Segment<K, V> segment) {
+        if (segment.pendingDemotions.isEmpty()) {
+            return null;
+        }
+        Map<K, CacheEntry<V>> demotions = new LinkedHashMap<>(segment.pendingDemotions);
+        segment.pendingDemotions.clear();
+        return demotions;
+    }
+
+    /**
+     * Keep an on-heap copy of an entry being evicted, to demote once the segment lock is released.
+     * @param segment
+     * @param key
+     * @param evictedEntry
+     */
+    private void detachForDemotion(Segment<K, V> segment, K key, CacheEntry<V> evictedEntry) {
+        V value = evictedEntry.getValue();
+        if (value == null) {
+            return;
+        }
+        CacheEntry<V> detached = detach(evictedEntry, value);
+        segment.pendingDemotions.put(key, detached);
+        inFlightDemotions.put(key, detached);
+    }
+
+    /**
+     * Move the share of the maximum towards the segments under the most pressure, their weighted
+     * size plus their evictions since the last rebalance. Every segment keeps at least half of an
+     * even share, the shares add up to the maximum.
+     */
+    void rebalanceSegments() {
+        long[] demand = new long[segments.length];
+        long totalDemand = 0;
+        for (int i = 0; i < segments.length; i++) {
+            Segment<K, V> segment = segments[i];
+            segment.lock.lock();
+            try {
+                demand[i] = segment.policy.weightedSize() + segment.evictions;
+                segment.evictions = 0;
+            } finally {
+                segment.lock.unlock();
+            }
+            totalDemand += demand[i];
+        }
+        if (totalDemand == 0) {
+            return;
+        }
+        long floor = maximum / segments.length / 2;
+        long distributed = maximum - floor * segments.length;
+        long remaining = maximum;
+        for (int i = 0; i < segments.length; i++) {
+            long share = i == segments.length - 1
+                    ? remaining
+                    : floor + (long) ((double) distributed * demand[i] / totalDemand);
+            remaining -= share;
+            Segment<K, V> segment = segments[i];
+            Map<K, CacheEntry<V>> demotions;
+            segment.lock.lock();
+            try {
+                segment.policy.setMaximum(share);
+                segment.maximum = share;
+                demotions = evict(segment);
+                // evictions forced by the shrink are not demand
+                segment.evictions = 0;
+            } finally {
+                segment.lock.unlock();
+            }
+            if (demotions != null) {
+                demoteAll(demotions);
+            }
+        }
+    }
+
+    private static <V> CacheEntry<V> detach(CacheEntry<V> entry, V value) {
+        CacheEntry<V> detached = new CacheEntry<>(value, entry.getCreationTime());
+        detached.updateLastAccessTime(entry.getLastAccessTime());
+        detached.setExpirationTime(entry.getExpirationTime());
+        detached.setVersion(entry.getVersion());
+        return detached;
+    }
+
+    private void afterRemoval(K key) {
+        if (inFlightDemotions != null) {
+            inFlightDemotions.remove(key);
+        }
+        Segment<K, V> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            // a removal overtaken by a new write of key leaves the write recorded
+            if (!cache.containsKey(key)) {
+                segment.policy.recordRemoval(key);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    static <V> V awaitLoad(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        removeEntry(key);
+    }
+
+    /**
+     * Expire cache items runnable as per the {@link ExpirationPolicy} implementation.
+     * Advances the {@link TimerWheel} and only checks the keys that came due, keys whose
+     * expiration time moved since they were scheduled (e.g. on read) are scheduled again.
+     * @return Runnable
+     */
+    @Override
+    public Runnable getAutoExpirationRunnable() {
+        return () -> {
+            long now = ticker.read();
+            for (Segment<K, V> segment : segments) {
+                for (K key : segment.timerWheel.advance(now)) {
+                    CacheEntry<V> entry = cache.get(key);
+                    if (entry == null) {
+                        continue;
+                    }
+                    if (isExpired(entry, now)) {
+                        expireEntry(key, entry, now);
+                    } else {
+                        scheduleExpiration(key, entry);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Apply a batch of datastore changes to the cached entries, keys that are not cached are ignored.
+     * An update replaces the cached value in place unless it is equal, a removal or an invalidation
+     * removes the entry. A tombstone of an updated key is removed so the next read loads the value.
+     * A change no newer than the version of the cached entry is dropped, the entry already reflects it.
+     * @param changes
+     */
+    private void applyChanges(List<ChangeEvent<K, V>> changes) {
+        for (ChangeEvent<K, V> change : changes) {
+            K key = change.key();
+            boolean updated = change.type() == ChangeEvent.Type.UPDATED;
+            if (updated) {
+                addToKeyFilter(key);
+            }
+            CacheEntry<V> entry = cache.get(key);
+            // the cached value was written or read after the change
+            if (entry == null || change.version() <= entry.getVersion()) {
+                continue;
+            }
+            if (!updated || entry instanceof TombstoneEntry) {
+                removeEntry(key);
+                continue;
+            }
+            V value = entry.getValue();
+            // a released entry was replaced by a concurrent write
+            if (value != null && !value.equals(change.value())) {
+                replaceEntry(key, entry, value, change.value(), change.version());
+            }
+        }
+    }
+
+    /**
+     * Refresh cache items runnable as per the {@link RefreshPolicy} implementation
+     * @return Runnable
+     */
+    @Override
+    public Runnable getAutoRefreshRunnable() {
+        return () -> updateCacheValues(List.copyOf(cache.keySet()));
+    }
+
+    /**
+     * Update cache item with newValue retrieved from the {@link DataStore} implementation
+     * @param key
+     */
+    @Override
+    public void updateCacheValue(K key) {
+        long startTime = startTimer();
+        long version = changeVersion();
+        V newValue;
+        try {
+            newValue = dataStore.get(key);
+        } catch (RuntimeException e) {
+            recordRefresh(startTime, false);
+            throw e;
+        }
+        recordRefresh(startTime, newValue != null);
+        if (newValue != null) {
+            putEntry(key, newValue, weigh(key, newValue), KEEP_TTL, version);
+        }
+    }
+
+    /**
+     * Update cache items with newValues retrieved from the {@link DataStore} in bulk reads
+     * of up to {@value #REFRESH_BATCH_SIZE} keys.
+     * @param keys
+     */
+    @Override
+    public void updateCacheValues(Collection<K> keys) {
+        List<K> batch = new ArrayList<>(Math.min(keys.size(), REFRESH_BATCH_SIZE));
+        for (K key : keys) {
+            batch.add(key);
+            if (batch.size() == REFRESH_BATCH_SIZE) {
+                refreshBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            refreshBatch(batch);
+        }
+    }
+
+    private void refreshBatch(List<K> keys) {
+        long startTime = startTimer();
+        long version = changeVersion();
+        Map<K, V> newValues;
+        try {
+            newValues = dataStore.getAll(keys);
+        } catch (RuntimeException e) {
+            recordRefresh(startTime, false);
+            throw e;
+        }
+        recordRefresh(startTime, true);
+        newValues.forEach((key, newValue) -> putEntry(key, newValue, weigh(key, newValue), KEEP_TTL, version));
+    }
+
+    /**
+     * Version of the latest change of the datastore, read before a value is written or read so
+     * the changes it already reflects are not applied over it.
+     * @return version, 0 unless subscribed to the changes of the datastore
+     */
+    private long changeVersion() {
+        return changeSubscription == null ? 0L : ((ObservableDataStore<K, V>) dataStore).version();
+    }
+
+    private long startTimer() {
+        return recordStats ? System.nanoTime() : 0L;
+    }
+
+    private void recordLoad(long startTime, boolean success) {
+        if (!recordStats) {
+            return;
+        }
+        long loadTime = System.nanoTime() - startTime;
+        if (success) {
+            statsCounter.recordLoadSuccess(loadTime);
+        } else {
+            statsCounter.recordLoadFailure(loadTime);
+        }
+    }
+
+    private void recordRefresh(long startTime, boolean success) {
+        if (!recordStats) {
+            return;
+        }
+        long refreshTime = System.nanoTime() - startTime;
+        if (success) {
+            statsCounter.recordRefreshSuccess(refreshTime);
+        } else {
+            statsCounter.recordRefreshFailure(refreshTime);
+        }
+    }
+
+    /**
+     * Cancel the scheduled tasks of this cache, flush the writes buffered by its {@link WritePropagationPolicy},
+     * write its snapshot if configured, shut down the executors it owns and delete the file of
+     * {@link StorageMode#FILE} storage. Executors passed through {@link CacheConfiguration} are left running.
+     */
+    @Override
+    public void close() {
+        scheduler.close();
+        try {
+            writePropagationPolicy.close();
+            if (snapshotPath != null) {
+                writeSnapshotIfWarm();
+            }
+        } finally {
+            if (metricsBinder != null) {
+                metricsBinder.unbind();
+            }
+            if (ownedLoaderExecutor != null) {
+                ownedLoaderExecutor.shutdown();
+            }
+            if (changeSubscription != null) {
+                changeSubscription.close();
+            }
+            if (valueStore != null) {
+                valueStore.close();
+            }
+        }
+    }
+
+    /**
+     * Scheduler running the maintenance tasks of this cache, exposes queue depth and task delay.
+     * @return CacheScheduler
+     */
+    public CacheScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Snapshot of the statistics of this cache, empty unless recordStats is configured.
+     * @return CacheStats
+     */
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    public WritePropagationPolicy<K, V> getWritePropagationPolicy() {
+        return writePropagationPolicy;
+    }
+
+    @Override
+    public Executor getLoaderExecutor() {
+        return loaderExecutor;
+    }
+
+    @Override
+    public Set<K> getKeys() {
+        return Collections.unmodifiableSet(cache.keySet());
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Bytes of off-heap memory held by cached values, 0 when values are stored on heap.
+     * @return off-heap bytes in use
+     */
+    public long getOffHeapUsedBytes() {
+        return valueStore instanceof OffHeapStore<V> offHeapStore ? offHeapStore.getUsedBytes() : 0L;
+    }
+
+    /**
+     * Store of the values unless they are held as objects on heap, exposes compression stats.
+     * @return ValueStore, or null
+     */
+    public ValueStore<V> getValueStore() {
+        return valueStore;
+    }
+
+    /**
+     * Total weight of the cached entries as per the {@link Weigher}, the entry count without one.
+     * @return weighted size
+     */
+    public long getWeightedSize() {
+        long weightedSize = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                weightedSize += segment.policy.weightedSize();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return weightedSize;
+    }
+
+    /**
+     * Share of the maximum capacity or weight of each segment, they change when segments are rebalanced.
+     * @return maximum per segment
+     */
+    public long[] getSegmentMaximums() {
+        long[] maximums = new long[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i].lock.lock();
+            try {
+                maximums[i] = segments[i].maximum;
+            } finally {
+                segments[i].lock.unlock();
+            }
+        }
+        return maximums;
+    }
+
+    /**
+     * Keys hashed to one segment share its {@link EvictionPolicy}, eviction lock, read buffer and
+     * {@link TimerWheel}, writes to keys of different segments do not contend on them.
+     */
+    private static final class Segment<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ReadBuffer<K> readBuffer = new ReadBuffer<>();
+        private final EvictionPolicy<K> policy;
+        private final TimerWheel<K> timerWheel;
+        // entries evicted for the lower tier, guarded by lock and demoted after releasing it
+        private final Map<K, CacheEntry<V>> pendingDemotions = new LinkedHashMap<>();
+        // guarded by lock
+        private long maximum;
+        private long evictions;
+
+        private Segment(EvictionPolicy<K> policy, TimerWheel<K> timerWheel, long maximum) {
+            this.policy = policy;
+            this.timerWheel = timerWheel;
+            this.maximum = maximum;
+        }
     }
 }
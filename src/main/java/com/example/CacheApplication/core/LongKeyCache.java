@@ -0,0 +1,713 @@
+package com.example.CacheApplication.core;
+
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.LongDataStore;
+import com.example.CacheApplication.expiration.ExpirationPolicy;
+import com.example.CacheApplication.refreshpolicy.RefreshPolicy;
+import com.example.CacheApplication.storage.StorageMode;
+import com.example.CacheApplication.util.CacheScheduler;
+import com.example.CacheApplication.util.Ticker;
+import com.example.CacheApplication.writepolicy.WritePropagationPolicy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Cache keyed by primitive longs. Entries live in open addressed primitive arrays - key, value,
+ * write time, access time and a CLOCK reference bit per slot - split over up to
+ * {@value #MAXIMUM_SEGMENTS} segments, each guarded by a {@link StampedLock}. A hit reads the
+ * slot optimistically and allocates nothing, an entry takes about 40 to 80 bytes of table
+ * against a few hundred as an {@link InMemoryCache} entry.
+ * Uses the same {@link CacheConfiguration} as {@link InMemoryCache} -
+ *  maxCapacity limit with CLOCK eviction per segment, each segment holding its share of the capacity
+ *  {@link ExpirationPolicy} applied to the write and access times of a slot, expired entries are
+ *  misses on read and removed by an incremental sweep of the tables
+ *  {@link LongDataStore} backing the cache for cache miss, load during creation and refresh,
+ *  a plain {@link DataStore} is adapted with {@link LongDataStore#of}
+ *  {@link WritePropagationPolicy} and {@link RefreshPolicy} as for {@link InMemoryCache}
+ *  Single-flight loading on a miss
+ * A weigher, the eviction policy factory, off-heap storage, negative caching and stats are not supported.
+ * @param <V>
+ */
+@Slf4j
+public class LongKeyCache<V> implements Cache<Long, V>, RefreshableCache<Long, V>, ExpirableCache, AutoCloseable {
+    private static final int REFRESH_BATCH_SIZE = 512;
+    private static final int MAXIMUM_SEGMENTS = 16;
+    private static final int MINIMUM_SEGMENT_CAPACITY = 64;
+    private static final double LOAD_FACTOR = 0.75;
+    // slots checked for expired entries per cleanup run
+    private static final int EXPIRATION_SWEEP_SLOTS = 1 << 14;
+    // access times and reference bits are written by readers, outside of the write lock
+    private static final VarHandle LONG_ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle BYTE_ARRAY = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+    private final LongDataStore<V> dataStore;
+    private final ExpirationPolicy<Long, V> expirationPolicy;
+    private final WritePropagationPolicy<Long, V> writePropagationPolicy;
+    private final RefreshPolicy<Long, V> refreshPolicy;
+    private final boolean accessTimeUpdatedOnRead;
+    private final Ticker ticker;
+    private final Map<Long, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+    private final Set<Long> inFlightRefreshes = ConcurrentHashMap.newKeySet();
+    private final Set<Long> keySet = new KeySet();
+    private final CacheScheduler scheduler;
+    private final Executor loaderExecutor;
+    // created by the cache when no loader executor is configured, shut down on close
+    private final ExecutorService ownedLoaderExecutor;
+    // position of the expiration sweep, guarded by the sweep
+    private int sweepSegment;
+    private int sweepSlot;
+
+    /**
+     * Constructor for LongKeyCache with {@link CacheConfiguration} as param.
+     * Setup scheduled tasks and load the cache from datastore as defined.
+     * @param config
+     */
+    @SuppressWarnings("unchecked")
+    public LongKeyCache(CacheConfiguration<Long, V> config) {
+        if (config.getWeigher() != null || config.getStorageMode() != StorageMode.ON_HEAP) {
+            throw new IllegalArgumentException("Long key cache does not support weighers or off-heap storage.");
+        }
+        this.expirationPolicy = config.getExpirationPolicy();
+        this.writePropagationPolicy = config.getWritePropagationPolicy();
+        this.refreshPolicy = config.getRefreshPolicy();
+        this.accessTimeUpdatedOnRead = expirationPolicy.isAccessTimeUpdatedOnRead();
+        this.ticker = config.getTicker();
+        this.dataStore = LongDataStore.of(config.getDataStore());
+
+        int maxCapacity = config.getMaxCapacity();
+        int segmentCount = Math.min(MAXIMUM_SEGMENTS,
+                Integer.highestOneBit(Math.max(1, maxCapacity / MINIMUM_SEGMENT_CAPACITY)));
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(maxCapacity / segmentCount + (i < maxCapacity % segmentCount ? 1 : 0));
+        }
+
+        this.scheduler = config.getMaintenanceExecutor() == null
+                ? new CacheScheduler()
+                : new CacheScheduler(config.getMaintenanceExecutor());
+        this.ownedLoaderExecutor = config.getLoaderExecutor() == null
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : null;
+        this.loaderExecutor = ownedLoaderExecutor != null ? ownedLoaderExecutor : config.getLoaderExecutor();
+
+        // setup scheduled policy tasks - expiration, writePropagation, refresh
+        expirationPolicy.scheduleAutoCleanup(this, scheduler);
+        writePropagationPolicy.scheduleWrite(scheduler);
+        refreshPolicy.scheduleAutoRefresh(this, scheduler);
+
+        // load cache from data store
+        if (config.isAsyncLoad()) {
+            loaderExecutor.execute(() -> this.loadCacheFromDataStore(maxCapacity));
+        } else {
+            loadCacheFromDataStore(maxCapacity);
+        }
+    }
+
+    private void loadCacheFromDataStore(int maxCapacity) {
+        List<Long> keys = new ArrayList<>();
+        dataStore.getTopKeys(maxCapacity).forEach(keys::add);
+        if (!keys.isEmpty()) {
+            dataStore.getAll(keys).forEach(this::cacheLoadedValue);
+        }
+    }
+
+    /**
+     * Write entry to cache and propagate it to the datastore.
+     * @param key
+     * @param value
+     */
+    public void put(long key, V value) {
+        Objects.requireNonNull(value, "Value cannot be null.");
+        writePropagationPolicy.write(key, value, dataStore);
+        putEntry(key, value);
+    }
+
+    @Override
+    public void put(Long key, V value) {
+        put(key.longValue(), value);
+    }
+
+    /**
+     * Get value for key from cache. Retrieve from datastore if not present in cache
+     * @param key
+     * @return <V>
+     */
+    public V get(long key) {
+        V value = getIfPresent(key);
+        return value != null ? value : load(key, dataStore::get, false);
+    }
+
+    @Override
+    public V get(Long key) {
+        return get(key.longValue());
+    }
+
+    /**
+     * Get value for key from cache. Compute it with the loader if not present in cache,
+     * the computed value is propagated to the datastore as per the {@link WritePropagationPolicy}.
+     * @param key
+     * @param loader
+     * @return <V>
+     */
+    public V get(long key, LongFunction<? extends V> loader) {
+        Objects.requireNonNull(loader, "Loader cannot be null.");
+        V value = getIfPresent(key);
+        return value != null ? value : load(key, loader, true);
+    }
+
+    @Override
+    public V get(Long key, Function<? super Long, ? extends V> loader) {
+        Objects.requireNonNull(loader, "Loader cannot be null.");
+        return get(key.longValue(), loader::apply);
+    }
+
+    /**
+     * Get value for key from cache and record the access, without loading it on a miss.
+     * @param key
+     * @return <V> or null
+     */
+    public V getIfPresent(long key) {
+        return read(key, true);
+    }
+
+    public void remove(long key) {
+        long hash = spread(key);
+        Segment<V> segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.indexOf(key, (int) hash);
+            if (index >= 0) {
+                segment.removeAt(index);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void remove(Long key) {
+        remove(key.longValue());
+    }
+
+    /**
+     * Read the slot of key optimistically, under the read lock if a writer got in the way or the
+     * access time has to be updated. Readers share the read lock, so the access time and the
+     * reference bit are written with opaque access: concurrent hits keep one of their times, and a
+     * reference bit set while a failed optimistic read races a writer at worst gives another entry
+     * a second chance. Eviction and expiration treat both as approximate.
+     * @param key
+     * @param recordAccess mark the entry referenced, update its access time and refresh it if stale
+     * @return <V> or null if absent or expired
+     */
+    @SuppressWarnings("unchecked")
+    private V read(long key, boolean recordAccess) {
+        long hash = spread(key);
+        Segment<V> segment = segmentFor(hash);
+        long now = ticker.read();
+        boolean updateAccessTime = recordAccess && accessTimeUpdatedOnRead;
+        long stamp = updateAccessTime ? segment.lock.readLock() : segment.lock.tryOptimisticRead();
+        int index;
+        Object value;
+        long writeTime;
+        boolean expired;
+        for (;;) {
+            index = segment.indexOf(key, (int) hash);
+            value = index < 0 ? null : segment.values[index];
+            writeTime = index < 0 ? 0L : segment.writeTimes[index];
+            long accessTime = index < 0 ? 0L : (long) LONG_ARRAY.getOpaque(segment.accessTimes, index);
+            if (recordAccess && value != null) {
+                // set before validating, so a validated read marked the slot still holding key
+                BYTE_ARRAY.setOpaque(segment.referenced, index, (byte) 1);
+            }
+            if (segment.lock.validate(stamp)) {
+                expired = value != null && now > expirationPolicy.getExpirationTime(writeTime, accessTime);
+                if (updateAccessTime && value != null && !expired) {
+                    LONG_ARRAY.setOpaque(segment.accessTimes, index, now);
+                }
+                break;
+            }
+            stamp = segment.lock.readLock();
+        }
+        if (StampedLock.isReadLockStamp(stamp)) {
+            segment.lock.unlockRead(stamp);
+        }
+        if (value == null) {
+            return null;
+        }
+        if (expired) {
+            removeIfSame(key, value);
+            return null;
+        }
+        if (recordAccess && refreshPolicy.shouldRefreshOnRead(writeTime, now)) {
+            refreshAsync(key, value);
+        }
+        return (V) value;
+    }
+
+    private void putEntry(long key, V value) {
+        long hash = spread(key);
+        Segment<V> segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.put(key, (int) hash, value, ticker.read());
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Cache a value loaded for key unless a concurrent put cached one first.
+     * @param key
+     * @param value
+     * @return the cached value for key
+     */
+    @SuppressWarnings("unchecked")
+    private V cacheLoadedValue(long key, V value) {
+        long hash = spread(key);
+        Segment<V> segment = segmentFor(hash);
+        long now = ticker.read();
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.indexOf(key, (int) hash);
+            if (index >= 0 && now <= expirationPolicy.getExpirationTime(
+                    segment.writeTimes[index], segment.accessTimes[index])) {
+                return (V) segment.values[index];
+            }
+            segment.put(key, (int) hash, value, now);
+            return value;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replace the value of key with newValue only if expected is still the cached value.
+     */
+    private void replaceIfSame(long key, Object expected, V newValue) {
+        long hash = spread(key);
+        Segment<V> segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.indexOf(key, (int) hash);
+            if (index >= 0 && segment.values[index] == expected) {
+                segment.put(key, (int) hash, newValue, ticker.read());
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    private void removeIfSame(long key, Object expected) {
+        long hash = spread(key);
+        Segment<V> segment = segmentFor(hash);
+        long stamp = segment.lock.writeLock();
+        try {
+            int index = segment.indexOf(key, (int) hash);
+            if (index >= 0 && segment.values[index] == expected) {
+                segment.removeAt(index);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Load the value for a missing key. Only the first caller for a key runs the loader,
+     * other callers wait on the in-flight result instead of hitting the datastore again.
+     * @param key
+     * @param loader
+     * @param propagateWrite write the loaded value through the {@link WritePropagationPolicy}
+     * @return <V>
+     */
+    private V load(long key, LongFunction<? extends V> loader, boolean propagateWrite) {
+        CompletableFuture<V> newLoad = new CompletableFuture<>();
+        CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, newLoad);
+        if (inFlightLoad != null) {
+            return InMemoryCache.awaitLoad(inFlightLoad);
+        }
+        try {
+            V value = loadAndCache(key, loader, propagateWrite);
+            newLoad.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            newLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, newLoad);
+        }
+    }
+
+    private V loadAndCache(long key, LongFunction<? extends V> loader, boolean propagateWrite) {
+        // a previous load may have completed between the miss and registering this one
+        V cachedValue = read(key, false);
+        if (cachedValue != null) {
+            return cachedValue;
+        }
+        V value = loader.apply(key);
+        if (value == null) {
+            return null;
+        }
+        if (propagateWrite) {
+            writePropagationPolicy.write(key, value, dataStore);
+        }
+        return cacheLoadedValue(key, value);
+    }
+
+    /**
+     * Reload key from the datastore in the background, at most one reload per key runs at a time.
+     * The reloaded value only replaces expected if it is still the cached one. A failed or rejected
+     * reload keeps the current value, the read never fails because of it.
+     */
+    private void refreshAsync(long key, Object expected) {
+        if (!inFlightRefreshes.add(key)) {
+            return;
+        }
+        try {
+            loaderExecutor.execute(() -> {
+                try {
+                    V newValue = dataStore.get(key);
+                    if (newValue != null) {
+                        replaceIfSame(key, expected, newValue);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Failed to refresh key {}", key, e);
+                } finally {
+                    inFlightRefreshes.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // executor is saturated or shut down, serve the current value and reload on a later read
+            inFlightRefreshes.remove(key);
+        }
+    }
+
+    /**
+     * Expire cache items runnable as per the {@link ExpirationPolicy} implementation.
+     * Each run checks the next {@value #EXPIRATION_SWEEP_SLOTS} slots of the tables, taking the
+     * segment lock only to remove an expired entry.
+     * @return Runnable
+     */
+    @Override
+    public Runnable getAutoExpirationRunnable() {
+        return this::expireEntries;
+    }
+
+    private synchronized void expireEntries() {
+        long now = ticker.read();
+        int totalSlots = 0;
+        for (Segment<V> segment : segments) {
+            totalSlots += segment.values.length;
+        }
+        for (int remaining = Math.min(EXPIRATION_SWEEP_SLOTS, totalSlots); remaining > 0; remaining--) {
+            Segment<V> segment = segments[sweepSegment];
+            int index = sweepSlot;
+            if (segment.values[index] != null && now > expirationPolicy.getExpirationTime(
+                    segment.writeTimes[index], (long) LONG_ARRAY.getOpaque(segment.accessTimes, index))) {
+                long stamp = segment.lock.writeLock();
+                try {
+                    // removal shifts a later entry into the slot, it is checked on the next pass
+                    if (segment.values[index] != null && now > expirationPolicy.getExpirationTime(
+                            segment.writeTimes[index], segment.accessTimes[index])) {
+                        segment.removeAt(index);
+                    }
+                } finally {
+                    segment.lock.unlockWrite(stamp);
+                }
+            }
+            if (++sweepSlot == segment.values.length) {
+                sweepSlot = 0;
+                sweepSegment = (sweepSegment + 1) & segmentMask;
+            }
+        }
+    }
+
+    /**
+     * Refresh cache items runnable as per the {@link RefreshPolicy} implementation
+     * @return Runnable
+     */
+    @Override
+    public Runnable getAutoRefreshRunnable() {
+        return () -> updateCacheValues(List.copyOf(keySet));
+    }
+
+    /**
+     * Update cache item with newValue retrieved from the {@link LongDataStore}
+     * @param key
+     */
+    @Override
+    public void updateCacheValue(Long key) {
+        V newValue = dataStore.get(key.longValue());
+        if (newValue != null) {
+            putEntry(key, newValue);
+        }
+    }
+
+    /**
+     * Update cache items with newValues retrieved from the {@link LongDataStore} in bulk reads
+     * of up to {@value #REFRESH_BATCH_SIZE} keys.
+     * @param keys
+     */
+    @Override
+    public void updateCacheValues(Collection<Long> keys) {
+        List<Long> batch = new ArrayList<>(Math.min(keys.size(), REFRESH_BATCH_SIZE));
+        for (Long key : keys) {
+            batch.add(key);
+            if (batch.size() == REFRESH_BATCH_SIZE) {
+                dataStore.getAll(batch).forEach(this::putEntry);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            dataStore.getAll(batch).forEach(this::putEntry);
+        }
+    }
+
+    /**
+     * Cancel the scheduled tasks of this cache, flush the writes buffered by its {@link WritePropagationPolicy}
+     * and shut down the executors it owns.
+     */
+    @Override
+    public void close() {
+        scheduler.close();
+        try {
+            writePropagationPolicy.close();
+        } finally {
+            if (ownedLoaderExecutor != null) {
+                ownedLoaderExecutor.shutdown();
+            }
+        }
+    }
+
+    public CacheScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public Executor getLoaderExecutor() {
+        return loaderExecutor;
+    }
+
+    /**
+     * Read-only view of the cached keys. Iteration copies the keys of one segment at a time,
+     * so it is weakly consistent with concurrent updates.
+     */
+    @Override
+    public Set<Long> getKeys() {
+        return keySet;
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    private Segment<V> segmentFor(long hash) {
+        return segments[(int) (hash >>> 32) & segmentMask];
+    }
+
+    /**
+     * Spread the key over 64 bits, the high half picks the segment and the low half the slot.
+     */
+    private static long spread(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    private final class KeySet extends AbstractSet<Long> {
+        @Override
+        public int size() {
+            return getSize();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Long key && read(key, false) != null;
+        }
+
+        @Override
+        public Iterator<Long> iterator() {
+            return new Iterator<>() {
+                private int segmentIndex;
+                private long[] keys = new long[0];
+                private int position;
+
+                @Override
+                public boolean hasNext() {
+                    while (position == keys.length && segmentIndex < segments.length) {
+                        keys = segments[segmentIndex++].keys();
+                        position = 0;
+                    }
+                    return position < keys.length;
+                }
+
+                @Override
+                public Long next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return keys[position++];
+                }
+            };
+        }
+    }
+
+    /**
+     * Linear probing table of fixed size holding a share of the cache capacity. An empty slot has a
+     * null value, removal shifts the following entries of the probe sequence back instead of
+     * leaving a deleted marker. Mutated under the write lock, read optimistically, except for the
+     * access times and reference bits readers update with opaque access.
+     *
+     * @param <V>
+     */
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private final long[] slotKeys;
+        private final Object[] values;
+        private final long[] writeTimes;
+        private final long[] accessTimes;
+        private final byte[] referenced;
+        private final int mask;
+        private final int maxSize;
+        private int size;
+        private int hand;
+
+        private Segment(int maxSize) {
+            // at least one empty slot, so probe sequences always end
+            int minimumSlots = (int) Math.max(maxSize + 1L, (long) Math.ceil(maxSize / LOAD_FACTOR));
+            int tableSize = Integer.highestOneBit(Math.max(2, minimumSlots) - 1) << 1;
+            this.slotKeys = new long[tableSize];
+            this.values = new Object[tableSize];
+            this.writeTimes = new long[tableSize];
+            this.accessTimes = new long[tableSize];
+            this.referenced = new byte[tableSize];
+            this.mask = tableSize - 1;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Slot of key, or -1 if absent. Callers hold the lock or validate an optimistic read.
+         */
+        private int indexOf(long key, int hash) {
+            for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                if (values[i] == null) {
+                    return -1;
+                }
+                if (slotKeys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Store value for key, evicting with CLOCK when a new key finds the segment full.
+         */
+        private void put(long key, int hash, Object value, long now) {
+            int index = indexOf(key, hash);
+            if (index < 0) {
+                if (size == maxSize) {
+                    evict();
+                }
+                index = hash & mask;
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                slotKeys[index] = key;
+                referenced[index] = 0;
+                size++;
+            } else {
+                referenced[index] = 1;
+            }
+            values[index] = value;
+            writeTimes[index] = now;
+            accessTimes[index] = now;
+        }
+
+        /**
+         * Sweep the clock hand over the slots, clearing reference bits, and evict the first
+         * entry that was not referenced since the hand last passed it.
+         */
+        private void evict() {
+            for (;;) {
+                int index = hand;
+                hand = (hand + 1) & mask;
+                if (values[index] == null) {
+                    continue;
+                }
+                if ((byte) BYTE_ARRAY.getOpaque(referenced, index) != 0) {
+                    BYTE_ARRAY.setOpaque(referenced, index, (byte) 0);
+                    continue;
+                }
+                removeAt(index);
+                return;
+            }
+        }
+
+        private void removeAt(int index) {
+            values[index] = null;
+            size--;
+            int empty = index;
+            for (int i = (index + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+                int home = (int) spread(slotKeys[i]) & mask;
+                // move the entry back unless its home slot lies after the empty slot
+                boolean stays = empty <= i ? empty < home && home <= i : empty < home || home <= i;
+                if (!stays) {
+                    slotKeys[empty] = slotKeys[i];
+                    values[empty] = values[i];
+                    writeTimes[empty] = writeTimes[i];
+                    accessTimes[empty] = accessTimes[i];
+                    referenced[empty] = referenced[i];
+                    values[i] = null;
+                    empty = i;
+                }
+            }
+        }
+
+        private long[] keys() {
+            long stamp = lock.readLock();
+            try {
+                long[] keys = new long[size];
+                int count = 0;
+                for (int i = 0; i < values.length && count < keys.length; i++) {
+                    if (values[i] != null) {
+                        keys[count++] = slotKeys[i];
+                    }
+                }
+                return keys;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
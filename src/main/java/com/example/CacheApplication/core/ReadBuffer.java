@@ -0,0 +1,46 @@
+package com.example.CacheApplication.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Lossy bounded buffer of read events, lets reads record accesses without taking the
+ * eviction lock. Events are dropped when the buffer is full, the eviction policy only
+ * needs a sample of the accesses to make good decisions.
+ *
+ * @param <K>
+ */
+class ReadBuffer<K> {
+    static final int DRAIN_THRESHOLD = 32;
+    private static final int BUFFER_SIZE = 128;
+    private static final int MASK = BUFFER_SIZE - 1;
+
+    private final AtomicReferenceArray<K> buffer = new AtomicReferenceArray<>(BUFFER_SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+
+    /**
+     * Record a read of key.
+     * @param key
+     * @return true if enough reads are pending that the buffer should be drained
+     */
+    boolean offer(K key) {
+        long index = writeCounter.getAndIncrement();
+        buffer.compareAndSet((int) (index & MASK), null, key);
+        return (index & (DRAIN_THRESHOLD - 1)) == 0;
+    }
+
+    /**
+     * Drain pending reads to consumer, oldest first. Must be called by one thread at a time.
+     * @param consumer
+     */
+    void drainTo(Consumer<K> consumer) {
+        long start = writeCounter.get();
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            int index = (int) ((start + i) & MASK);
+            if (buffer.get(index) != null) {
+                consumer.accept(buffer.getAndSet(index, null));
+            }
+        }
+    }
+}
@@ -1,6 +1,24 @@
 package com.example.CacheApplication.core;
 
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
 public interface RefreshableCache<K, V> {
     Runnable getAutoRefreshRunnable();
     void updateCacheValue(K key);
+
+    default void updateCacheValues(Collection<K> keys) {
+        keys.forEach(this::updateCacheValue);
+    }
+
+    /**
+     * Read-only view of the cached keys, iteration is weakly consistent with concurrent updates.
+     */
+    Set<K> getKeys();
+
+    /**
+     * Executor the cache loads values on, refreshes run on it as well.
+     */
+    Executor getLoaderExecutor();
 }
@@ -0,0 +1,130 @@
+package com.example.CacheApplication.core;
+
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.stats.CacheStats;
+import com.example.CacheApplication.storage.StorageMode;
+import com.example.CacheApplication.writepolicy.WritePropagationPolicy;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Two tier {@link Cache}, a small L1 {@link InMemoryCache} in front of a larger L2 one, typically
+ * storing values {@link StorageMode#OFF_HEAP} or in a {@link StorageMode#FILE}.
+ * Entries evicted from L1 for capacity are demoted to L2, an L1 miss promotes the L2 entry back
+ * before reading the {@link DataStore}. A key lives in at most one tier after a promotion or write.
+ * Demoted and promoted entries keep their creation and access times, give both tiers the same
+ * {@link com.example.CacheApplication.expiration.ExpirationPolicy} and ticker for an entry to
+ * expire at the same time whichever tier holds it.
+ * Writes go through L1 and its {@link WritePropagationPolicy} only, L2 never writes to the datastore.
+ * Hits of each tier are in its {@link CacheStats}, with recordStats set on the tier configuration.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class TieredCache<K, V> implements TtlCache<K, V>, AutoCloseable {
+    private final InMemoryCache<K, V> l1;
+    private final InMemoryCache<K, V> l2;
+
+    /**
+     * @param l1Config configuration of the upper tier, its write propagation policy writes to the datastore
+     * @param l2Config configuration of the lower tier, backed by the same datastore
+     */
+    public TieredCache(CacheConfiguration<K, V> l1Config, CacheConfiguration<K, V> l2Config) {
+        Objects.requireNonNull(l1Config, "L1 configuration cannot be null.");
+        Objects.requireNonNull(l2Config, "L2 configuration cannot be null.");
+        if (l1Config.getDataStore() != l2Config.getDataStore()) {
+            throw new IllegalArgumentException("Both tiers must be backed by the same datastore.");
+        }
+        // L2 is only filled by demotions, warming it up as well would hold the same keys in both tiers
+        this.l2 = new InMemoryCache<>(l2Config, null, false);
+        this.l1 = new InMemoryCache<>(l1Config, l2, true);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        // drop the older L2 copy once L1 holds the new value, the write also cancels any demotion
+        // of key still in flight so a late one cannot leave a stale copy behind
+        l1.put(key, value);
+        l2.remove(key);
+    }
+
+    /**
+     * Put value for key in L1 expiring ttlMillis from now, it keeps its expiration time when demoted.
+     */
+    @Override
+    public void put(K key, V value, long ttlMillis) {
+        l1.put(key, value, ttlMillis);
+        l2.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        l1.putAll(entries);
+        l2.removeAll(entries.keySet());
+    }
+
+    @Override
+    public V get(K key) {
+        return l1.get(key);
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return l1.get(key, loader);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        return l1.getAll(keys);
+    }
+
+    /**
+     * Get value for key from either tier without loading it on a miss, an L2 hit is promoted.
+     * @param key
+     * @return <V> or null
+     */
+    public V getIfPresent(K key) {
+        V value = l1.getIfPresent(key);
+        return value != null ? value : l1.promote(key);
+    }
+
+    @Override
+    public void remove(K key) {
+        l1.remove(key);
+        l2.remove(key);
+    }
+
+    /**
+     * Statistics of L1, its hits are the reads served without touching L2.
+     * @return CacheStats
+     */
+    public CacheStats l1Stats() {
+        return l1.stats();
+    }
+
+    /**
+     * Statistics of L2, its hits are the promoted entries and its misses the L1 misses that
+     * went on to the datastore.
+     * @return CacheStats
+     */
+    public CacheStats l2Stats() {
+        return l2.stats();
+    }
+
+    public int getL1Size() {
+        return l1.getSize();
+    }
+
+    public int getL2Size() {
+        return l2.getSize();
+    }
+
+    @Override
+    public void close() {
+        l1.close();
+        l2.close();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.CacheApplication.core;
+
+/**
+ * Entry caching the absence of a key from the datastore. Holds no value and expires at its own
+ * expiration time, independent of the {@link com.example.CacheApplication.expiration.ExpirationPolicy}.
+ *
+ * @param <V>
+ */
+class TombstoneEntry<V> extends CacheEntry<V> {
+    TombstoneEntry(long ttlMillis, long now) {
+        super(null, now);
+        setExpirationTime(now + ttlMillis);
+    }
+}
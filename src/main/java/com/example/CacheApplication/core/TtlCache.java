@@ -0,0 +1,11 @@
+package com.example.CacheApplication.core;
+
+/**
+ * {@link Cache} whose entries may each have their own lifetime.
+ */
+public interface TtlCache<K, V> extends Cache<K, V> {
+    /**
+     * Put value for key expiring ttlMillis from now, in place of the cache's expiration policy.
+     */
+    void put(K key, V value, long ttlMillis);
+}
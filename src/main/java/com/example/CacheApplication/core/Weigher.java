@@ -0,0 +1,18 @@
+package com.example.CacheApplication.core;
+
+/**
+ * Calculates the weight of a cache entry, e.g. its size in bytes, counted against
+ * {@link CacheConfiguration#getMaxWeight()} instead of the number of entries.
+ *
+ * @param <K>
+ * @param <V>
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+    /**
+     * @param key
+     * @param value
+     * @return non-negative weight of the entry
+     */
+    int weigh(K key, V value);
+}
@@ -0,0 +1,33 @@
+package com.example.CacheApplication.datastore;
+
+/**
+ * Change of a key in an {@link ObservableDataStore}. Versions grow with every change of the store,
+ * of two changes of a key the one with the higher version is the latest.
+ *
+ * @param key
+ * @param value new value of an UPDATED key, null otherwise
+ * @param version
+ * @param type
+ */
+public record ChangeEvent<K, V>(K key, V value, long version, Type type) {
+    public enum Type {
+        /** The key has a new value, carried by the event. */
+        UPDATED,
+        /** The key changed and its new value must be read from the store. */
+        INVALIDATED,
+        /** The key was removed from the store. */
+        REMOVED
+    }
+
+    public static <K, V> ChangeEvent<K, V> updated(K key, V value, long version) {
+        return new ChangeEvent<>(key, value, version, Type.UPDATED);
+    }
+
+    public static <K, V> ChangeEvent<K, V> invalidated(K key, long version) {
+        return new ChangeEvent<>(key, null, version, Type.INVALIDATED);
+    }
+
+    public static <K, V> ChangeEvent<K, V> removed(K key, long version) {
+        return new ChangeEvent<>(key, null, version, Type.REMOVED);
+    }
+}
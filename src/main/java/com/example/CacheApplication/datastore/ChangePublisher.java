@@ -0,0 +1,149 @@
+package com.example.CacheApplication.datastore;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Delivers the changes of an {@link ObservableDataStore} to its subscribers. Changes are buffered
+ * and coalesced per key, a batch is delivered batchInterval after its first change, or as soon as
+ * it holds maxBatchSize keys, so a burst of writes to a key costs its subscribers one event.
+ * Batches are delivered in order by a daemon thread that runs while there are subscribers.
+ * A subscriber that throws does not stop the delivery to the others.
+ *
+ * @param <K>
+ * @param <V>
+ */
+@Slf4j
+public class ChangePublisher<K, V> {
+    public static final long DEFAULT_BATCH_INTERVAL_MILLIS = 10L;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    private final long batchIntervalNanos;
+    private final int maxBatchSize;
+    private final List<Consumer<? super List<ChangeEvent<K, V>>>> subscribers = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // guarded by lock
+    private Map<K, ChangeEvent<K, V>> pendingChanges = new LinkedHashMap<>();
+    private long version;
+    private Thread deliveryThread;
+
+    public ChangePublisher() {
+        this(DEFAULT_BATCH_INTERVAL_MILLIS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public ChangePublisher(long batchIntervalMillis, int maxBatchSize) {
+        if (batchIntervalMillis < 0) {
+            throw new IllegalArgumentException("Batch interval must not be negative.");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Max batch size must be greater than zero.");
+        }
+        this.batchIntervalNanos = TimeUnit.MILLISECONDS.toNanos(batchIntervalMillis);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public ObservableDataStore.Subscription subscribe(Consumer<? super List<ChangeEvent<K, V>>> listener) {
+        lock.lock();
+        try {
+            subscribers.add(listener);
+            if (deliveryThread == null) {
+                deliveryThread = Thread.ofPlatform().daemon().name("datastore-change-publisher").start(this::deliver);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return () -> {
+            lock.lock();
+            try {
+                subscribers.remove(listener);
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        };
+    }
+
+    /**
+     * Version of the latest published change.
+     * @return version, 0 before the first change
+     */
+    public long version() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publish the new value of key, or its removal when value is null. Called by the store in the
+     * same atomic step as the change, so the order of the versions of a key is the order of its changes.
+     * @param key
+     * @param value
+     */
+    public void publish(K key, V value) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            long changeVersion = ++version;
+            pendingChanges.put(key, value == null
+                    ? ChangeEvent.removed(key, changeVersion)
+                    : ChangeEvent.updated(key, value, changeVersion));
+            if (pendingChanges.size() == 1 || pendingChanges.size() >= maxBatchSize) {
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deliver() {
+        for (;;) {
+            List<ChangeEvent<K, V>> batch;
+            lock.lock();
+            try {
+                while (pendingChanges.isEmpty()) {
+                    if (subscribers.isEmpty()) {
+                        deliveryThread = null;
+                        return;
+                    }
+                    changed.awaitUninterruptibly();
+                }
+                // let the burst the first change belongs to coalesce into the batch
+                long remaining = batchIntervalNanos;
+                while (remaining > 0 && pendingChanges.size() < maxBatchSize && !subscribers.isEmpty()) {
+                    try {
+                        remaining = changed.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                batch = List.copyOf(pendingChanges.values());
+                pendingChanges = new LinkedHashMap<>();
+            } finally {
+                lock.unlock();
+            }
+            for (Consumer<? super List<ChangeEvent<K, V>>> subscriber : subscribers) {
+                try {
+                    subscriber.accept(batch);
+                } catch (RuntimeException e) {
+                    // the subscriber missed this batch, later batches are still delivered
+                    log.warn("Subscriber failed to apply a batch of {} changes", batch.size(), e);
+                }
+            }
+        }
+    }
+}
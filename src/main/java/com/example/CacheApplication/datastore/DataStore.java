@@ -1,8 +1,45 @@
 package com.example.CacheApplication.datastore;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 public interface DataStore<K, V> {
     void put(K key, V value);
     V get(K key);
     void remove(K key);
     Iterable<K> getTopKeys(int limit);
+
+    /**
+     * Get all keys of the store. Defaults to the top keys without a limit.
+     * @return keys
+     */
+    default Iterable<K> getKeys() {
+        return getTopKeys(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the values of keys in one call, keys without a value are absent from the result.
+     * Defaults to a get per key, stores with a cheaper bulk read should override it.
+     * @param keys
+     * @return values by key
+     */
+    default Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> values = new HashMap<>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    default void putAll(Map<? extends K, ? extends V> entries) {
+        entries.forEach(this::put);
+    }
+
+    default void removeAll(Collection<? extends K> keys) {
+        keys.forEach(this::remove);
+    }
 }
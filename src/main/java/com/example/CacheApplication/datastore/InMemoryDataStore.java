@@ -1,34 +1,137 @@
 package com.example.CacheApplication.datastore;
 
+import com.example.CacheApplication.eviction.FrequencySketch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
-public class InMemoryDataStore<K, V> implements DataStore<K, V> {
+/**
+ * {@link ObservableDataStore} over a {@link ConcurrentHashMap}. Changes made through the store are
+ * published by a {@link ChangePublisher}, changes made directly to the map are not.
+ * Reads and writes of keys are counted in a {@link FrequencySketch} which ages out old counts, so
+ * {@link #getTopKeys} returns the keys popular recently. The count is sampled, an access finding
+ * the sketch in use by another thread is not counted rather than wait for it.
+ */
+public class InMemoryDataStore<K, V> implements ObservableDataStore<K, V> {
     private final ConcurrentHashMap<K, V> store;
+    private final ChangePublisher<K, V> changePublisher;
+    private final FrequencySketch<K> sketch;
+    private final ReentrantLock sketchLock = new ReentrantLock();
+
+    private record Candidate<K>(K key, int frequency) {}
 
     public InMemoryDataStore(ConcurrentHashMap<K, V> store) {
+        this(store, new ChangePublisher<>());
+    }
+
+    public InMemoryDataStore(ConcurrentHashMap<K, V> store, ChangePublisher<K, V> changePublisher) {
         this.store = store;
+        this.changePublisher = changePublisher;
+        this.sketch = new FrequencySketch<>(store.size());
     }
 
     @Override
     public void put(K key, V value) {
-        store.put(key, value);
+        recordAccess(key);
+        store.compute(key, (k, oldValue) -> {
+            changePublisher.publish(k, value);
+            return value;
+        });
     }
 
     @Override
     public V get(K key) {
-        return store.get(key);
+        V value = store.get(key);
+        if (value != null) {
+            recordAccess(key);
+        }
+        return value;
     }
 
     @Override
     public void remove(K key) {
-        store.remove(key);
+        store.computeIfPresent(key, (k, oldValue) -> {
+            changePublisher.publish(k, null);
+            return null;
+        });
     }
 
+    @Override
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        entries.forEach(this::put);
+    }
+
+    @Override
+    public void removeAll(Collection<? extends K> keys) {
+        keys.forEach(this::remove);
+    }
+
+    /**
+     * Keys with the highest estimated access frequency, most popular first. Keys of equal
+     * frequency, such as keys never accessed through the store, are in no particular order.
+     * @param limit
+     * @return up to limit keys
+     */
     @Override
     public Iterable<K> getTopKeys(int limit) {
-        return store.keySet().stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        if (limit <= 0) {
+            return List.of();
+        }
+        // min-heap of the most popular keys seen so far
+        PriorityQueue<Candidate<K>> top = new PriorityQueue<>(Comparator.comparingInt(Candidate::frequency));
+        sketchLock.lock();
+        try {
+            for (K key : store.keySet()) {
+                int frequency = sketch.frequency(key);
+                if (top.size() < limit) {
+                    top.add(new Candidate<>(key, frequency));
+                } else if (frequency > top.peek().frequency()) {
+                    top.poll();
+                    top.add(new Candidate<>(key, frequency));
+                }
+            }
+        } finally {
+            sketchLock.unlock();
+        }
+        List<K> keys = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            keys.add(top.poll().key());
+        }
+        Collections.reverse(keys);
+        return keys;
+    }
+
+    @Override
+    public Iterable<K> getKeys() {
+        return Collections.unmodifiableSet(store.keySet());
+    }
+
+    private void recordAccess(K key) {
+        if (sketchLock.tryLock()) {
+            try {
+                sketch.ensureCapacity(store.size());
+                sketch.increment(key);
+            } finally {
+                sketchLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Subscription subscribe(Consumer<? super List<ChangeEvent<K, V>>> listener) {
+        return changePublisher.subscribe(listener);
+    }
+
+    @Override
+    public long version() {
+        return changePublisher.version();
     }
 }
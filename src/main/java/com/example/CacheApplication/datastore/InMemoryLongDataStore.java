@@ -0,0 +1,52 @@
+package com.example.CacheApplication.datastore;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+public class InMemoryLongDataStore<V> implements LongDataStore<V> {
+    private final ConcurrentHashMap<Long, V> store;
+
+    public InMemoryLongDataStore(ConcurrentHashMap<Long, V> store) {
+        this.store = store;
+    }
+
+    @Override
+    public void put(long key, V value) {
+        store.put(key, value);
+    }
+
+    @Override
+    public V get(long key) {
+        return store.get(key);
+    }
+
+    @Override
+    public void remove(long key) {
+        store.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends Long, ? extends V> entries) {
+        store.putAll(entries);
+    }
+
+    @Override
+    public void removeAll(Collection<? extends Long> keys) {
+        keys.forEach(store::remove);
+    }
+
+    @Override
+    public Iterable<Long> getTopKeys(int limit) {
+        return store.keySet().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Iterable<Long> getKeys() {
+        return Collections.unmodifiableSet(store.keySet());
+    }
+}
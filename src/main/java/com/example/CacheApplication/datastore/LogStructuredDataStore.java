@@ -0,0 +1,438 @@
+package com.example.CacheApplication.datastore;
+
+import com.example.CacheApplication.storage.Serializer;
+import com.example.CacheApplication.util.CacheScheduler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * File backed {@link DataStore} keeping its data in an append-only log of fixed size segments.
+ * Writes are appended to the active segment through a {@link FileChannel}, reads go through a
+ * memory mapping of the segment. An in-memory index maps each key to the location of its latest
+ * record and is rebuilt by scanning the log at startup, a torn record at the end of the log is
+ * discarded. Removals append a tombstone record.
+ * Compaction runs in the background on the store's own {@link CacheScheduler} and rewrites the live
+ * records of sealed segments whose live ratio dropped below the threshold, then deletes them. The
+ * latest tombstone of a key counts as live while an older segment exists that may still hold a value
+ * of the key, so it is carried over by compaction instead of being dropped and rewritten every pass.
+ * {@link #close()} waits for a running compaction.
+ * Record layout - crc (int), key length (int), value length (int, -1 for a tombstone), key, value.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class LogStructuredDataStore<K, V> implements DataStore<K, V>, Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+    public static final long DEFAULT_COMPACTION_INTERVAL_MILLIS = 60_000L;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int TOMBSTONE = -1;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int segmentSize;
+    private final double compactionThreshold;
+    private final Map<K, Location> index = new ConcurrentHashMap<>();
+    // latest tombstone of each removed key, guarded by this
+    private final Map<K, Location> tombstones = new HashMap<>();
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    // runs the background compaction, null when it is disabled
+    private final CacheScheduler scheduler;
+    // held by a compaction pass, so close waits for it
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private Segment activeSegment;
+    // guarded by compactionLock
+    private boolean closed;
+
+    private record Location(long segmentId, int offset, int keyLength, int valueLength) {
+        int recordLength() {
+            return HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+        }
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private long liveBytes;
+        // latest tombstones, live while an older segment exists
+        private long tombstoneBytes;
+
+        private Segment(long id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    public LogStructuredDataStore(Path directory, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(directory, keySerializer, valueSerializer, DEFAULT_SEGMENT_SIZE,
+                DEFAULT_COMPACTION_THRESHOLD, DEFAULT_COMPACTION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Open the store in directory, recovering the index from existing segments.
+     * @param directory
+     * @param keySerializer
+     * @param valueSerializer
+     * @param segmentSize bytes per segment file, bounds the size of a single record
+     * @param compactionThreshold live ratio below which a sealed segment is compacted
+     * @param compactionIntervalMillis period of the background compaction, 0 to disable
+     */
+    public LogStructuredDataStore(Path directory, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                  int segmentSize, double compactionThreshold, long compactionIntervalMillis) {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be greater than " + HEADER_SIZE + " bytes.");
+        }
+        this.directory = directory;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open log store in " + directory, e);
+        }
+        if (compactionIntervalMillis > 0) {
+            this.scheduler = new CacheScheduler();
+            scheduler.scheduleWithFixedDelay(this::compact,
+                    compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized void put(K key, V value) {
+        append(key, keySerializer.serialize(key), valueSerializer.serialize(value));
+    }
+
+    @Override
+    public V get(K key) {
+        for (;;) {
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(location.segmentId());
+            if (segment == null) {
+                // record was moved by compaction, look up its new location
+                continue;
+            }
+            byte[] value = new byte[location.valueLength()];
+            segment.buffer.get(location.offset() + HEADER_SIZE + location.keyLength(), value);
+            return valueSerializer.deserialize(value);
+        }
+    }
+
+    @Override
+    public synchronized void remove(K key) {
+        if (index.containsKey(key)) {
+            append(key, keySerializer.serialize(key), null);
+        }
+    }
+
+    @Override
+    public synchronized void putAll(Map<? extends K, ? extends V> entries) {
+        entries.forEach((key, value) -> append(key, keySerializer.serialize(key), valueSerializer.serialize(value)));
+    }
+
+    @Override
+    public synchronized void removeAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Most recently written keys first. Compaction rewrites the records it keeps, which makes
+     * their keys count as written at the time of the compaction.
+     * @param limit
+     * @return up to limit keys
+     */
+    @Override
+    public Iterable<K> getTopKeys(int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        Comparator<Map.Entry<K, Location>> byPosition = Comparator
+                .<Map.Entry<K, Location>>comparingLong(entry -> entry.getValue().segmentId())
+                .thenComparingInt(entry -> entry.getValue().offset());
+        // min-heap of the latest records seen so far
+        PriorityQueue<Map.Entry<K, Location>> top = new PriorityQueue<>(byPosition);
+        for (Map.Entry<K, Location> entry : index.entrySet()) {
+            if (top.size() < limit) {
+                top.add(Map.entry(entry.getKey(), entry.getValue()));
+            } else if (byPosition.compare(entry, top.peek()) > 0) {
+                top.poll();
+                top.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        List<K> keys = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            keys.add(top.poll().getKey());
+        }
+        Collections.reverse(keys);
+        return keys;
+    }
+
+    @Override
+    public Iterable<K> getKeys() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * Rewrite the live records of sealed segments below the compaction threshold and delete them.
+     */
+    public void compact() {
+        compactionLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            for (Segment segment : List.copyOf(segments.values())) {
+                boolean shouldCompact;
+                synchronized (this) {
+                    long liveBytes = segment.liveBytes
+                            + (segments.firstKey() < segment.id ? segment.tombstoneBytes : 0L);
+                    shouldCompact = segment != activeSegment
+                            && liveBytes < segment.writePosition * compactionThreshold;
+                }
+                if (shouldCompact) {
+                    compact(segment);
+                }
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Wait for a running compaction, stop the background compaction and close the segments.
+     */
+    @Override
+    public void close() {
+        compactionLock.lock();
+        try {
+            closed = true;
+        } finally {
+            compactionLock.unlock();
+        }
+        if (scheduler != null) {
+            scheduler.close();
+        }
+        synchronized (this) {
+            for (Segment segment : segments.values()) {
+                try {
+                    segment.channel.force(true);
+                    segment.channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to close segment " + segment.path, e);
+                }
+            }
+        }
+    }
+
+    private void compact(Segment segment) {
+        boolean hasOlderSegments = segments.firstKey() < segment.id;
+        int offset = 0;
+        while (offset + HEADER_SIZE <= segment.writePosition) {
+            int keyLength = segment.buffer.getInt(offset + 4);
+            int valueLength = segment.buffer.getInt(offset + 8);
+            byte[] keyBytes = new byte[keyLength];
+            segment.buffer.get(offset + HEADER_SIZE, keyBytes);
+            K key = keySerializer.deserialize(keyBytes);
+            Location location = new Location(segment.id, offset, keyLength, valueLength);
+            synchronized (this) {
+                if (valueLength == TOMBSTONE) {
+                    if (location.equals(tombstones.get(key))) {
+                        // an older segment may still hold a value the tombstone hides
+                        if (hasOlderSegments) {
+                            append(key, keyBytes, null);
+                        } else {
+                            tombstones.remove(key);
+                        }
+                    }
+                } else if (location.equals(index.get(key))) {
+                    byte[] value = new byte[valueLength];
+                    segment.buffer.get(offset + HEADER_SIZE + keyLength, value);
+                    append(key, keyBytes, value);
+                }
+            }
+            offset += location.recordLength();
+        }
+        synchronized (this) {
+            segments.remove(segment.id);
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to delete segment " + segment.path, e);
+            }
+        }
+    }
+
+    /**
+     * Append a record to the active segment and point the index at it, a null value appends a tombstone.
+     */
+    private void append(K key, byte[] keyBytes, byte[] value) {
+        ByteBuffer record = encode(keyBytes, value);
+        if (record.remaining() > segmentSize) {
+            throw new IllegalArgumentException("Record of " + record.remaining()
+                    + " bytes exceeds the segment size of " + segmentSize + " bytes.");
+        }
+        try {
+            if (activeSegment.writePosition + record.remaining() > segmentSize) {
+                activeSegment = createSegment(activeSegment.id + 1);
+            }
+            Location location = new Location(activeSegment.id, activeSegment.writePosition,
+                    keyBytes.length, value == null ? TOMBSTONE : value.length);
+            int position = activeSegment.writePosition;
+            while (record.hasRemaining()) {
+                position += activeSegment.channel.write(record, position);
+            }
+            activeSegment.writePosition = position;
+            index(activeSegment, key, location);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to segment " + activeSegment.path, e);
+        }
+    }
+
+    /**
+     * Point the index at the record of key at location in segment, moving the live bytes of the
+     * record it replaces over to it.
+     */
+    private void index(Segment segment, K key, Location location) {
+        boolean tombstone = location.valueLength() == TOMBSTONE;
+        Location previous = tombstone ? index.remove(key) : index.put(key, location);
+        Location previousTombstone = tombstone ? tombstones.put(key, location) : tombstones.remove(key);
+        if (tombstone) {
+            segment.tombstoneBytes += location.recordLength();
+        } else {
+            segment.liveBytes += location.recordLength();
+        }
+        if (previous != null) {
+            Segment previousSegment = segments.get(previous.segmentId());
+            if (previousSegment != null) {
+                previousSegment.liveBytes -= previous.recordLength();
+            }
+        }
+        if (previousTombstone != null) {
+            Segment previousSegment = segments.get(previousTombstone.segmentId());
+            if (previousSegment != null) {
+                previousSegment.tombstoneBytes -= previousTombstone.recordLength();
+            }
+        }
+    }
+
+    private static ByteBuffer encode(byte[] key, byte[] value) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + key.length + (value == null ? 0 : value.length));
+        record.putInt(0).putInt(key.length).putInt(value == null ? TOMBSTONE : value.length).put(key);
+        if (value != null) {
+            record.put(value);
+        }
+        record.putInt(0, checksum(record, 4, record.capacity() - 4));
+        return record.flip();
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Rebuild the index from the segments in directory, in log order.
+     */
+    private void recover() throws IOException {
+        List<Long> segmentIds;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentIds = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+        for (long segmentId : segmentIds) {
+            Segment segment = openSegment(segmentId);
+            segments.put(segmentId, segment);
+            replay(segment);
+            activeSegment = segment;
+        }
+        if (activeSegment == null) {
+            activeSegment = createSegment(0L);
+        }
+    }
+
+    private void replay(Segment segment) {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= segmentSize) {
+            int crc = segment.buffer.getInt(offset);
+            int keyLength = segment.buffer.getInt(offset + 4);
+            int valueLength = segment.buffer.getInt(offset + 8);
+            if (keyLength < 0 || valueLength < TOMBSTONE
+                    || (long) offset + HEADER_SIZE + keyLength + Math.max(valueLength, 0) > segmentSize) {
+                break;
+            }
+            Location location = new Location(segment.id, offset, keyLength, valueLength);
+            if (crc != checksum(segment.buffer, offset + 4, location.recordLength() - 4)) {
+                // end of the log, or a record torn by a crash while appending
+                break;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            segment.buffer.get(offset + HEADER_SIZE, keyBytes);
+            K key = keySerializer.deserialize(keyBytes);
+            index(segment, key, location);
+            offset += location.recordLength();
+        }
+        segment.writePosition = offset;
+    }
+
+    private Segment createSegment(long segmentId) throws IOException {
+        Segment segment = openSegment(segmentId);
+        segments.put(segmentId, segment);
+        return segment;
+    }
+
+    private Segment openSegment(long segmentId) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // a READ_WRITE mapping grows the file to the full segment size
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        return new Segment(segmentId, path, channel, buffer);
+    }
+}
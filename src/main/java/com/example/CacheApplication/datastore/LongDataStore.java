@@ -0,0 +1,83 @@
+package com.example.CacheApplication.datastore;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * {@link DataStore} keyed by primitive longs. Reads and writes by long key do not box the key,
+ * the {@link DataStore} methods taking a Long delegate to them.
+ *
+ * @param <V>
+ */
+public interface LongDataStore<V> extends DataStore<Long, V> {
+    void put(long key, V value);
+    V get(long key);
+    void remove(long key);
+
+    @Override
+    default void put(Long key, V value) {
+        put(key.longValue(), value);
+    }
+
+    @Override
+    default V get(Long key) {
+        return get(key.longValue());
+    }
+
+    @Override
+    default void remove(Long key) {
+        remove(key.longValue());
+    }
+
+    /**
+     * View dataStore as a {@link LongDataStore}, boxing the keys of its reads and writes if it is not one.
+     * @param dataStore
+     * @return dataStore itself if it is a {@link LongDataStore}, or an adapter
+     */
+    static <V> LongDataStore<V> of(DataStore<Long, V> dataStore) {
+        if (dataStore instanceof LongDataStore<V> longDataStore) {
+            return longDataStore;
+        }
+        return new LongDataStore<>() {
+            @Override
+            public void put(long key, V value) {
+                dataStore.put(key, value);
+            }
+
+            @Override
+            public V get(long key) {
+                return dataStore.get(key);
+            }
+
+            @Override
+            public void remove(long key) {
+                dataStore.remove(key);
+            }
+
+            @Override
+            public Iterable<Long> getTopKeys(int limit) {
+                return dataStore.getTopKeys(limit);
+            }
+
+            @Override
+            public Iterable<Long> getKeys() {
+                return dataStore.getKeys();
+            }
+
+            @Override
+            public Map<Long, V> getAll(Collection<? extends Long> keys) {
+                return dataStore.getAll(keys);
+            }
+
+            @Override
+            public void putAll(Map<? extends Long, ? extends V> entries) {
+                dataStore.putAll(entries);
+            }
+
+            @Override
+            public void removeAll(Collection<? extends Long> keys) {
+                dataStore.removeAll(keys);
+            }
+        };
+    }
+}
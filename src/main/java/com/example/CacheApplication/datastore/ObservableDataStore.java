@@ -0,0 +1,32 @@
+package com.example.CacheApplication.datastore;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link DataStore} publishing its changes, so caches can update or invalidate the changed keys
+ * instead of polling every key. Changes are delivered in batches, a key changed several times
+ * within a batch is delivered once with its latest change.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public interface ObservableDataStore<K, V> extends DataStore<K, V> {
+    /**
+     * Deliver the batches of changes made after this call to listener, in order, on a thread of the store.
+     * @param listener
+     * @return Subscription to stop the delivery
+     */
+    Subscription subscribe(Consumer<? super List<ChangeEvent<K, V>>> listener);
+
+    /**
+     * Version of the latest change published, a value read after this call is at least as new as that change.
+     * @return version, 0 before the first change
+     */
+    long version();
+
+    interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
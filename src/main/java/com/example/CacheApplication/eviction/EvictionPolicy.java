@@ -0,0 +1,62 @@
+package com.example.CacheApplication.eviction;
+
+import java.util.List;
+
+/**
+ * Policy tracking the keys of a cache and selecting which ones to evict once the total
+ * weight of the cache grows beyond its maximum. Without a weigher every entry weighs 1.
+ * Implementations need not be thread safe, the cache serializes all calls to its policy.
+ *
+ * @param <K>
+ */
+public interface EvictionPolicy<K> {
+    void recordAccess(K key);
+
+    /**
+     * Record an insert or update of key.
+     * @param key
+     * @param weight of the entry written
+     */
+    void recordWrite(K key, int weight);
+
+    void recordRemoval(K key);
+
+    /**
+     * Select the next key to evict and stop tracking it.
+     * @return key to evict, or null if the policy is within its maximum weight
+     */
+    K evict();
+
+    /**
+     * Select the key the policy values least and stop tracking it, even within the maximum weight.
+     * Used when the storage of the cache has no room left for a value.
+     * @return key to evict, or null if the policy tracks no keys
+     */
+    K evictColdest();
+
+    int size();
+
+    long weightedSize();
+
+    /**
+     * Change the maximum weight, {@link #evict()} then selects keys until the policy is within it.
+     * @param maximum
+     */
+    void setMaximum(long maximum);
+
+    /**
+     * Keys in the order the policy would keep them, the key it would evict last first.
+     * @param limit
+     * @return up to limit tracked keys, hottest first
+     */
+    List<K> hottestKeys(int limit);
+
+    /**
+     * Creates the {@link EvictionPolicy} for a cache with the given maximum weight.
+     * @param <K>
+     */
+    @FunctionalInterface
+    interface Factory<K> {
+        EvictionPolicy<K> create(long maximum);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.CacheApplication.eviction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used {@link EvictionPolicy}, evicts the key accessed or written the longest time ago.
+ *
+ * @param <K>
+ */
+public class LruEvictionPolicy<K> implements EvictionPolicy<K> {
+    private long maximum;
+    // key to weight in access order
+    private final LinkedHashMap<K, Integer> accessOrder = new LinkedHashMap<>(16, 0.75f, true);
+    private long weightedSize;
+
+    public LruEvictionPolicy(long maximum) {
+        this.maximum = maximum;
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        accessOrder.get(key);
+    }
+
+    @Override
+    public void recordWrite(K key, int weight) {
+        Integer previousWeight = accessOrder.put(key, weight);
+        weightedSize += weight - (previousWeight == null ? 0 : previousWeight);
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        Integer weight = accessOrder.remove(key);
+        if (weight != null) {
+            weightedSize -= weight;
+        }
+    }
+
+    @Override
+    public K evict() {
+        if (weightedSize <= maximum || accessOrder.isEmpty()) {
+            return null;
+        }
+        Iterator<Map.Entry<K, Integer>> iterator = accessOrder.entrySet().iterator();
+        Map.Entry<K, Integer> victim = iterator.next();
+        iterator.remove();
+        weightedSize -= victim.getValue();
+        return victim.getKey();
+    }
+
+    @Override
+    public K evictColdest() {
+        if (accessOrder.isEmpty()) {
+            return null;
+        }
+        Map.Entry<K, Integer> victim = accessOrder.pollFirstEntry();
+        weightedSize -= victim.getValue();
+        return victim.getKey();
+    }
+
+    @Override
+    public int size() {
+        return accessOrder.size();
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    @Override
+    public void setMaximum(long maximum) {
+        this.maximum = maximum;
+    }
+
+    @Override
+    public List<K> hottestKeys(int limit) {
+        List<K> keys = new ArrayList<>(Math.min(limit, accessOrder.size()));
+        for (K key : accessOrder.sequencedKeySet().reversed()) {
+            if (keys.size() == limit) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.CacheApplication.eviction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Window TinyLFU {@link EvictionPolicy}. New keys enter a small LRU admission window (1% of
+ * the maximum). Keys leaving the window compete with the main space's LRU victim and are only
+ * admitted if the {@link FrequencySketch} estimates them to be more popular, so a scan of cold
+ * keys cannot flush the working set. The main space is a segmented LRU where keys accessed
+ * again on probation are promoted to the protected segment (80% of the main space).
+ *
+ * @param <K>
+ */
+public class WTinyLfuEvictionPolicy<K> implements EvictionPolicy<K> {
+    private static final double WINDOW_PERCENTAGE = 0.01;
+    private static final double PROTECTED_PERCENTAGE = 0.80;
+    // candidates this popular may win a tie, guards against hash flooding of the sketch
+    private static final int ADMIT_HASHDOS_THRESHOLD = 6;
+
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node {
+        private Segment segment;
+        private int weight;
+
+        private Node(Segment segment, int weight) {
+            this.segment = segment;
+            this.weight = weight;
+        }
+    }
+
+    private long maximum;
+    private long maxWindow;
+    private long maxMain;
+    private long maxProtected;
+    // sized by the number of entries, the maximum may be a weight such as bytes
+    private final FrequencySketch<K> sketch = new FrequencySketch<>(0);
+    private final Map<K, Node> nodes = new HashMap<>();
+    private final LinkedHashSet<K> window = new LinkedHashSet<>();
+    private final LinkedHashSet<K> probation = new LinkedHashSet<>();
+    private final LinkedHashSet<K> protectedSegment = new LinkedHashSet<>();
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    public WTinyLfuEvictionPolicy(long maximum) {
+        resize(maximum);
+    }
+
+    @Override
+    public void recordAccess(K key) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            return;
+        }
+        sketch.increment(key);
+        switch (node.segment) {
+            case WINDOW -> moveToTail(window, key);
+            case PROBATION -> {
+                unlink(key, node);
+                link(key, node, Segment.PROTECTED);
+                demoteFromProtected();
+            }
+            case PROTECTED -> moveToTail(protectedSegment, key);
+        }
+    }
+
+    @Override
+    public void recordWrite(K key, int weight) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            addWeight(node.segment, weight - node.weight);
+            node.weight = weight;
+            recordAccess(key);
+            return;
+        }
+        node = new Node(Segment.WINDOW, weight);
+        nodes.put(key, node);
+        sketch.ensureCapacity(nodes.size());
+        sketch.increment(key);
+        link(key, node, Segment.WINDOW);
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        Node node = nodes.remove(key);
+        if (node != null) {
+            unlink(key, node);
+        }
+    }
+
+    @Override
+    public K evict() {
+        while (windowWeight > maxWindow) {
+            K candidate = window.iterator().next();
+            Node candidateNode = nodes.get(candidate);
+            unlink(candidate, candidateNode);
+            if (probationWeight + protectedWeight + candidateNode.weight <= maxMain) {
+                link(candidate, candidateNode, Segment.PROBATION);
+                continue;
+            }
+            K victim = !probation.isEmpty() ? probation.iterator().next()
+                    : protectedSegment.isEmpty() ? null : protectedSegment.iterator().next();
+            if (victim != null && admit(candidate, victim)) {
+                recordRemoval(victim);
+                link(candidate, candidateNode, Segment.PROBATION);
+                return victim;
+            }
+            nodes.remove(candidate);
+            return candidate;
+        }
+        if (weightedSize() > maximum) {
+            LinkedHashSet<K> queue = !probation.isEmpty() ? probation
+                    : !protectedSegment.isEmpty() ? protectedSegment : window;
+            K victim = queue.iterator().next();
+            recordRemoval(victim);
+            return victim;
+        }
+        return null;
+    }
+
+    @Override
+    public K evictColdest() {
+        LinkedHashSet<K> queue = !probation.isEmpty() ? probation
+                : !window.isEmpty() ? window : protectedSegment;
+        if (queue.isEmpty()) {
+            return null;
+        }
+        K victim = queue.iterator().next();
+        recordRemoval(victim);
+        return victim;
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public long weightedSize() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    /**
+     * Resize the window and main space, a protected segment above its new share is demoted right away.
+     */
+    @Override
+    public void setMaximum(long maximum) {
+        resize(maximum);
+        demoteFromProtected();
+    }
+
+    /**
+     * Protected keys, then the window, then probation, each most recently used first.
+     */
+    @Override
+    public List<K> hottestKeys(int limit) {
+        List<K> keys = new ArrayList<>(Math.min(limit, nodes.size()));
+        for (LinkedHashSet<K> queue : List.of(protectedSegment, window, probation)) {
+            for (K key : queue.reversed()) {
+                if (keys.size() == limit) {
+                    return keys;
+                }
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private void resize(long maximum) {
+        this.maximum = maximum;
+        this.maxWindow = Math.max(1L, (long) (maximum * WINDOW_PERCENTAGE));
+        this.maxMain = Math.max(0L, maximum - maxWindow);
+        this.maxProtected = (long) (maxMain * PROTECTED_PERCENTAGE);
+    }
+
+    private boolean admit(K candidate, K victim) {
+        int candidateFrequency = sketch.frequency(candidate);
+        int victimFrequency = sketch.frequency(victim);
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency < ADMIT_HASHDOS_THRESHOLD) {
+            return false;
+        }
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void demoteFromProtected() {
+        while (protectedWeight > maxProtected) {
+            K demoted = protectedSegment.iterator().next();
+            Node node = nodes.get(demoted);
+            unlink(demoted, node);
+            link(demoted, node, Segment.PROBATION);
+        }
+    }
+
+    private void link(K key, Node node, Segment segment) {
+        node.segment = segment;
+        queueOf(segment).add(key);
+        addWeight(segment, node.weight);
+    }
+
+    private void unlink(K key, Node node) {
+        queueOf(node.segment).remove(key);
+        addWeight(node.segment, -node.weight);
+    }
+
+    private void addWeight(Segment segment, long weight) {
+        switch (segment) {
+            case WINDOW -> windowWeight += weight;
+            case PROBATION -> probationWeight += weight;
+            case PROTECTED -> protectedWeight += weight;
+        }
+    }
+
+    private LinkedHashSet<K> queueOf(Segment segment) {
+        return switch (segment) {
+            case WINDOW -> window;
+            case PROBATION -> probation;
+            case PROTECTED -> protectedSegment;
+        };
+    }
+
+    private static <K> void moveToTail(LinkedHashSet<K> queue, K key) {
+        queue.remove(key);
+        queue.add(key);
+    }
+}
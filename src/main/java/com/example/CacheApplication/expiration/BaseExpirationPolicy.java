@@ -2,13 +2,15 @@ package com.example.CacheApplication.expiration;
 
 import com.example.CacheApplication.core.CacheEntry;
 import com.example.CacheApplication.core.ExpirableCache;
-import com.example.CacheApplication.util.ScheduledExecutorUtil;
+import com.example.CacheApplication.util.CacheScheduler;
 
 import java.util.concurrent.TimeUnit;
 
 /**
  * Abstract BaseExpirationPolicy implementing the common
- * scheduleCleanup() and isExpired({@link CacheEntry} entry) methods.
+ * scheduleCleanup() and getExpirationTime({@link CacheEntry} entry) methods.
+ * Cleanup advances the cache's {@link TimerWheel} at its tick resolution, so expired
+ * entries are reclaimed without scanning the whole cache.
  *
  * @param <K>
  * @param <V>
@@ -21,13 +23,19 @@ abstract class BaseExpirationPolicy<K, V> implements ExpirationPolicy<K, V> {
     }
 
     @Override
-    public void scheduleAutoCleanup(ExpirableCache cache) {
-        ScheduledExecutorUtil.scheduleWithFixedDelay(cache.getAutoExpirationRunnable(),
-                ttlMillis, ttlMillis, TimeUnit.MILLISECONDS);
+    public void scheduleAutoCleanup(ExpirableCache cache, CacheScheduler scheduler) {
+        long cleanupPeriod = Math.max(1L, Math.min(ttlMillis, TimerWheel.TICK_MILLIS));
+        scheduler.scheduleWithFixedDelay(cache.getAutoExpirationRunnable(),
+                cleanupPeriod, cleanupPeriod, TimeUnit.MILLISECONDS);
     }
 
     @Override
-    public boolean isExpired(CacheEntry<V> entry) {
-        return System.currentTimeMillis() - entry.getLastAccessTime() > ttlMillis;
+    public long getExpirationTime(CacheEntry<V> entry) {
+        return entry.getLastAccessTime() + ttlMillis;
+    }
+
+    @Override
+    public long getExpirationTime(long writeTime, long accessTime) {
+        return accessTime + ttlMillis;
     }
 }
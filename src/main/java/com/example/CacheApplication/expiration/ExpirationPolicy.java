@@ -2,13 +2,40 @@ package com.example.CacheApplication.expiration;
 
 import com.example.CacheApplication.core.CacheEntry;
 import com.example.CacheApplication.core.ExpirableCache;
+import com.example.CacheApplication.util.CacheScheduler;
 
 public interface ExpirationPolicy<K, V> {
-    void scheduleAutoCleanup(ExpirableCache cache);
+    void scheduleAutoCleanup(ExpirableCache cache, CacheScheduler scheduler);
 
-    default void updateAccessTimeForRead(CacheEntry<V> entry) {}
+    default void updateAccessTimeForRead(CacheEntry<V> entry, long now) {}
 
-    default void updateAccessTimeForWrite(CacheEntry<V> entry) {}
+    default void updateAccessTimeForWrite(CacheEntry<V> entry, long now) {}
 
-    boolean isExpired(CacheEntry<V> entry);
-}
\ No newline at end of file
+    /**
+     * Time in millis after which the entry is expired, used to schedule it on the {@link TimerWheel}.
+     * @param entry
+     * @return expiration time
+     */
+    long getExpirationTime(CacheEntry<V> entry);
+
+    default boolean isExpired(CacheEntry<V> entry, long now) {
+        return now > getExpirationTime(entry);
+    }
+
+    /**
+     * Expiration time of an entry written at writeTime and last accessed at accessTime, for caches
+     * keeping entry times in primitive arrays instead of {@link CacheEntry} objects.
+     * @param writeTime
+     * @param accessTime the write time, moved by reads only if {@link #isAccessTimeUpdatedOnRead()}
+     * @return expiration time
+     */
+    long getExpirationTime(long writeTime, long accessTime);
+
+    /**
+     * Whether reads move the access time of an entry, as {@link #updateAccessTimeForRead} does.
+     * @return true if reads extend the lifetime of an entry
+     */
+    default boolean isAccessTimeUpdatedOnRead() {
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.CacheApplication.expiration;
+
+/**
+ * Lifetime of each entry of a cache, computed when the entry is created, updated and read, in place
+ * of the single TTL of an {@link ExpirationPolicy}. Durations are in millis from now,
+ * {@link Long#MAX_VALUE} for an entry that does not expire. Called while the entry is written
+ * or read, so implementations should be cheap and must not call the cache.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public interface Expiry<K, V> {
+    long expireAfterCreate(K key, V value, long now);
+
+    /**
+     * Lifetime of an entry after its value is replaced, a new lifetime as on create by default.
+     * @param key
+     * @param value the new value
+     * @param now
+     * @param currentDuration remaining lifetime of the entry
+     * @return lifetime in millis
+     */
+    default long expireAfterUpdate(K key, V value, long now, long currentDuration) {
+        return expireAfterCreate(key, value, now);
+    }
+
+    /**
+     * Lifetime of an entry after it is read, the remaining lifetime is kept by default.
+     * @param key
+     * @param value
+     * @param now
+     * @param currentDuration remaining lifetime of the entry
+     * @return lifetime in millis
+     */
+    default long expireAfterRead(K key, V value, long now, long currentDuration) {
+        return currentDuration;
+    }
+}
@@ -8,7 +8,12 @@ public class TimeSinceCreationExpiration<K, V> extends BaseExpirationPolicy<K, V
     }
 
     @Override
-    public boolean isExpired(CacheEntry<V> entry) {
-        return System.currentTimeMillis() - entry.getCreationTime() > ttlMillis;
+    public long getExpirationTime(CacheEntry<V> entry) {
+        return entry.getCreationTime() + ttlMillis;
+    }
+
+    @Override
+    public long getExpirationTime(long writeTime, long accessTime) {
+        return writeTime + ttlMillis;
     }
 }
\ No newline at end of file
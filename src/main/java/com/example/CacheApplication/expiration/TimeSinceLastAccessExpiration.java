@@ -8,12 +8,17 @@ public class TimeSinceLastAccessExpiration<K, V> extends BaseExpirationPolicy<K,
     }
 
     @Override
-    public void updateAccessTimeForRead(CacheEntry<V> entry) {
-        entry.updateLastAccessTime();
+    public void updateAccessTimeForRead(CacheEntry<V> entry, long now) {
+        entry.updateLastAccessTime(now);
     }
 
     @Override
-    public void updateAccessTimeForWrite(CacheEntry<V> entry) {
-        entry.updateLastAccessTime();
+    public void updateAccessTimeForWrite(CacheEntry<V> entry, long now) {
+        entry.updateLastAccessTime(now);
+    }
+
+    @Override
+    public boolean isAccessTimeUpdatedOnRead() {
+        return true;
     }
 }
\ No newline at end of file
@@ -8,7 +8,7 @@ public class TimeSinceLastWriteExpiration<K, V> extends BaseExpirationPolicy<K,
     }
 
     @Override
-    public void updateAccessTimeForWrite(CacheEntry<V> entry) {
-        entry.updateLastAccessTime();
+    public void updateAccessTimeForWrite(CacheEntry<V> entry, long now) {
+        entry.updateLastAccessTime(now);
     }
 }
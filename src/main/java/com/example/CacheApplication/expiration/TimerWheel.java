@@ -0,0 +1,171 @@
+package com.example.CacheApplication.expiration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel tracking the expiration time of cache keys.
+ * Keys are hashed into coarse buckets by expiration time so scheduling, rescheduling and
+ * removal are O(1), and {@link #advance(long)} only visits the buckets whose time has passed
+ * instead of scanning every entry. Each level covers 64 buckets of the level below it,
+ * keys due beyond the last level are kept in a single overflow bucket.
+ * Bucket granularity is coarse, callers must re-check the exact expiration time of the keys
+ * returned by {@link #advance(long)}.
+ *
+ * @param <K>
+ */
+public class TimerWheel<K> {
+    /** Resolution of the finest level, ~128ms. */
+    public static final long TICK_MILLIS = 1L << 7;
+
+    private static final int[] BUCKETS = {64, 64, 64, 16, 1};
+    private static final long[] SPANS = {
+            1L << 7,   // 128ms
+            1L << 13,  // 8.2s
+            1L << 19,  // 8.7m
+            1L << 25,  // 9.3h
+            1L << 29,  // 6.2d
+            1L << 29
+    };
+    private static final int[] SHIFT = {7, 13, 19, 25, 29};
+
+    private final Node<K>[][] wheel;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private long time;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long currentTimeMillis) {
+        this.time = currentTimeMillis;
+        this.wheel = new Node[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new Node[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = Node.sentinel();
+            }
+        }
+    }
+
+    /**
+     * Schedule key to expire at expirationTime, replacing any previous schedule for the key.
+     * @param key
+     * @param expirationTime
+     */
+    public synchronized void schedule(K key, long expirationTime) {
+        Node<K> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            nodes.put(key, node);
+        } else {
+            node.unlink();
+        }
+        node.expirationTime = expirationTime;
+        link(findBucket(expirationTime), node);
+    }
+
+    public synchronized void deschedule(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node != null) {
+            node.unlink();
+        }
+    }
+
+    /**
+     * Advance the wheel to currentTimeMillis and remove the keys whose expiration time has passed.
+     * Keys in the visited buckets that are not due yet are cascaded to a finer bucket.
+     * @param currentTimeMillis
+     * @return keys due for expiration
+     */
+    public synchronized List<K> advance(long currentTimeMillis) {
+        long previousTime = time;
+        time = currentTimeMillis;
+        List<K> expired = new ArrayList<>();
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTime >>> SHIFT[i];
+            long currentTicks = currentTimeMillis >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0L) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, expired);
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    private void expire(int level, long previousTicks, long delta, List<K> expired) {
+        Node<K>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1L + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            Node<K> sentinel = buckets[i & mask];
+            Node<K> node = sentinel.next;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            while (node != sentinel) {
+                Node<K> next = node.next;
+                node.prev = null;
+                node.next = null;
+                if (node.expirationTime <= time) {
+                    nodes.remove(node.key);
+                    expired.add(node.key);
+                } else {
+                    link(findBucket(node.expirationTime), node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private Node<K> findBucket(long expirationTime) {
+        // keys already due go to the current bucket so the next advance picks them up
+        long dueTime = Math.max(expirationTime, time);
+        long duration = dueTime - time;
+        int last = wheel.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = dueTime >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    private static <K> void link(Node<K> sentinel, Node<K> node) {
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private static final class Node<K> {
+        private final K key;
+        private long expirationTime;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key) {
+            this.key = key;
+        }
+
+        private static <K> Node<K> sentinel() {
+            Node<K> sentinel = new Node<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
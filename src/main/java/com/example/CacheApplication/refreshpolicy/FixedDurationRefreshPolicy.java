@@ -2,26 +2,208 @@ package com.example.CacheApplication.refreshpolicy;
 
 import com.example.CacheApplication.core.RefreshableCache;
 import com.example.CacheApplication.datastore.DataStore;
-import com.example.CacheApplication.util.ScheduledExecutorUtil;
+import com.example.CacheApplication.util.CacheScheduler;
+import lombok.Builder;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * Policy to schedule refreshing cache items at a fixed duration and
- * overwrite with update value from the backing {@link DataStore} datastore
+ * overwrite with update value from the backing {@link DataStore} datastore.
+ * Keys are spread over refreshSlots slots by a hash jittered per policy instance, and one slot is
+ * refreshed every refreshPeriodMillis / refreshSlots, so each key is still refreshed once per period
+ * without the whole cache hitting the datastore at once. Keys are assigned to slots once per period,
+ * keys cached later in the period wait for the next one. Keys of a slot are read in batches of
+ * batchSize on the cache's loader executor, up to concurrency batches in parallel, limited to
+ * maxRefreshesPerSecond keys when set.
  * @param <K>
  * @param <V>
  */
+@Builder
 public class FixedDurationRefreshPolicy<K, V> implements RefreshPolicy<K, V> {
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
     private final long refreshPeriodMillis;
+    @Builder.Default
+    private final int refreshSlots = 1;
+    // 0 for no limit
+    @Builder.Default
+    private final double maxRefreshesPerSecond = 0;
+    @Builder.Default
+    private final int concurrency = 1;
+    @Builder.Default
+    private final int batchSize = DEFAULT_BATCH_SIZE;
+
+    private final int slotSeed = ThreadLocalRandom.current().nextInt();
+    private final AtomicLong sweeps = new AtomicLong();
+    private final LongAdder refreshedKeys = new LongAdder();
+    private final AtomicLong firstSweepTime = new AtomicLong();
+    private final AtomicLong lastSweepDurationMillis = new AtomicLong();
+    private final AtomicLong lastSweepLagMillis = new AtomicLong();
+    // sweeps scheduled but not finished, they run one at a time
+    private final AtomicInteger dueSweeps = new AtomicInteger();
+    // keys of the current period by slot, only touched by the running sweep
+    private final List<List<K>> slotKeys = new ArrayList<>();
 
     public FixedDurationRefreshPolicy(long refreshPeriodMillis) {
+        this(refreshPeriodMillis, 1, 0, 1, DEFAULT_BATCH_SIZE);
+    }
+
+    private FixedDurationRefreshPolicy(long refreshPeriodMillis, int refreshSlots, double maxRefreshesPerSecond,
+                                       int concurrency, int batchSize) {
+        if (refreshSlots <= 0 || refreshPeriodMillis < refreshSlots) {
+            throw new IllegalArgumentException("Refresh period must be at least one millisecond per refresh slot.");
+        }
+        if (maxRefreshesPerSecond < 0) {
+            throw new IllegalArgumentException("Max refreshes per second must not be negative.");
+        }
+        if (concurrency <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Concurrency and batch size must be greater than zero.");
+        }
         this.refreshPeriodMillis = refreshPeriodMillis;
+        this.refreshSlots = refreshSlots;
+        this.maxRefreshesPerSecond = maxRefreshesPerSecond;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
     }
 
     @Override
-    public void scheduleAutoRefresh(RefreshableCache<K, V> cache) {
-        ScheduledExecutorUtil.scheduleAtFixedRate(cache.getAutoRefreshRunnable(),
-                refreshPeriodMillis, refreshPeriodMillis, TimeUnit.MILLISECONDS);
+    public void scheduleAutoRefresh(RefreshableCache<K, V> cache, CacheScheduler scheduler) {
+        RefreshRateLimiter rateLimiter = maxRefreshesPerSecond > 0 ? new RefreshRateLimiter(maxRefreshesPerSecond) : null;
+        Executor executor = cache.getLoaderExecutor();
+        long slotPeriodMillis = refreshPeriodMillis / refreshSlots;
+        firstSweepTime.set(System.currentTimeMillis() + slotPeriodMillis);
+        // the scheduler thread only hands the sweep over, datastore reads and rate limit waits run on the loader executor
+        scheduler.scheduleAtFixedRate(() -> {
+            if (dueSweeps.getAndIncrement() == 0) {
+                startSweep(cache, rateLimiter, executor);
+            }
+        }, slotPeriodMillis, slotPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run the due sweeps one after another, a sweep overrunning its slot delays the next one instead of overlapping it.
+     */
+    private void startSweep(RefreshableCache<K, V> cache, RefreshRateLimiter rateLimiter, Executor executor) {
+        try {
+            CompletableFuture.supplyAsync(() -> sweep(cache, rateLimiter, executor), executor)
+                    .thenCompose(Function.identity())
+                    .whenComplete((ignored, failure) -> {
+                        if (dueSweeps.decrementAndGet() > 0) {
+                            startSweep(cache, rateLimiter, executor);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            // the cache is closing
+            dueSweeps.set(0);
+        }
+    }
+
+    /**
+     * Refresh the keys of the next slot, the keys of every slot are assigned when the first slot of a period is swept.
+     * @return completes once the batches of the slot are refreshed
+     */
+    private CompletableFuture<Void> sweep(RefreshableCache<K, V> cache, RefreshRateLimiter rateLimiter, Executor executor) {
+        long sweep = sweeps.getAndIncrement();
+        long startTime = System.currentTimeMillis();
+        long scheduledTime = firstSweepTime.get() + sweep * (refreshPeriodMillis / refreshSlots);
+        lastSweepLagMillis.set(Math.max(0L, startTime - scheduledTime));
+        int slot = (int) (sweep % refreshSlots);
+        if (slot == 0) {
+            assignSlots(cache.getKeys());
+        }
+
+        Queue<List<K>> batches = new ConcurrentLinkedQueue<>();
+        Set<K> cachedKeys = cache.getKeys();
+        List<K> batch = new ArrayList<>();
+        for (K key : slotKeys.get(slot)) {
+            // skip keys removed since the scan, refreshing them would load them back
+            if (!cachedKeys.contains(key)) {
+                continue;
+            }
+            batch.add(key);
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        slotKeys.set(slot, List.of());
+
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(concurrency, batches.size())];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(() -> refreshBatches(cache, batches, rateLimiter), executor);
+        }
+        return CompletableFuture.allOf(workers).whenComplete((ignored, failure) ->
+                lastSweepDurationMillis.set(System.currentTimeMillis() - startTime));
+    }
+
+    private void assignSlots(Set<K> keys) {
+        slotKeys.clear();
+        for (int i = 0; i < refreshSlots; i++) {
+            slotKeys.add(new ArrayList<>());
+        }
+        for (K key : keys) {
+            slotKeys.get(slotOf(key)).add(key);
+        }
+    }
+
+    private void refreshBatches(RefreshableCache<K, V> cache, Queue<List<K>> batches, RefreshRateLimiter rateLimiter) {
+        List<K> keys;
+        while ((keys = batches.poll()) != null) {
+            if (rateLimiter != null) {
+                try {
+                    rateLimiter.acquire(keys.size());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            cache.updateCacheValues(keys);
+            refreshedKeys.add(keys.size());
+        }
+    }
+
+    private int slotOf(K key) {
+        if (refreshSlots == 1) {
+            return 0;
+        }
+        int hash = (key.hashCode() ^ slotSeed) * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), refreshSlots);
+    }
+
+    /**
+     * Time the last sweep took to refresh its slot.
+     * @return duration in millis
+     */
+    public long getLastSweepDurationMillis() {
+        return lastSweepDurationMillis.get();
+    }
+
+    /**
+     * How late the last sweep started compared to its schedule, grows when sweeps overrun their slot.
+     * @return lag in millis
+     */
+    public long getLastSweepLagMillis() {
+        return lastSweepLagMillis.get();
+    }
+
+    public long getRefreshedKeys() {
+        return refreshedKeys.sum();
     }
-}
\ No newline at end of file
+}
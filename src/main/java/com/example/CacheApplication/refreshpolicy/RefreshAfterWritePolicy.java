@@ -0,0 +1,40 @@
+package com.example.CacheApplication.refreshpolicy;
+
+import com.example.CacheApplication.core.CacheEntry;
+import com.example.CacheApplication.core.RefreshableCache;
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.util.CacheScheduler;
+
+/**
+ * Policy to refresh cache items ahead of time on access. A read hitting an entry written more than
+ * refreshAfterWriteMillis ago returns the current value and reloads the entry from the backing
+ * {@link DataStore} in the background. Entries that are not read are never reloaded and are left
+ * to expire.
+ * @param <K>
+ * @param <V>
+ */
+public class RefreshAfterWritePolicy<K, V> implements RefreshPolicy<K, V> {
+    private final long refreshAfterWriteMillis;
+
+    public RefreshAfterWritePolicy(long refreshAfterWriteMillis) {
+        if (refreshAfterWriteMillis <= 0) {
+            throw new IllegalArgumentException("Refresh after write duration must be greater than zero.");
+        }
+        this.refreshAfterWriteMillis = refreshAfterWriteMillis;
+    }
+
+    @Override
+    public void scheduleAutoRefresh(RefreshableCache<K, V> cache, CacheScheduler scheduler) {
+        // nothing to schedule, entries are refreshed when read
+    }
+
+    @Override
+    public boolean shouldRefreshOnRead(CacheEntry<V> entry, long now) {
+        return shouldRefreshOnRead(entry.getCreationTime(), now);
+    }
+
+    @Override
+    public boolean shouldRefreshOnRead(long writeTime, long now) {
+        return now - writeTime >= refreshAfterWriteMillis;
+    }
+}
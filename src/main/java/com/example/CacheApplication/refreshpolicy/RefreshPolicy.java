@@ -1,7 +1,31 @@
 package com.example.CacheApplication.refreshpolicy;
 
+import com.example.CacheApplication.core.CacheEntry;
 import com.example.CacheApplication.core.RefreshableCache;
+import com.example.CacheApplication.util.CacheScheduler;
 
 public interface RefreshPolicy<K, V> {
-    void scheduleAutoRefresh(RefreshableCache<K, V> cache);
+    void scheduleAutoRefresh(RefreshableCache<K, V> cache, CacheScheduler scheduler);
+
+    /**
+     * Whether a read hitting entry should trigger an asynchronous reload of it.
+     * The read still returns the current value.
+     * @param entry
+     * @param now
+     * @return true to refresh the entry
+     */
+    default boolean shouldRefreshOnRead(CacheEntry<V> entry, long now) {
+        return false;
+    }
+
+    /**
+     * Whether a read hitting an entry written at writeTime should trigger an asynchronous reload,
+     * for caches keeping entry times in primitive arrays instead of {@link CacheEntry} objects.
+     * @param writeTime
+     * @param now
+     * @return true to refresh the entry
+     */
+    default boolean shouldRefreshOnRead(long writeTime, long now) {
+        return false;
+    }
 }
@@ -0,0 +1,30 @@
+package com.example.CacheApplication.refreshpolicy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits refresh loads to a number of keys per second by spacing out reservations,
+ * a caller waits until the permits it reserved are due.
+ */
+class RefreshRateLimiter {
+    private final double nanosPerPermit;
+    private long nextFreeNanos = System.nanoTime();
+
+    RefreshRateLimiter(double permitsPerSecond) {
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+    }
+
+    void acquire(int permits) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // unused time is not saved up, so an idle limiter does not allow a burst
+            nextFreeNanos = Math.max(nextFreeNanos, now);
+            waitNanos = nextFreeNanos - now;
+            nextFreeNanos += (long) (permits * nanosPerPermit);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.CacheApplication.stats;
+
+import com.example.CacheApplication.core.InMemoryCache;
+import com.example.CacheApplication.storage.CompressedStore;
+import com.example.CacheApplication.writepolicy.WriteBackPropagationPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Registers the statistics of an {@link InMemoryCache} as Micrometer meters tagged with the cache
+ * name. Meters read the cache's counters when they are published, nothing is recorded twice.
+ * Write-back buffer depth, flush lag and flush time are registered when the cache propagates writes
+ * with a {@link WriteBackPropagationPolicy}, compression ratio and (de)compression time when it
+ * compresses values in a {@link CompressedStore}.
+ */
+public class CacheMetricsBinder implements MeterBinder {
+    private static final double[] PERCENTILES = {0.5, 0.99};
+
+    private final InMemoryCache<?, ?> cache;
+    private final Tags tags;
+    private final List<Meter> meters = new ArrayList<>();
+    private MeterRegistry registry;
+
+    public CacheMetricsBinder(InMemoryCache<?, ?> cache, String cacheName) {
+        this.cache = cache;
+        this.tags = Tags.of("cache", cacheName);
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        counter("cache.gets", "result", "hit", "Lookups that found a cached value", CacheStats::hitCount);
+        counter("cache.gets", "result", "miss", "Lookups that found no cached value", CacheStats::missCount);
+        counter("cache.puts", null, null, "Values written to the cache", CacheStats::putCount);
+        counter("cache.loads", "result", "success", "Loads that produced a value", CacheStats::loadSuccessCount);
+        counter("cache.loads", "result", "failure", "Loads that failed or found no value", CacheStats::loadFailureCount);
+        counter("cache.evictions", null, null, "Entries evicted for capacity", CacheStats::evictionCount);
+        counter("cache.expirations", null, null, "Entries removed after expiring", CacheStats::expirationCount);
+        counter("cache.refreshes", "result", "success", "Refreshes that reloaded a value", CacheStats::refreshSuccessCount);
+        counter("cache.refreshes", "result", "failure", "Refreshes that failed", CacheStats::refreshFailureCount);
+        counter("cache.rejected.writes", null, null, "Values the cache had no storage left for",
+                CacheStats::rejectedWriteCount);
+        meters.add(Gauge.builder("cache.size", cache, InMemoryCache::getSize)
+                .tags(tags).description("Number of cached entries").register(registry));
+
+        latency("cache.load.duration", "Time spent loading values", stats -> stats.loadLatency());
+        latency("cache.refresh.duration", "Time spent refreshing values", stats -> stats.refreshLatency());
+
+        if (cache.getWritePropagationPolicy() instanceof WriteBackPropagationPolicy<?, ?> writeBack) {
+            meters.add(Gauge.builder("cache.writeback.pending", writeBack, WriteBackPropagationPolicy::getPendingWrites)
+                    .tags(tags).description("Writes buffered for the datastore").register(registry));
+            meters.add(TimeGauge.builder("cache.writeback.lag", writeBack, TimeUnit.MILLISECONDS,
+                            WriteBackPropagationPolicy::getFlushLagMillis)
+                    .tags(tags).description("Age of the oldest unflushed write").register(registry));
+            meters.add(FunctionTimer.builder("cache.writeback.flush.duration", writeBack,
+                            policy -> policy.getFlushLatency().snapshot().count(),
+                            policy -> policy.getFlushLatency().snapshot().totalNanos(), TimeUnit.NANOSECONDS)
+                    .tags(tags).description("Time spent writing batches to the datastore").register(registry));
+        }
+
+        if (cache.getValueStore() instanceof CompressedStore<?> compressed) {
+            meters.add(FunctionCounter.builder("cache.compression.values", compressed, CompressedStore::getCompressedValues)
+                    .tags(tags.and("result", "compressed")).description("Values stored compressed").register(registry));
+            meters.add(FunctionCounter.builder("cache.compression.values", compressed, CompressedStore::getUncompressedValues)
+                    .tags(tags.and("result", "uncompressed"))
+                    .description("Values stored as objects, below the threshold or not shrinking").register(registry));
+            meters.add(Gauge.builder("cache.compression.ratio", compressed, CompressedStore::getCompressionRatio)
+                    .tags(tags).description("Serialized over compressed size of the compressed values").register(registry));
+            meters.add(FunctionCounter.builder("cache.compression.decompressed.hits", compressed,
+                            CompressedStore::getDecompressedCacheHits)
+                    .tags(tags).description("Reads served from the decompressed-value cache").register(registry));
+            meters.add(FunctionTimer.builder("cache.compression.compress.duration", compressed,
+                            store -> store.getCompressLatency().snapshot().count(),
+                            store -> store.getCompressLatency().snapshot().totalNanos(), TimeUnit.NANOSECONDS)
+                    .tags(tags).description("Time spent compressing values").register(registry));
+            meters.add(FunctionTimer.builder("cache.compression.decompress.duration", compressed,
+                            store -> store.getDecompressLatency().snapshot().count(),
+                            store -> store.getDecompressLatency().snapshot().totalNanos(), TimeUnit.NANOSECONDS)
+                    .tags(tags).description("Time spent decompressing values").register(registry));
+        }
+    }
+
+    /**
+     * Remove the meters registered by {@link #bindTo(MeterRegistry)}.
+     */
+    public synchronized void unbind() {
+        if (registry != null) {
+            meters.forEach(registry::remove);
+            meters.clear();
+        }
+    }
+
+    private void counter(String name, String tagKey, String tagValue, String description,
+                         ToDoubleFunction<CacheStats> count) {
+        Tags meterTags = tagKey == null ? tags : tags.and(tagKey, tagValue);
+        meters.add(FunctionCounter.builder(name, cache, c -> count.applyAsDouble(c.stats()))
+                .tags(meterTags).description(description).register(registry));
+    }
+
+    private void latency(String name, String description,
+                         Function<CacheStats, LatencyHistogram.Snapshot> histogram) {
+        meters.add(FunctionTimer.builder(name, cache,
+                        c -> histogram.apply(c.stats()).count(),
+                        c -> histogram.apply(c.stats()).totalNanos(), TimeUnit.NANOSECONDS)
+                .tags(tags).description(description).register(registry));
+        for (double percentile : PERCENTILES) {
+            meters.add(TimeGauge.builder(name + ".percentile", cache, TimeUnit.NANOSECONDS,
+                            c -> histogram.apply(c.stats()).percentileNanos(percentile))
+                    .tags(tags.and("percentile", String.valueOf(percentile)))
+                    .description(description).register(registry));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.CacheApplication.stats;
+
+/**
+ * Snapshot of the statistics of a cache.
+ */
+public record CacheStats(long hitCount, long missCount, long putCount,
+                         long loadSuccessCount, long loadFailureCount,
+                         long evictionCount, long expirationCount,
+                         long refreshSuccessCount, long refreshFailureCount, long rejectedWriteCount,
+                         LatencyHistogram.Snapshot loadLatency, LatencyHistogram.Snapshot refreshLatency) {
+    public static final CacheStats EMPTY = new CacheStats(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L,
+            LatencyHistogram.Snapshot.EMPTY, LatencyHistogram.Snapshot.EMPTY);
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Share of lookups that were hits, 1.0 when there were no lookups.
+     * @return hit rate
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long loadCount() {
+        return loadSuccessCount + loadFailureCount;
+    }
+
+    /**
+     * Average time spent loading a value on a miss.
+     * @return nanos
+     */
+    public double averageLoadPenaltyNanos() {
+        return loadLatency.meanNanos();
+    }
+}
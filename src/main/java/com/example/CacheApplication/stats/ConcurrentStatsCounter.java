@@ -0,0 +1,84 @@
+package com.example.CacheApplication.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link StatsCounter} on striped {@link LongAdder} counters, so concurrent lookups do not contend
+ * on a shared counter, with {@link LatencyHistogram}s for load and refresh times.
+ */
+public class ConcurrentStatsCounter implements StatsCounter {
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder putCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+    private final LongAdder expirationCount = new LongAdder();
+    private final LongAdder refreshSuccessCount = new LongAdder();
+    private final LongAdder refreshFailureCount = new LongAdder();
+    private final LongAdder rejectedWriteCount = new LongAdder();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final LatencyHistogram refreshLatency = new LatencyHistogram();
+
+    @Override
+    public void recordHits(int count) {
+        hitCount.add(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        missCount.add(count);
+    }
+
+    @Override
+    public void recordPut() {
+        putCount.increment();
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos) {
+        loadSuccessCount.increment();
+        loadLatency.record(loadTimeNanos);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos) {
+        loadFailureCount.increment();
+        loadLatency.record(loadTimeNanos);
+    }
+
+    @Override
+    public void recordEviction() {
+        evictionCount.increment();
+    }
+
+    @Override
+    public void recordExpiration() {
+        expirationCount.increment();
+    }
+
+    @Override
+    public void recordRefreshSuccess(long refreshTimeNanos) {
+        refreshSuccessCount.increment();
+        refreshLatency.record(refreshTimeNanos);
+    }
+
+    @Override
+    public void recordRefreshFailure(long refreshTimeNanos) {
+        refreshFailureCount.increment();
+        refreshLatency.record(refreshTimeNanos);
+    }
+
+    @Override
+    public void recordRejectedWrite() {
+        rejectedWriteCount.increment();
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), putCount.sum(),
+                loadSuccessCount.sum(), loadFailureCount.sum(), evictionCount.sum(), expirationCount.sum(),
+                refreshSuccessCount.sum(), refreshFailureCount.sum(), rejectedWriteCount.sum(),
+                loadLatency.snapshot(), refreshLatency.snapshot());
+    }
+}
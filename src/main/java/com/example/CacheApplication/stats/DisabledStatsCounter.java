@@ -0,0 +1,40 @@
+package com.example.CacheApplication.stats;
+
+enum DisabledStatsCounter implements StatsCounter {
+    INSTANCE;
+
+    @Override
+    public void recordHits(int count) {}
+
+    @Override
+    public void recordMisses(int count) {}
+
+    @Override
+    public void recordPut() {}
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos) {}
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos) {}
+
+    @Override
+    public void recordEviction() {}
+
+    @Override
+    public void recordExpiration() {}
+
+    @Override
+    public void recordRefreshSuccess(long refreshTimeNanos) {}
+
+    @Override
+    public void recordRefreshFailure(long refreshTimeNanos) {}
+
+    @Override
+    public void recordRejectedWrite() {}
+
+    @Override
+    public CacheStats snapshot() {
+        return CacheStats.EMPTY;
+    }
+}
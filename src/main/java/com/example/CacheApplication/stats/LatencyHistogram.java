@@ -0,0 +1,83 @@
+package com.example.CacheApplication.stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe latency histogram with power-of-two nanosecond buckets. Recording is a few striped
+ * {@link LongAdder} increments, percentiles are resolved to the upper bound of their bucket.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long duration = Math.max(0L, nanos);
+        // bucket i holds durations in [2^(i-1), 2^i)
+        buckets[Long.SIZE - Long.numberOfLeadingZeros(duration)].increment();
+        count.increment();
+        totalNanos.add(duration);
+        if (duration > maxNanos.get()) {
+            maxNanos.accumulateAndGet(duration, Math::max);
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketCounts[i] = buckets[i].sum();
+        }
+        return new Snapshot(count.sum(), totalNanos.sum(), maxNanos.get(), bucketCounts);
+    }
+
+    /**
+     * Point in time copy of the histogram, counters may be slightly apart under concurrent recording.
+     */
+    public record Snapshot(long count, long totalNanos, long maxNanos, long[] bucketCounts) {
+        public static final Snapshot EMPTY = new Snapshot(0L, 0L, 0L, new long[BUCKETS]);
+
+        public double meanNanos() {
+            return count == 0 ? 0.0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Latency below which the given share of the recorded durations fall.
+         * @param percentile in [0, 1]
+         * @return upper bound of the bucket holding the percentile, in nanos
+         */
+        public long percentileNanos(double percentile) {
+            long recorded = 0;
+            for (long bucketCount : bucketCounts) {
+                recorded += bucketCount;
+            }
+            if (recorded == 0) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0.0), 1.0) * recorded);
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= Math.max(rank, 1L)) {
+                    long upperBound = i == 0 ? 0L : (i >= Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+                    return Math.min(upperBound, maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        public double percentile(double percentile, TimeUnit unit) {
+            return (double) percentileNanos(percentile) / unit.toNanos(1);
+        }
+    }
+}
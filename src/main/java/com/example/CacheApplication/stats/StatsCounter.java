@@ -0,0 +1,47 @@
+package com.example.CacheApplication.stats;
+
+/**
+ * Records the statistics of a cache, implementations must be thread-safe and cheap enough to
+ * be called on every lookup.
+ */
+public interface StatsCounter {
+    void recordHits(int count);
+
+    void recordMisses(int count);
+
+    void recordPut();
+
+    /**
+     * Record a load that produced a value, bulk loads are recorded once for the whole batch.
+     * @param loadTimeNanos
+     */
+    void recordLoadSuccess(long loadTimeNanos);
+
+    /**
+     * Record a load that failed or found no value.
+     * @param loadTimeNanos
+     */
+    void recordLoadFailure(long loadTimeNanos);
+
+    void recordEviction();
+
+    void recordExpiration();
+
+    void recordRefreshSuccess(long refreshTimeNanos);
+
+    void recordRefreshFailure(long refreshTimeNanos);
+
+    /**
+     * Record a value the storage of the cache had no room for, even after evicting every other entry.
+     */
+    void recordRejectedWrite();
+
+    CacheStats snapshot();
+
+    /**
+     * Counter recording nothing, used when stats are disabled.
+     */
+    static StatsCounter disabled() {
+        return DisabledStatsCounter.INSTANCE;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.CacheApplication.storage;
+
+/**
+ * Compresses serialized values, implementations must be thread-safe.
+ */
+public interface Codec {
+    byte[] compress(byte[] bytes);
+
+    /**
+     * @param bytes compressed bytes
+     * @param length length of the bytes before compression
+     * @return decompressed bytes
+     */
+    byte[] decompress(byte[] bytes, int length);
+}
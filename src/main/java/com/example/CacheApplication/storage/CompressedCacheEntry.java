@@ -0,0 +1,74 @@
+package com.example.CacheApplication.storage;
+
+import com.example.CacheApplication.core.CacheEntry;
+
+/**
+ * {@link CacheEntry} whose value is serialized and compressed by a {@link CompressedStore}, every
+ * read decompresses it unless it is in the store's decompressed-value cache.
+ *
+ * @param <V>
+ */
+public class CompressedCacheEntry<V> extends CacheEntry<V> {
+    private final CompressedStore<V> store;
+    private final byte[] bytes;
+    // length of the serialized value before compression
+    private final int length;
+    // slot of the entry in the decompressed-value cache
+    private final int slot;
+    // set on the first read, racy updates only delay caching the value
+    private boolean read;
+    private volatile boolean released;
+
+    CompressedCacheEntry(CompressedStore<V> store, byte[] bytes, int length, int slot, long creationTime) {
+        super(null, creationTime);
+        this.store = store;
+        this.bytes = bytes;
+        this.length = length;
+        this.slot = slot;
+    }
+
+    /**
+     * The value is compressed, it is never replaced in place.
+     */
+    @Override
+    public boolean compareAndSetValue(V expected, V newValue, long now, long expirationTime, long version) {
+        return false;
+    }
+
+    @Override
+    public V getValue() {
+        if (released) {
+            return null;
+        }
+        return store.decompress(this);
+    }
+
+    @Override
+    public void release() {
+        released = true;
+        store.forget(this);
+    }
+
+    byte[] getBytes() {
+        return bytes;
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * @return true if the entry was read before
+     */
+    boolean readAgain() {
+        if (read) {
+            return true;
+        }
+        read = true;
+        return false;
+    }
+}
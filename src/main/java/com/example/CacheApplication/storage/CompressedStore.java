@@ -0,0 +1,165 @@
+package com.example.CacheApplication.storage;
+
+import com.example.CacheApplication.core.CacheEntry;
+import com.example.CacheApplication.stats.LatencyHistogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compressed on-heap value storage of a cache. Values serializing to at least the threshold are
+ * compressed by a {@link Codec}, smaller values and values that do not shrink stay objects.
+ * Decompressed values of the hottest entries are kept in a small direct-mapped cache, an entry is
+ * admitted on its second read so values read once do not push out the hot ones. Records the
+ * compression ratio and the time spent compressing and decompressing, to weigh the CPU spent
+ * against the memory saved.
+ *
+ * @param <V>
+ */
+public class CompressedStore<V> implements ValueStore<V> {
+    private final Serializer<V> serializer;
+    private final Codec codec;
+    private final int thresholdBytes;
+    // decompressed values by entry slot, null when disabled. Racy slot writes only lose a cached value
+    private final Decoded<V>[] decoded;
+    private final int slotMask;
+
+    private final LongAdder compressedValues = new LongAdder();
+    private final LongAdder uncompressedValues = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder decompressedCacheHits = new LongAdder();
+    private final LatencyHistogram compressLatency = new LatencyHistogram();
+    private final LatencyHistogram decompressLatency = new LatencyHistogram();
+
+    private record Decoded<V>(CompressedCacheEntry<V> entry, V value) {}
+
+    /**
+     * @param serializer
+     * @param codec
+     * @param thresholdBytes serialized size below which values are not compressed
+     * @param decompressedCacheSize values kept decompressed, rounded up to a power of two, 0 to disable
+     */
+    @SuppressWarnings("unchecked")
+    public CompressedStore(Serializer<V> serializer, Codec codec, int thresholdBytes, int decompressedCacheSize) {
+        this.serializer = serializer;
+        this.codec = codec;
+        this.thresholdBytes = thresholdBytes;
+        if (decompressedCacheSize > 0) {
+            int slots = Integer.highestOneBit(decompressedCacheSize - 1) << 1;
+            this.decoded = new Decoded[Math.max(1, slots)];
+            this.slotMask = decoded.length - 1;
+        } else {
+            this.decoded = null;
+            this.slotMask = 0;
+        }
+    }
+
+    /**
+     * Serialize and compress value, or keep it as is below the threshold.
+     * @param value
+     * @param now creation time of the entry
+     * @return CacheEntry
+     */
+    @Override
+    public CacheEntry<V> newEntry(V value, long now) {
+        byte[] bytes = serializer.serialize(value);
+        if (bytes.length >= thresholdBytes) {
+            long start = System.nanoTime();
+            byte[] compressed = codec.compress(bytes);
+            compressLatency.record(System.nanoTime() - start);
+            if (compressed.length < bytes.length) {
+                compressedValues.increment();
+                uncompressedBytes.add(bytes.length);
+                compressedBytes.add(compressed.length);
+                int slot = decoded == null ? 0 : ThreadLocalRandom.current().nextInt() & slotMask;
+                return new CompressedCacheEntry<>(this, compressed, bytes.length, slot, now);
+            }
+        }
+        uncompressedValues.increment();
+        return new CacheEntry<>(value, now);
+    }
+
+    V decompress(CompressedCacheEntry<V> entry) {
+        if (decoded != null) {
+            Decoded<V> cached = decoded[entry.getSlot()];
+            if (cached != null && cached.entry() == entry) {
+                decompressedCacheHits.increment();
+                return cached.value();
+            }
+        }
+        long start = System.nanoTime();
+        V value = serializer.deserialize(codec.decompress(entry.getBytes(), entry.getLength()));
+        decompressLatency.record(System.nanoTime() - start);
+        if (decoded != null && entry.readAgain()) {
+            decoded[entry.getSlot()] = new Decoded<>(entry, value);
+        }
+        return value;
+    }
+
+    /**
+     * Drop the decompressed value of a released entry.
+     * @param entry
+     */
+    void forget(CompressedCacheEntry<V> entry) {
+        if (decoded != null) {
+            Decoded<V> cached = decoded[entry.getSlot()];
+            if (cached != null && cached.entry() == entry) {
+                decoded[entry.getSlot()] = null;
+            }
+        }
+    }
+
+    public long getCompressedValues() {
+        return compressedValues.sum();
+    }
+
+    /**
+     * Number of values stored as objects, below the threshold or not shrinking when compressed.
+     * @return uncompressed values
+     */
+    public long getUncompressedValues() {
+        return uncompressedValues.sum();
+    }
+
+    /**
+     * Serialized size of the values compressed so far.
+     * @return bytes before compression
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    /**
+     * Serialized size over compressed size of the values compressed so far, 1.0 before any.
+     * @return compression ratio
+     */
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.sum();
+        return compressed == 0 ? 1.0 : (double) uncompressedBytes.sum() / compressed;
+    }
+
+    /**
+     * Number of reads served from the decompressed-value cache.
+     * @return decompressed cache hits
+     */
+    public long getDecompressedCacheHits() {
+        return decompressedCacheHits.sum();
+    }
+
+    /**
+     * Time spent compressing values, including values kept uncompressed for not shrinking.
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getCompressLatency() {
+        return compressLatency;
+    }
+
+    public LatencyHistogram getDecompressLatency() {
+        return decompressLatency;
+    }
+}
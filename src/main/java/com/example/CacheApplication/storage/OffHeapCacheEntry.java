@@ -0,0 +1,57 @@
+package com.example.CacheApplication.storage;
+
+import com.example.CacheApplication.core.CacheEntry;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * {@link CacheEntry} whose value is serialized in off-heap memory of an {@link OffHeapStore}.
+ * The chunk is freed by {@link #release()} when the entry leaves the cache, a concurrent read
+ * of a released entry returns null instead of bytes that may already belong to another value.
+ *
+ * @param <V>
+ */
+public class OffHeapCacheEntry<V> extends CacheEntry<V> {
+    private final OffHeapStore<V> store;
+    private final long address;
+    private final int length;
+    private volatile boolean released;
+
+    OffHeapCacheEntry(OffHeapStore<V> store, long address, int length, long creationTime) {
+        super(null, creationTime);
+        this.store = store;
+        this.address = address;
+        this.length = length;
+    }
+
+    /**
+     * The value is serialized, it is never replaced in place.
+     */
+    @Override
+    public boolean compareAndSetValue(V expected, V newValue, long now, long expirationTime, long version) {
+        return false;
+    }
+
+    @Override
+    public V getValue() {
+        byte[] bytes = new byte[length];
+        store.getAllocator().read(address, bytes);
+        // the copy must complete before checking that the chunk was not freed and reused meanwhile
+        VarHandle.acquireFence();
+        if (released) {
+            return null;
+        }
+        return store.getSerializer().deserialize(bytes);
+    }
+
+    @Override
+    public void release() {
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+        }
+        store.getAllocator().free(address, length);
+    }
+}
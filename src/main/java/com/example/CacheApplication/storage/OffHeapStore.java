@@ -0,0 +1,109 @@
+package com.example.CacheApplication.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Off-heap value storage of a cache, serializes values into a {@link SlabAllocator}.
+ * Slabs are direct memory, or pages of a memory-mapped file for {@link StorageMode#FILE}.
+ *
+ * @param <V>
+ */
+public class OffHeapStore<V> implements ValueStore<V> {
+    public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private final SlabAllocator allocator;
+    private final Serializer<V> serializer;
+    // backing file of the slabs, null for direct memory
+    private final FileChannel file;
+
+    public OffHeapStore(long capacity, Serializer<V> serializer) {
+        this(new SlabAllocator(capacity, DEFAULT_SLAB_SIZE), serializer, null);
+    }
+
+    private OffHeapStore(SlabAllocator allocator, Serializer<V> serializer, FileChannel file) {
+        this.allocator = allocator;
+        this.serializer = serializer;
+        this.file = file;
+    }
+
+    /**
+     * Store whose slabs are mapped from a new file in directory, the OS keeps hot pages in memory
+     * and writes cold ones out to the file. The file is deleted when the store is closed, on Unix it
+     * is unlinked right after opening and only reachable through the store.
+     * @param capacity size the file may grow to
+     * @param serializer
+     * @param directory
+     * @return OffHeapStore
+     */
+    public static <V> OffHeapStore<V> mappedFile(long capacity, Serializer<V> serializer, Path directory) {
+        try {
+            Path path = Files.createTempFile(directory, "cache-", ".slabs");
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            SlabAllocator allocator = new SlabAllocator(capacity, DEFAULT_SLAB_SIZE, slab -> {
+                try {
+                    return channel.map(FileChannel.MapMode.READ_WRITE, (long) slab * DEFAULT_SLAB_SIZE, DEFAULT_SLAB_SIZE);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to map slab " + slab + " of " + path, e);
+                }
+            });
+            return new OffHeapStore<>(allocator, serializer, channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the cache file in " + directory, e);
+        }
+    }
+
+    /**
+     * Serialize value into off-heap memory.
+     * @param value
+     * @param now creation time of the entry
+     * @return entry referencing the stored value, or null if there is no free memory for it
+     * @throws IllegalArgumentException if the serialized value is larger than a slab
+     */
+    @Override
+    public OffHeapCacheEntry<V> newEntry(V value, long now) {
+        byte[] bytes = serializer.serialize(value);
+        if (bytes.length > DEFAULT_SLAB_SIZE) {
+            throw new IllegalArgumentException("Value of " + bytes.length
+                    + " bytes exceeds the slab size of " + DEFAULT_SLAB_SIZE + " bytes.");
+        }
+        long address = allocator.allocate(bytes.length);
+        if (address < 0) {
+            return null;
+        }
+        allocator.write(address, bytes);
+        return new OffHeapCacheEntry<>(this, address, bytes.length, now);
+    }
+
+    public long getUsedBytes() {
+        return allocator.getUsedBytes();
+    }
+
+    /**
+     * Close and delete the backing file. Mapped slabs stay readable until they are garbage collected.
+     */
+    @Override
+    public void close() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close the cache file", e);
+        }
+    }
+
+    SlabAllocator getAllocator() {
+        return allocator;
+    }
+
+    Serializer<V> getSerializer() {
+        return serializer;
+    }
+}
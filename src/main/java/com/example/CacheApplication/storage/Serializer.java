@@ -0,0 +1,12 @@
+package com.example.CacheApplication.storage;
+
+/**
+ * Converts values to and from bytes for storage outside the Java heap.
+ *
+ * @param <V>
+ */
+public interface Serializer<V> {
+    byte[] serialize(V value);
+
+    V deserialize(byte[] bytes);
+}
@@ -0,0 +1,184 @@
+package com.example.CacheApplication.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Allocates chunks of direct memory out of fixed size slabs. Chunk sizes are powers of two
+ * from {@link #MIN_CHUNK_SIZE} up to the slab size, each slab is carved into chunks of a single
+ * size class and freed chunks are reused by the next allocation of their class.
+ * Slabs are allocated lazily up to the capacity. A slab whose chunks are all freed is returned to
+ * a pool of empty slabs, which any size class carves next.
+ * Slabs are direct buffers unless a slab factory supplies them, e.g. mapped from a file.
+ */
+public class SlabAllocator {
+    public static final int MIN_CHUNK_SIZE = 64;
+    private static final int MIN_CHUNK_SHIFT = Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE);
+
+    private final int slabSize;
+    private final IntFunction<ByteBuffer> slabFactory;
+    // published to readers through the cache entry referencing the chunk
+    private final ByteBuffer[] slabs;
+    private int slabCount;
+    // allocated chunks per slab, a slab is empty again once its count drops to 0
+    private final int[] liveChunks;
+    private final int[] emptySlabs;
+    private int emptySlabCount;
+    private final long[][] freeChunks;
+    private final int[] freeCount;
+    // slab being carved and the next free offset in it, per size class
+    private final int[] carvingSlab;
+    private final int[] carvingOffset;
+    private long usedBytes;
+
+    /**
+     * @param capacity total bytes of direct memory the allocator may reserve
+     * @param slabSize bytes per slab, a power of two and the largest allocatable chunk
+     */
+    public SlabAllocator(long capacity, int slabSize) {
+        this(capacity, slabSize, slab -> ByteBuffer.allocateDirect(slabSize));
+    }
+
+    /**
+     * @param capacity total bytes the allocator may reserve
+     * @param slabSize bytes per slab, a power of two and the largest allocatable chunk
+     * @param slabFactory creates the buffer of slabSize bytes for the slab with the given index
+     */
+    public SlabAllocator(long capacity, int slabSize, IntFunction<ByteBuffer> slabFactory) {
+        if (slabSize < MIN_CHUNK_SIZE || Integer.bitCount(slabSize) != 1) {
+            throw new IllegalArgumentException("Slab size must be a power of two of at least " + MIN_CHUNK_SIZE + ".");
+        }
+        this.slabSize = slabSize;
+        this.slabFactory = slabFactory;
+        this.slabs = new ByteBuffer[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(1L, capacity / slabSize))];
+        this.liveChunks = new int[slabs.length];
+        this.emptySlabs = new int[slabs.length];
+        int sizeClasses = Integer.numberOfTrailingZeros(slabSize) - MIN_CHUNK_SHIFT + 1;
+        this.freeChunks = new long[sizeClasses][16];
+        this.freeCount = new int[sizeClasses];
+        this.carvingSlab = new int[sizeClasses];
+        this.carvingOffset = new int[sizeClasses];
+        Arrays.fill(carvingSlab, -1);
+    }
+
+    /**
+     * Allocate a chunk of at least size bytes.
+     * @param size
+     * @return address of the chunk, or -1 if the allocator is out of memory for its size class
+     */
+    public synchronized long allocate(int size) {
+        if (size > slabSize) {
+            return -1L;
+        }
+        int sizeClass = sizeClassOf(size);
+        int chunkSize = MIN_CHUNK_SIZE << sizeClass;
+        long address;
+        if (freeCount[sizeClass] > 0) {
+            address = freeChunks[sizeClass][--freeCount[sizeClass]];
+        } else {
+            if (carvingSlab[sizeClass] < 0 || carvingOffset[sizeClass] + chunkSize > slabSize) {
+                int slab = nextEmptySlab();
+                if (slab < 0) {
+                    return -1L;
+                }
+                carvingSlab[sizeClass] = slab;
+                carvingOffset[sizeClass] = 0;
+            }
+            address = (long) carvingSlab[sizeClass] * slabSize + carvingOffset[sizeClass];
+            carvingOffset[sizeClass] += chunkSize;
+        }
+        liveChunks[slabIndexOf(address)]++;
+        usedBytes += chunkSize;
+        return address;
+    }
+
+    /**
+     * Return the chunk at address, allocated with size, for reuse.
+     * @param address
+     * @param size
+     */
+    public synchronized void free(long address, int size) {
+        int sizeClass = sizeClassOf(size);
+        long[] chunks = freeChunks[sizeClass];
+        if (freeCount[sizeClass] == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            freeChunks[sizeClass] = chunks;
+        }
+        chunks[freeCount[sizeClass]++] = address;
+        usedBytes -= MIN_CHUNK_SIZE << sizeClass;
+        int slab = slabIndexOf(address);
+        if (--liveChunks[slab] == 0) {
+            releaseSlab(slab, sizeClass);
+        }
+    }
+
+    public void write(long address, byte[] bytes) {
+        slabOf(address).put(offsetOf(address), bytes);
+    }
+
+    public void read(long address, byte[] bytes) {
+        slabOf(address).get(offsetOf(address), bytes);
+    }
+
+    /**
+     * @return bytes held by allocated chunks, including rounding up to the chunk size
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized long getReservedBytes() {
+        return (long) slabCount * slabSize;
+    }
+
+    private int nextEmptySlab() {
+        if (emptySlabCount > 0) {
+            return emptySlabs[--emptySlabCount];
+        }
+        if (slabCount == slabs.length) {
+            return -1;
+        }
+        slabs[slabCount] = slabFactory.apply(slabCount);
+        return slabCount++;
+    }
+
+    /**
+     * Take the free chunks of an empty slab off the free list of its size class and pool the slab.
+     * @param slab
+     * @param sizeClass
+     */
+    private void releaseSlab(int slab, int sizeClass) {
+        long[] chunks = freeChunks[sizeClass];
+        int kept = 0;
+        for (int i = 0; i < freeCount[sizeClass]; i++) {
+            if (slabIndexOf(chunks[i]) != slab) {
+                chunks[kept++] = chunks[i];
+            }
+        }
+        freeCount[sizeClass] = kept;
+        if (carvingSlab[sizeClass] == slab) {
+            carvingSlab[sizeClass] = -1;
+        }
+        emptySlabs[emptySlabCount++] = slab;
+    }
+
+    private int slabIndexOf(long address) {
+        return (int) (address / slabSize);
+    }
+
+    private ByteBuffer slabOf(long address) {
+        return slabs[slabIndexOf(address)];
+    }
+
+    private int offsetOf(long address) {
+        return (int) (address % slabSize);
+    }
+
+    private static int sizeClassOf(int size) {
+        if (size <= MIN_CHUNK_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CHUNK_SHIFT;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.CacheApplication.storage;
+
+/**
+ * Where the cache keeps its values.
+ */
+public enum StorageMode {
+    /** Values are held as objects on the Java heap. */
+    ON_HEAP,
+    /** Values are serialized into slabs of direct memory, only a small index entry stays on heap. */
+    OFF_HEAP,
+    /** Values are serialized into slabs of a memory-mapped file, cold pages are written out to disk. */
+    FILE,
+    /** Values are serialized and compressed on the Java heap, small values are held as objects. */
+    COMPRESSED
+}
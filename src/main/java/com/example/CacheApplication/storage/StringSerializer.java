@@ -0,0 +1,15 @@
+package com.example.CacheApplication.storage;
+
+import java.nio.charset.StandardCharsets;
+
+public class StringSerializer implements Serializer<String> {
+    @Override
+    public byte[] serialize(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String deserialize(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
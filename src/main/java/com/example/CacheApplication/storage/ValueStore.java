@@ -0,0 +1,23 @@
+package com.example.CacheApplication.storage;
+
+import com.example.CacheApplication.core.CacheEntry;
+
+/**
+ * Storage of the values of a cache other than plain objects on heap. Entries of a store are
+ * never replaced in place, an overwrite stores a new entry.
+ *
+ * @param <V>
+ */
+public interface ValueStore<V> extends AutoCloseable {
+    /**
+     * Store value.
+     * @param value
+     * @param now creation time of the entry
+     * @return entry holding the stored value, or null if there is no room for it until entries are released
+     * @throws IllegalArgumentException if the value is larger than the store can ever hold
+     */
+    CacheEntry<V> newEntry(V value, long now);
+
+    @Override
+    default void close() {}
+}
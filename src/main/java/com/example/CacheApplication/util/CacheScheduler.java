@@ -0,0 +1,222 @@
+package com.example.CacheApplication.util;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scheduler for the maintenance tasks of a single cache - expiration, write-back flushes and refresh.
+ * Wraps either its own daemon executor, shut down on {@link #close()}, or a shared one, of which
+ * {@link #close()} only cancels the tasks scheduled through this scheduler.
+ * Records how late tasks start compared to their schedule, and counts tasks that failed. A failed
+ * run of a periodic task does not cancel its later runs.
+ */
+public class CacheScheduler implements AutoCloseable {
+    public static final int DEFAULT_POOL_SIZE = 2;
+
+    private static final AtomicInteger schedulerCount = new AtomicInteger();
+
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Set<Future<?>> futures = ConcurrentHashMap.newKeySet();
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder failedTasks = new LongAdder();
+    private final LongAdder totalDelayNanos = new LongAdder();
+    private final AtomicLong maxDelayNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Scheduler owning a daemon executor with {@value #DEFAULT_POOL_SIZE} threads.
+     */
+    public CacheScheduler() {
+        this(newDaemonExecutor(DEFAULT_POOL_SIZE), true);
+    }
+
+    /**
+     * Scheduler running tasks on a shared executor, which is left running on {@link #close()}.
+     * @param executor
+     */
+    public CacheScheduler(ScheduledExecutorService executor) {
+        this(executor, false);
+    }
+
+    private CacheScheduler(ScheduledExecutorService executor, boolean ownsExecutor) {
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null.");
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        TimedTask timedTask = new TimedTask(task, unit.toNanos(initialDelay), unit.toNanos(period), true);
+        return track(executor.scheduleAtFixedRate(timedTask, initialDelay, period, unit));
+    }
+
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay, TimeUnit unit) {
+        TimedTask timedTask = new TimedTask(task, unit.toNanos(initialDelay), unit.toNanos(delay), false);
+        return track(executor.scheduleWithFixedDelay(timedTask, initialDelay, delay, unit));
+    }
+
+    /**
+     * Run task once after delay, it is no longer tracked once it ran.
+     * @param task
+     * @param delay
+     * @param unit
+     * @return ScheduledFuture
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        TimedTask timedTask = new TimedTask(task, unit.toNanos(delay), 0L, false);
+        AtomicReference<Future<?>> scheduled = new AtomicReference<>();
+        ScheduledFuture<?> future = executor.schedule(() -> {
+            try {
+                timedTask.run();
+            } finally {
+                Future<?> self = scheduled.get();
+                if (self != null) {
+                    futures.remove(self);
+                }
+            }
+        }, delay, unit);
+        scheduled.set(future);
+        track(future);
+        if (future.isDone()) {
+            futures.remove(future);
+        }
+        return future;
+    }
+
+    public Future<?> executeAsync(Runnable task) {
+        FutureTask<Void> future = new FutureTask<>(new TimedTask(task, 0L, 0L, false), null) {
+            @Override
+            protected void done() {
+                futures.remove(this);
+            }
+        };
+        track(future);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            futures.remove(future);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Cancel the tasks scheduled through this scheduler and shut down its executor if it owns it.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        futures.forEach(future -> future.cancel(false));
+        futures.clear();
+        if (ownsExecutor) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Number of tasks waiting in the executor queue, including periodic tasks waiting for their next run.
+     * 0 if the executor does not expose its queue.
+     * @return queued tasks
+     */
+    public int getQueueDepth() {
+        return executor instanceof ThreadPoolExecutor pool ? pool.getQueue().size() : 0;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    public long getFailedTasks() {
+        return failedTasks.sum();
+    }
+
+    /**
+     * Average time task runs started after their scheduled time.
+     * @return delay in millis
+     */
+    public double getAverageTaskDelayMillis() {
+        long runs = completedTasks.sum() + failedTasks.sum();
+        return runs == 0 ? 0.0 : totalDelayNanos.sum() / (double) runs / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public long getMaxTaskDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxDelayNanos.get());
+    }
+
+    private <F extends Future<?>> F track(F future) {
+        futures.add(future);
+        if (closed) {
+            future.cancel(false);
+        }
+        return future;
+    }
+
+    private static ScheduledExecutorService newDaemonExecutor(int poolSize) {
+        int id = schedulerCount.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "cache-scheduler-" + id + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // drop cancelled periodic tasks from the queue right away instead of at their next run
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Task measuring how late each run starts. Fixed rate runs are due a period after the previous
+     * due time, fixed delay runs a delay after the previous run ended.
+     */
+    private final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long periodNanos;
+        private final boolean fixedRate;
+        private long dueTime;
+
+        private TimedTask(Runnable task, long initialDelayNanos, long periodNanos, boolean fixedRate) {
+            this.task = Objects.requireNonNull(task, "Task cannot be null.");
+            this.periodNanos = periodNanos;
+            this.fixedRate = fixedRate;
+            this.dueTime = System.nanoTime() + initialDelayNanos;
+        }
+
+        @Override
+        public void run() {
+            long delay = Math.max(0L, System.nanoTime() - dueTime);
+            totalDelayNanos.add(delay);
+            maxDelayNanos.accumulateAndGet(delay, Math::max);
+            try {
+                task.run();
+                completedTasks.increment();
+            } catch (RuntimeException e) {
+                failedTasks.increment();
+                if (periodNanos == 0L) {
+                    throw e;
+                }
+            } finally {
+                dueTime = fixedRate ? dueTime + periodNanos : System.nanoTime() + periodNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.CacheApplication.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Ticker} returning the system time cached by a daemon thread, refreshed every resolution
+ * millis. A read is a volatile load instead of a clock call, and lags the system clock by up to
+ * the resolution. {@link #close()} stops the thread, the last cached time is returned afterwards.
+ */
+public class CoarseTicker implements Ticker, AutoCloseable {
+    private final long resolutionNanos;
+    private final Thread updater;
+    private volatile long time = System.currentTimeMillis();
+    private volatile boolean closed;
+
+    public CoarseTicker(long resolutionMillis) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("Resolution must be greater than zero.");
+        }
+        this.resolutionNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMillis);
+        this.updater = Thread.ofPlatform().daemon().name("cache-coarse-ticker").start(this::update);
+    }
+
+    static CoarseTicker shared() {
+        return Shared.INSTANCE;
+    }
+
+    @Override
+    public long read() {
+        return time;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(updater);
+    }
+
+    private void update() {
+        while (!closed) {
+            time = System.currentTimeMillis();
+            LockSupport.parkNanos(resolutionNanos);
+        }
+    }
+
+    private static final class Shared {
+        private static final CoarseTicker INSTANCE = new CoarseTicker(1L);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.CacheApplication.util;
+
+enum SystemTicker implements Ticker {
+    INSTANCE;
+
+    @Override
+    public long read() {
+        return System.currentTimeMillis();
+    }
+}
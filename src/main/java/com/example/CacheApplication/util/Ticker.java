@@ -0,0 +1,26 @@
+package com.example.CacheApplication.util;
+
+/**
+ * Source of the current time in millis for a cache. {@link #system()} reads the system clock on
+ * every call, {@link #coarse()} a clock cached by a background thread, cheaper on hot paths at
+ * the cost of lagging behind by up to its resolution.
+ */
+@FunctionalInterface
+public interface Ticker {
+    /**
+     * @return current time in millis since the epoch
+     */
+    long read();
+
+    static Ticker system() {
+        return SystemTicker.INSTANCE;
+    }
+
+    /**
+     * Shared coarse ticker updated every millisecond.
+     * @return Ticker
+     */
+    static Ticker coarse() {
+        return CoarseTicker.shared();
+    }
+}
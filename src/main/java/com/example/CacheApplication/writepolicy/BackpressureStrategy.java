@@ -0,0 +1,12 @@
+package com.example.CacheApplication.writepolicy;
+
+/**
+ * What a write does when the write-behind buffer of {@link WriteBackPropagationPolicy}
+ * is at its high-water mark.
+ */
+public enum BackpressureStrategy {
+    /** Wait for a flush to make room in the buffer. */
+    BLOCK,
+    /** Write the value directly to the datastore, bypassing the buffer. */
+    WRITE_THROUGH
+}
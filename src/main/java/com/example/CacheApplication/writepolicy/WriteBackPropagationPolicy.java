@@ -1,36 +1,345 @@
 package com.example.CacheApplication.writepolicy;
 
 import com.example.CacheApplication.datastore.DataStore;
-import com.example.CacheApplication.util.ScheduledExecutorUtil;
+import com.example.CacheApplication.stats.LatencyHistogram;
+import com.example.CacheApplication.util.CacheScheduler;
+import lombok.Builder;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Write-behind {@link WritePropagationPolicy}. Writes are buffered and coalesced per key, only the
+ * latest value of a key is written to the datastore. The buffer is flushed every flushInterval and
+ * as soon as it holds maxBatchSize keys, in batches of at most maxBatchSize keys.
+ * A failed batch is retried up to maxRetries times with exponential backoff, then left in the
+ * buffer for the next flush. Once scheduled, a retry is a delayed task of the scheduler and scheduled
+ * or requested flushes skip while another flush runs, so a datastore outage does not hold up the
+ * scheduler threads. When the buffer reaches maxBufferSize keys, writes of keys not already
+ * buffered are handled as per the {@link BackpressureStrategy}.
+ * Until it is scheduled, a full batch is flushed on the writing thread.
+ *
+ * @param <K>
+ * @param <V>
+ */
+@Builder
 public class WriteBackPropagationPolicy<K, V> implements WritePropagationPolicy<K, V> {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    public static final int DEFAULT_MAX_BUFFER_SIZE = 10_000;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 100L;
+
     private final long flushInterval;
-    private final Map<K, V> writeBuffer = new ConcurrentHashMap<>();
     private final DataStore<K, V> dataStore;
+    @Builder.Default
+    private final int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    // high-water mark, concurrent writers may overshoot it by a few keys
+    @Builder.Default
+    private final int maxBufferSize = DEFAULT_MAX_BUFFER_SIZE;
+    @Builder.Default
+    private final BackpressureStrategy backpressure = BackpressureStrategy.BLOCK;
+    @Builder.Default
+    private final int maxRetries = DEFAULT_MAX_RETRIES;
+    @Builder.Default
+    private final long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+
+    private final Map<K, PendingWrite<V>> writeBuffer = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    private final Condition notFull = bufferLock.newCondition();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicBoolean retryScheduled = new AtomicBoolean();
+    // failed writes of the batch being flushed, updated under flushLock
+    private final AtomicInteger failedAttempts = new AtomicInteger();
+    private final AtomicReference<CacheScheduler> scheduler = new AtomicReference<>();
+    private final LongAdder flushedWrites = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    /**
+     * Buffered value of a key. Compared by identity, so a flush only removes the writes it stored.
+     * firstWriteTime is kept when a write is coalesced, it is the age of the oldest unflushed write.
+     */
+    private record PendingWrite<V>(V value, long firstWriteTime) {
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
 
     public WriteBackPropagationPolicy(long flushInterval, DataStore<K, V> dataStore) {
+        this(flushInterval, dataStore, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BUFFER_SIZE,
+                BackpressureStrategy.BLOCK, DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BACKOFF_MILLIS);
+    }
+
+    private WriteBackPropagationPolicy(long flushInterval, DataStore<K, V> dataStore, int maxBatchSize,
+                                       int maxBufferSize, BackpressureStrategy backpressure,
+                                       int maxRetries, long retryBackoffMillis) {
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be greater than zero.");
+        }
+        if (maxBatchSize <= 0 || maxBufferSize < maxBatchSize) {
+            throw new IllegalArgumentException("Max batch size must be greater than zero and at most the max buffer size.");
+        }
+        if (maxRetries < 0 || retryBackoffMillis < 0) {
+            throw new IllegalArgumentException("Retries and retry backoff must not be negative.");
+        }
         this.flushInterval = flushInterval;
-        this.dataStore = dataStore;
+        this.dataStore = Objects.requireNonNull(dataStore, "Backing store cannot be null.");
+        this.maxBatchSize = maxBatchSize;
+        this.maxBufferSize = maxBufferSize;
+        this.backpressure = Objects.requireNonNull(backpressure, "Backpressure strategy cannot be null.");
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
     }
 
     @Override
-    public void scheduleWrite() {
-        ScheduledExecutorUtil.scheduleAtFixedRate(this::flushWrites, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    public void scheduleWrite(CacheScheduler scheduler) {
+        this.scheduler.set(scheduler);
+        scheduler.scheduleAtFixedRate(this::tryFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public void write(K key, V value, DataStore<K, V> dataStore) {
-        writeBuffer.put(key, value);
+        if (isFull(key)) {
+            if (backpressure == BackpressureStrategy.WRITE_THROUGH) {
+                requestFlush();
+                dataStore.put(key, value);
+                return;
+            }
+            awaitCapacity(key);
+        }
+        long now = System.currentTimeMillis();
+        writeBuffer.merge(key, new PendingWrite<>(value, now),
+                (buffered, latest) -> new PendingWrite<>(value, buffered.firstWriteTime()));
+        if (writeBuffer.size() >= maxBatchSize) {
+            requestFlush();
+        }
+    }
+
+    @Override
+    public void writeAll(Map<? extends K, ? extends V> entries, DataStore<K, V> dataStore) {
+        entries.forEach((key, value) -> write(key, value, dataStore));
+    }
+
+    /**
+     * Write the buffered values to the datastore in batches of at most maxBatchSize keys.
+     * Stops at a failing batch, leaving it buffered. Its retries are scheduled once the policy is
+     * scheduled, and run on the calling thread otherwise.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushBatches();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flush run by the scheduler, skipped while another flush runs, that flush drains the buffer.
+     */
+    private void tryFlush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushBatches();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushBatches() {
+        while (!writeBuffer.isEmpty()) {
+            Map<K, PendingWrite<V>> batch = nextBatch();
+            if (!writeBatch(batch)) {
+                return;
+            }
+            // a key written again during the flush keeps its newer value buffered
+            batch.forEach(writeBuffer::remove);
+            flushedWrites.add(batch.size());
+            signalNotFull();
+        }
+    }
+
+    /**
+     * Flush the buffered writes, retrying on the calling thread, a batch still failing after the
+     * retries stays buffered.
+     */
+    @Override
+    public void close() {
+        scheduler.set(null);
+        flush();
+    }
+
+    /**
+     * Number of keys waiting to be written to the datastore.
+     * @return buffered keys
+     */
+    public int getPendingWrites() {
+        return writeBuffer.size();
+    }
+
+    /**
+     * Age of the oldest write not yet in the datastore, 0 when the buffer is empty.
+     * @return flush lag in millis
+     */
+    public long getFlushLagMillis() {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        for (PendingWrite<V> pendingWrite : writeBuffer.values()) {
+            oldest = Math.min(oldest, pendingWrite.firstWriteTime());
+        }
+        return now - oldest;
+    }
+
+    public long getFlushedWrites() {
+        return flushedWrites.sum();
+    }
+
+    /**
+     * Number of failed batch writes, including the ones that succeeded on a retry.
+     * @return failed batch writes
+     */
+    public long getFailedFlushes() {
+        return failedFlushes.sum();
+    }
+
+    /**
+     * Time taken by batch writes to the datastore, failed attempts included.
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    private boolean isFull(K key) {
+        return writeBuffer.size() >= maxBufferSize && !writeBuffer.containsKey(key);
+    }
+
+    private void awaitCapacity(K key) {
+        bufferLock.lock();
+        try {
+            while (isFull(key)) {
+                requestFlush();
+                // wake up periodically in case the flush failed and nobody signals
+                notFull.await(flushInterval, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for space in the write-behind buffer.", e);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    private void signalNotFull() {
+        bufferLock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    private void requestFlush() {
+        CacheScheduler flushScheduler = scheduler.get();
+        if (flushScheduler == null) {
+            flush();
+        } else if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flushScheduler.executeAsync(() -> {
+                    flushRequested.set(false);
+                    tryFlush();
+                });
+            } catch (RejectedExecutionException e) {
+                // scheduler is closed, flush on the writing thread
+                flushRequested.set(false);
+                flush();
+            }
+        }
+    }
+
+    private Map<K, PendingWrite<V>> nextBatch() {
+        Map<K, PendingWrite<V>> batch = new LinkedHashMap<>();
+        for (Map.Entry<K, PendingWrite<V>> entry : writeBuffer.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() == maxBatchSize) {
+                break;
+            }
+        }
+        return batch;
+    }
+
+    private boolean writeBatch(Map<K, PendingWrite<V>> batch) {
+        Map<K, V> values = new HashMap<>();
+        batch.forEach((key, pendingWrite) -> values.put(key, pendingWrite.value()));
+        for (;;) {
+            long startTime = System.nanoTime();
+            try {
+                dataStore.putAll(values);
+                flushLatency.record(System.nanoTime() - startTime);
+                failedAttempts.set(0);
+                return true;
+            } catch (RuntimeException e) {
+                flushLatency.record(System.nanoTime() - startTime);
+                failedFlushes.increment();
+                if (failedAttempts.incrementAndGet() > maxRetries) {
+                    failedAttempts.set(0);
+                    return false;
+                }
+            }
+            long backoffMillis = retryBackoffMillis << Math.min(failedAttempts.get() - 1, 16);
+            if (scheduleRetry(backoffMillis)) {
+                return false;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
     }
 
-    private void flushWrites() {
-        writeBuffer.forEach((key, value) -> {
-            dataStore.put(key, value);
-            writeBuffer.remove(key);
-        });
+    /**
+     * Retry the flush after backoffMillis on the scheduler, at most one retry is pending at a time.
+     * @return false if the policy is not scheduled or the scheduler is closed
+     */
+    private boolean scheduleRetry(long backoffMillis) {
+        CacheScheduler retryScheduler = scheduler.get();
+        if (retryScheduler == null) {
+            return false;
+        }
+        if (!retryScheduled.compareAndSet(false, true)) {
+            return true;
+        }
+        try {
+            retryScheduler.schedule(() -> {
+                retryScheduled.set(false);
+                tryFlush();
+            }, backoffMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            retryScheduled.set(false);
+            return false;
+        }
     }
 }
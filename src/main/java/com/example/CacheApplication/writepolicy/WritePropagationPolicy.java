@@ -1,8 +1,22 @@
 package com.example.CacheApplication.writepolicy;
 
 import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.util.CacheScheduler;
+
+import java.util.Map;
 
 public interface WritePropagationPolicy<K, V>  {
     void write(K key, V value, DataStore<K, V> dataStore);
-    default void scheduleWrite() {}
+
+    default void writeAll(Map<? extends K, ? extends V> entries, DataStore<K, V> dataStore) {
+        entries.forEach((key, value) -> write(key, value, dataStore));
+    }
+
+    default void scheduleWrite(CacheScheduler scheduler) {}
+
+    /**
+     * Called when the cache closes, once its scheduled tasks are stopped. Writes the policy still
+     * holds must reach the datastore before it returns.
+     */
+    default void close() {}
 }
@@ -2,9 +2,16 @@ package com.example.CacheApplication.writepolicy;
 
 import com.example.CacheApplication.datastore.DataStore;
 
+import java.util.Map;
+
 public class WriteThroughPropagationPolicy<K, V> implements WritePropagationPolicy<K, V> {
     @Override
     public void write(K key, V value, DataStore<K, V> dataStore) {
         dataStore.put(key, value);
     }
+
+    @Override
+    public void writeAll(Map<? extends K, ? extends V> entries, DataStore<K, V> dataStore) {
+        dataStore.putAll(entries);
+    }
 }
@@ -0,0 +1,60 @@
+package com.example.CacheApplication.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashRingTest {
+    private static final int KEYS = 100_000;
+
+    private static byte[] key(int i) {
+        return ("key" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testKeysSpreadEvenlyOverNodes() {
+        HashRing ring = new HashRing(List.of("node1", "node2", "node3", "node4"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.ownerOf(key(i)), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.2, "keys " + count));
+    }
+
+    @Test
+    void testAddingNodeOnlyMovesKeysToIt() {
+        HashRing ring = new HashRing(List.of("node1", "node2", "node3"), 128);
+        HashRing grownRing = new HashRing(List.of("node1", "node2", "node3", "node4"), 128);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String owner = ring.ownerOf(key(i));
+            String newOwner = grownRing.ownerOf(key(i));
+            if (!owner.equals(newOwner)) {
+                assertEquals("node4", newOwner);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS / 4 * 0.8 && moved < KEYS / 4 * 1.2, "moved " + moved);
+    }
+
+    @Test
+    void testOwnerDoesNotDependOnNodeOrder() {
+        HashRing ring = new HashRing(List.of("node1", "node2", "node3"), 16);
+        HashRing reordered = new HashRing(List.of("node3", "node1", "node2"), 16);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.ownerOf(key(i)), reordered.ownerOf(key(i)));
+        }
+    }
+
+    @Test
+    void testEmptyRingIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of(), 128));
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of("node1"), 0));
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.CacheApplication.cluster;
+
+import com.example.CacheApplication.core.CacheConfiguration;
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.storage.StringSerializer;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedCacheTest {
+    private static final int NODES = 3;
+
+    private final List<PartitionedCache<String, String>> nodes = new ArrayList<>();
+    private DataStore<String, String> dataStore;
+
+    @BeforeEach
+    void setUp() {
+        dataStore = new InMemoryDataStore<>(new ConcurrentHashMap<>());
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(PartitionedCache::close);
+    }
+
+    /**
+     * Start nodes on free localhost ports, then give every node the addresses of all of them.
+     */
+    private void startCluster(int nearCacheCapacity) {
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new PartitionedCache<>(ClusterConfiguration.<String, String>builder()
+                    .cacheConfiguration(CacheConfiguration.<String, String>builder()
+                            .maxCapacity(1000)
+                            .expirationPolicy(new TimeSinceCreationExpiration<>(60_000L))
+                            .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                            .refreshPolicy(new FixedDurationRefreshPolicy<>(60_000L))
+                            .dataStore(dataStore)
+                            .recordStats(true)
+                            .name("node" + i)
+                            .build())
+                    .keySerializer(new StringSerializer())
+                    .valueSerializer(new StringSerializer())
+                    .nearCacheCapacity(nearCacheCapacity)
+                    .nearCacheTtlMillis(60_000L)
+                    .build()));
+        }
+        List<InetSocketAddress> members = nodes.stream().map(PartitionedCache::getAddress).toList();
+        nodes.forEach(node -> node.updateMembers(members));
+    }
+
+    @Test
+    void testEveryKeyIsCachedOnceAndReadableFromAnyNode() {
+        startCluster(0);
+        for (int i = 0; i < 300; i++) {
+            nodes.get(i % NODES).put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 300; i++) {
+            for (PartitionedCache<String, String> node : nodes) {
+                assertEquals("value" + i, node.get("key" + i));
+            }
+        }
+        assertEquals(300, nodes.stream().mapToInt(PartitionedCache::getLocalSize).sum());
+        nodes.forEach(node -> assertTrue(node.getLocalSize() > 0));
+        assertEquals(NODES, nodes.get(0).getMembers().size());
+    }
+
+    @Test
+    void testMissIsLoadedByTheOwner() {
+        startCluster(0);
+        dataStore.put("key1", "value1");
+        assertEquals("value1", nodes.get(0).get("key1"));
+        assertEquals(1, nodes.stream().mapToLong(node -> node.localStats().loadSuccessCount()).sum());
+        assertEquals(1, nodes.stream().mapToInt(PartitionedCache::getLocalSize).sum());
+    }
+
+    @Test
+    void testRemoveFromAnyNode() {
+        startCluster(0);
+        nodes.get(0).put("key1", "value1");
+        nodes.get(1).remove("key1");
+        nodes.get(2).remove("key1");
+        assertEquals(0, nodes.stream().mapToInt(PartitionedCache::getLocalSize).sum());
+    }
+
+    @Test
+    void testGetAllPipelinesRemoteReads() {
+        startCluster(0);
+        IntStream.range(0, 200).forEach(i -> dataStore.put("key" + i, "value" + i));
+        List<String> keys = IntStream.range(0, 210).mapToObj(i -> "key" + i).toList();
+
+        Map<String, String> values = nodes.get(0).getAll(keys);
+        assertEquals(200, values.size());
+        IntStream.range(0, 200).forEach(i -> assertEquals("value" + i, values.get("key" + i)));
+    }
+
+    @Test
+    void testNearCacheServesHotRemoteKeysLocally() {
+        startCluster(10);
+        nodes.get(0).put("key1", "value1");
+        // a node that neither owns key1 nor wrote it through its near cache
+        PartitionedCache<String, String> reader = nodes.subList(1, NODES).stream()
+                .filter(node -> node.getLocalSize() == 0)
+                .findFirst().orElseThrow();
+        long ownerHits = nodes.stream().mapToLong(node -> node.localStats().hitCount()).sum();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("value1", reader.get("key1"));
+        }
+        assertEquals(ownerHits + 1, nodes.stream().mapToLong(node -> node.localStats().hitCount()).sum());
+        assertEquals(4, reader.nearStats().hitCount());
+
+        reader.put("key1", "updatedValue1");
+        assertEquals("updatedValue1", reader.get("key1"));
+        assertEquals("updatedValue1", nodes.stream()
+                .filter(node -> node.getLocalSize() == 1)
+                .findFirst().orElseThrow()
+                .get("key1"));
+    }
+
+    @Test
+    void testUnreachableOwnerFails() {
+        startCluster(0);
+        nodes.remove(NODES - 1).close();
+        assertThrows(UncheckedIOException.class, () -> {
+            for (int i = 0; i < 1000; i++) {
+                nodes.get(0).get("key" + i);
+            }
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.CacheApplication.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheEntryTest {
+
+    @Test
+    void testFailedReplacementKeepsTheTimes() {
+        CacheEntry<String> entry = new CacheEntry<>("value1", 10L);
+        entry.setExpirationTime(100L);
+
+        assertTrue(entry.compareAndSetValue("value1", "value2", 20L, 200L, 2L));
+        assertFalse(entry.compareAndSetValue("value1", "value3", 30L, 300L, 3L));
+
+        assertEquals("value2", entry.getValue());
+        assertEquals(20L, entry.getCreationTime());
+        assertEquals(20L, entry.getLastAccessTime());
+        assertEquals(200L, entry.getExpirationTime());
+        assertEquals(2L, entry.getVersion());
+    }
+
+    @Test
+    void testConcurrentReplacementsKeepTimesOfTheirValue() throws InterruptedException {
+        CacheEntry<Long> entry = new CacheEntry<>(0L, 0L);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long base = t * 1_000_000L;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (long i = 1; i <= 10_000; i++) {
+                    // the expiration time and version of each value are the value itself
+                    entry.replaceValue(base + i, base + i, base + i, base + i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long value = entry.getValue();
+        assertEquals(value, entry.getCreationTime());
+        assertEquals(value, entry.getExpirationTime());
+        assertEquals(value, entry.getVersion());
+    }
+
+    @Test
+    void testReleasedEntryIsNotReplaced() {
+        CacheEntry<String> entry = new CacheEntry<>("value1", 10L);
+        entry.release();
+
+        assertFalse(entry.replaceValue("value2", 20L, 200L, 2L));
+        assertNull(entry.getValue());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.CacheApplication.core;
+
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class InMemoryAsyncCacheTest {
+    private InMemoryCache<String, String> cache;
+    private AsyncCache<String, String> asyncCache;
+    private DataStore<String, String> spyDataStore;
+
+    @BeforeEach
+    void setUp() {
+        spyDataStore = spy(new InMemoryDataStore<>(new ConcurrentHashMap<>()));
+        cache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(10)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(new FixedDurationRefreshPolicy<>(60_000L))
+                .dataStore(spyDataStore)
+                .build());
+        asyncCache = new InMemoryAsyncCache<>(cache);
+    }
+
+    @Test
+    void testHitCompletesImmediately() {
+        cache.put("key1", "value1");
+        CompletableFuture<String> future = asyncCache.getAsync("key1");
+        assertTrue(future.isDone());
+        assertEquals("value1", future.join());
+    }
+
+    @Test
+    void testConcurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            releaseLoad.await();
+            return "value1";
+        }).when(spyDataStore).get("key1");
+
+        CompletableFuture<String> first = asyncCache.getAsync("key1");
+        CompletableFuture<String> second = asyncCache.getAsync("key1");
+        CompletableFuture<String> blocking = CompletableFuture.supplyAsync(() -> cache.get("key1"));
+        assertFalse(first.isDone());
+        // cancelling one caller's future does not fail the shared load
+        second.cancel(true);
+        releaseLoad.countDown();
+
+        assertEquals("value1", first.get(1, TimeUnit.SECONDS));
+        assertEquals("value1", blocking.get(1, TimeUnit.SECONDS));
+        verify(spyDataStore, times(1)).get("key1");
+    }
+
+    @Test
+    void testLoaderFailureCompletesExceptionally() {
+        CompletableFuture<String> future = asyncCache.getAsync("key1", key -> {
+            throw new IllegalStateException("loader failed");
+        });
+        Exception e = assertThrows(Exception.class, future::join);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals("value1", asyncCache.getAsync("key1", key -> "value1").join());
+    }
+
+    @Test
+    void testGetAllAndPutAsync() {
+        spyDataStore.put("key2", "value2");
+        asyncCache.putAsync("key1", "value1").join();
+        assertEquals("value1", spyDataStore.get("key1"));
+
+        Map<String, String> values = asyncCache.getAllAsync(List.of("key1", "key2", "key3")).join();
+        assertEquals(Map.of("key1", "value1", "key2", "value2"), values);
+        verify(spyDataStore, times(1)).getAll(List.of("key2", "key3"));
+    }
+
+    @Test
+    void testGetAllAsyncRecordsEachMissOnceAndSkipsTombstones() {
+        InMemoryCache<String, String> statsCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(10)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(new FixedDurationRefreshPolicy<>(60_000L))
+                .dataStore(spyDataStore)
+                .negativeCacheTtlMillis(10_000L)
+                .recordStats(true)
+                .build());
+        AsyncCache<String, String> statsAsyncCache = new InMemoryAsyncCache<>(statsCache);
+        spyDataStore.put("key2", "value2");
+        statsCache.put("key1", "value1");
+
+        statsAsyncCache.getAllAsync(List.of("key1", "key2", "key3")).join();
+        assertEquals(1, statsCache.stats().hitCount());
+        assertEquals(2, statsCache.stats().missCount());
+
+        CompletableFuture<Map<String, String>> future = statsAsyncCache.getAllAsync(List.of("key2", "key3"));
+        assertTrue(future.isDone());
+        assertEquals(Map.of("key2", "value2"), future.join());
+        assertEquals(3, statsCache.stats().hitCount());
+        assertEquals(2, statsCache.stats().missCount());
+        verify(spyDataStore, times(1)).getAll(any());
+    }
+}
@@ -1,18 +1,46 @@
 package com.example.CacheApplication.core;
 
+import com.example.CacheApplication.datastore.ChangeEvent;
+import com.example.CacheApplication.datastore.ChangePublisher;
 import com.example.CacheApplication.datastore.DataStore;
 import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.datastore.ObservableDataStore;
+import com.example.CacheApplication.eviction.WTinyLfuEvictionPolicy;
 import com.example.CacheApplication.expiration.ExpirationPolicy;
+import com.example.CacheApplication.expiration.Expiry;
 import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
 import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.refreshpolicy.RefreshAfterWritePolicy;
 import com.example.CacheApplication.refreshpolicy.RefreshPolicy;
-import com.example.CacheApplication.util.ScheduledExecutorUtil;
+import com.example.CacheApplication.stats.CacheStats;
+import com.example.CacheApplication.storage.CompressedStore;
+import com.example.CacheApplication.storage.DeflateCodec;
+import com.example.CacheApplication.storage.StorageMode;
+import com.example.CacheApplication.storage.StringSerializer;
+import com.example.CacheApplication.util.FakeTicker;
+import com.example.CacheApplication.writepolicy.WriteBackPropagationPolicy;
 import com.example.CacheApplication.writepolicy.WritePropagationPolicy;
-import org.junit.jupiter.api.AfterAll;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -43,9 +71,9 @@ public class InMemoryCacheTest {
         cache = new InMemoryCache<>(config);
     }
 
-    @AfterAll
-    static void tearDown() {
-        ScheduledExecutorUtil.shutdown();
+    @AfterEach
+    void tearDown() {
+        cache.close();
     }
 
     @Test
@@ -81,13 +109,13 @@ public class InMemoryCacheTest {
     void testExpirationPolicyUpdateOnRead() {
         cache.put("key1", "value1");
         cache.get("key1");
-        verify(spyExpirationPolicy, times(1)).updateAccessTimeForRead(any());
+        verify(spyExpirationPolicy, times(1)).updateAccessTimeForRead(any(), anyLong());
     }
 
     @Test
     void testExpirationPolicyUpdateOnWrite() {
         cache.put("key1", "value1");
-        verify(spyExpirationPolicy, times(1)).updateAccessTimeForWrite(any());
+        verify(spyExpirationPolicy, times(1)).updateAccessTimeForWrite(any(), anyLong());
     }
 
     @Test
@@ -96,12 +124,35 @@ public class InMemoryCacheTest {
         verify(mockWritePolicy, times(1)).write(eq("key1"), eq("value1"), any());
     }
 
+    @Test
+    void testGetAllLoadsMissingKeysInOneCall() {
+        cache.put("key1", "value1");
+        spyDataStore.put("key2", "value2");
+
+        Map<String, String> values = cache.getAll(List.of("key1", "key2", "key3"));
+
+        assertEquals(Map.of("key1", "value1", "key2", "value2"), values);
+        verify(spyDataStore, times(1)).getAll(List.of("key2", "key3"));
+        assertEquals("value2", cache.get("key2"));
+    }
+
+    @Test
+    void testPutAllPropagatesOneBatch() {
+        Map<String, String> entries = Map.of("key1", "value1", "key2", "value2");
+        cache.putAll(entries);
+
+        verify(mockWritePolicy, times(1)).writeAll(eq(entries), any());
+        verify(mockWritePolicy, never()).write(any(), any(), any());
+        assertEquals("value1", cache.get("key1"));
+        assertEquals("value2", cache.get("key2"));
+    }
+
     @Test
     void testScheduledCleanupInvocation() throws InterruptedException {
         doAnswer(invocation -> {
             cache.remove("key1");
             return null;
-        }).when(spyExpirationPolicy).scheduleAutoCleanup(any());
+        }).when(spyExpirationPolicy).scheduleAutoCleanup(any(), any());
 
         cache.put("key1", "value1");
         // Allow time for expiration policy run
@@ -109,7 +160,7 @@ public class InMemoryCacheTest {
         // Key should be expired
         assertNull(cache.get("key1"));
         // Ensure expiration policy is invoked
-        verify(spyExpirationPolicy, times(1)).scheduleAutoCleanup(any());
+        verify(spyExpirationPolicy, times(1)).scheduleAutoCleanup(any(), any());
     }
 
     @Test
@@ -123,12 +174,352 @@ public class InMemoryCacheTest {
         Thread.sleep(300);
 
         // Verify refresh policy executed
-        verify(spyRefreshPolicy, atLeastOnce()).scheduleAutoRefresh(any());
+        verify(spyRefreshPolicy, atLeastOnce()).scheduleAutoRefresh(any(), any());
 
         // Ensure cache got the updated value
         assertEquals("updatedValue1", cache.get("key1"));
     }
 
+    @Test
+    void testRefreshAfterWriteReloadsOnRead() throws InterruptedException {
+        InMemoryCache<String, String> refreshingCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(new RefreshAfterWritePolicy<>(100L))
+                .dataStore(spyDataStore)
+                .build());
+        refreshingCache.put("key1", "value1");
+        spyDataStore.put("key1", "updatedValue1");
+
+        // entry is fresh, nothing is reloaded
+        assertEquals("value1", refreshingCache.get("key1"));
+        Thread.sleep(150);
+        verify(spyDataStore, never()).get("key1");
+
+        // a stale read returns the current value and triggers a single reload,
+        // held until the reads are done so it cannot complete in between
+        CountDownLatch readsDone = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            readsDone.await();
+            return invocation.callRealMethod();
+        }).when(spyDataStore).get("key1");
+        for (int i = 0; i < 5; i++) {
+            assertEquals("value1", refreshingCache.get("key1"));
+        }
+        readsDone.countDown();
+        verify(spyDataStore, timeout(1000).times(1)).get("key1");
+        Thread.sleep(50);
+        assertEquals("updatedValue1", refreshingCache.get("key1"));
+    }
+
+    @Test
+    void testRejectedOrFailedRefreshServesCurrentValue() {
+        FakeTicker ticker = new FakeTicker();
+        AtomicInteger rejections = new AtomicInteger();
+        Executor rejectingExecutor = command -> {
+            rejections.incrementAndGet();
+            throw new RejectedExecutionException("saturated");
+        };
+        InMemoryCache<String, String> refreshingCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(new RefreshAfterWritePolicy<>(100L))
+                .dataStore(spyDataStore)
+                .loaderExecutor(rejectingExecutor)
+                .recordStats(true)
+                .ticker(ticker)
+                .build());
+        refreshingCache.put("key1", "value1");
+        ticker.advance(200, TimeUnit.MILLISECONDS);
+
+        assertEquals("value1", refreshingCache.get("key1"));
+        assertEquals("value1", refreshingCache.get("key1"));
+        // the rejected reload does not hold the key, the next stale read tries again
+        assertEquals(2, rejections.get());
+        refreshingCache.close();
+
+        InMemoryCache<String, String> failingCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(new RefreshAfterWritePolicy<>(100L))
+                .dataStore(spyDataStore)
+                .loaderExecutor(Runnable::run)
+                .recordStats(true)
+                .ticker(ticker)
+                .build());
+        failingCache.put("key1", "value1");
+        ticker.advance(200, TimeUnit.MILLISECONDS);
+        doThrow(new IllegalStateException("store unavailable")).when(spyDataStore).get("key1");
+
+        assertEquals("value1", failingCache.get("key1"));
+        assertEquals(1, failingCache.stats().refreshFailureCount());
+        failingCache.close();
+    }
+
+    @Test
+    void testConcurrentPutsAndRemovesKeepPolicyInStepWithMap() throws InterruptedException {
+        InMemoryCache<String, String> racingCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(100)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(new InMemoryDataStore<>(new ConcurrentHashMap<>()))
+                .build());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            boolean writer = t % 2 == 0;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    String key = "key" + (i & 7);
+                    if (writer) {
+                        racingCache.put(key, "value" + i);
+                    } else {
+                        racingCache.remove(key);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(racingCache.getSize(), racingCache.getWeightedSize());
+        racingCache.close();
+    }
+
+    @Test
+    void testStatsAreRecordedAndPublished() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InMemoryCache<String, String> statsCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(new InMemoryDataStore<>(new ConcurrentHashMap<>()))
+                .recordStats(true)
+                .name("test")
+                .meterRegistry(registry)
+                .build());
+        statsCache.put("key1", "value1");
+        statsCache.get("key1");
+        statsCache.get("key3", key -> "value3");
+        statsCache.get("key4", key -> null);
+        statsCache.put("key5", "value5");
+
+        CacheStats stats = statsCache.stats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(2, stats.missCount());
+        assertEquals(1, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+        assertEquals(1, stats.evictionCount());
+        assertEquals(2, stats.putCount());
+        assertEquals(2, stats.loadLatency().count());
+        assertEquals(1.0 / 3, stats.hitRate(), 1e-9);
+
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "test", "result", "hit").functionCounter().count());
+        assertEquals(2.0, registry.get("cache.size").tags("cache", "test").gauge().value());
+        statsCache.close();
+        assertTrue(registry.find("cache.gets").meters().isEmpty());
+    }
+
+    @Test
+    void testCloseFlushesWriteBackBuffer() {
+        DataStore<String, String> dataStore = new InMemoryDataStore<>(new ConcurrentHashMap<>());
+        InMemoryCache<String, String> writeBackCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(new WriteBackPropagationPolicy<>(TimeUnit.HOURS.toMillis(1), dataStore))
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(dataStore)
+                .build());
+        writeBackCache.put("key1", "value1");
+        writeBackCache.put("key2", "value2");
+        assertNull(dataStore.get("key1"));
+
+        writeBackCache.close();
+        assertEquals("value1", dataStore.get("key1"));
+        assertEquals("value2", dataStore.get("key2"));
+    }
+
+    @Test
+    void testAbsentKeyIsCachedAsTombstoneUntilItsTtl() throws InterruptedException {
+        InMemoryCache<String, String> negativeCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .negativeCacheTtlMillis(100)
+                .build());
+
+        assertNull(negativeCache.get("key1"));
+        assertNull(negativeCache.get("key1"));
+        assertNull(negativeCache.getAll(List.of("key1")).get("key1"));
+        verify(spyDataStore, times(1)).get("key1");
+        verify(spyDataStore, never()).getAll(any());
+        // the tombstone counts against capacity
+        assertEquals(1, negativeCache.getSize());
+
+        // a loader still computes a value for the key, replacing the tombstone
+        assertEquals("value1", negativeCache.get("key1", key -> "value1"));
+        assertEquals("value1", negativeCache.get("key1"));
+
+        assertNull(negativeCache.get("key2"));
+        spyDataStore.put("key2", "value2");
+        assertNull(negativeCache.get("key2"));
+        Thread.sleep(150);
+        assertEquals("value2", negativeCache.get("key2"));
+        verify(spyDataStore, times(2)).get("key2");
+        negativeCache.close();
+    }
+
+    @Test
+    void testBloomFilterRejectsKeysAbsentFromDataStore() {
+        spyDataStore.put("key1", "value1");
+        InMemoryCache<String, String> filteredCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(1)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .bloomFilterExpectedKeys(1_000)
+                .build());
+        filteredCache.remove("key1");
+
+        assertEquals("value1", filteredCache.get("key1"));
+        assertNull(filteredCache.get("absent"));
+        assertTrue(filteredCache.getAll(List.of("absent")).isEmpty());
+        verify(spyDataStore, never()).get("absent");
+        verify(spyDataStore, never()).getAll(List.of("absent"));
+
+        // keys written through the cache pass the filter once evicted
+        filteredCache.put("key2", "value2");
+        filteredCache.put("key3", "value3");
+        assertEquals("value2", filteredCache.get("key2"));
+        verify(spyDataStore, times(1)).get("key2");
+        filteredCache.close();
+    }
+
+    @Test
+    void testDataStoreChangesUpdateOnlyCachedKeys() throws InterruptedException {
+        InMemoryDataStore<String, String> observableStore = new InMemoryDataStore<>(new ConcurrentHashMap<>(),
+                new ChangePublisher<>(0L, 1000));
+        InMemoryCache<String, String> subscribedCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(10)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(observableStore)
+                .subscribeToChanges(true)
+                .build());
+        subscribedCache.put("key1", "value1");
+        subscribedCache.put("key2", "value2");
+        assertNull(subscribedCache.get("key3"));
+
+        observableStore.put("key1", "updatedValue1");
+        observableStore.remove("key2");
+        observableStore.put("key3", "value3");
+        observableStore.put("key4", "value4");
+        awaitCondition(() -> "updatedValue1".equals(subscribedCache.getIfPresent("key1")));
+        awaitCondition(() -> subscribedCache.getIfPresent("key2") == null);
+
+        // key4 was not cached and stays out of the cache until read
+        assertFalse(subscribedCache.getKeys().contains("key4"));
+        assertEquals("value3", subscribedCache.get("key3"));
+        subscribedCache.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDataStoreChangesOlderThanTheCachedValueAreDropped() {
+        ObservableDataStore<String, String> observableStore = mock(ObservableDataStore.class);
+        List<Consumer<? super List<ChangeEvent<String, String>>>> listeners = new ArrayList<>();
+        when(observableStore.subscribe(any())).thenAnswer(invocation -> {
+            listeners.add(invocation.getArgument(0));
+            return (ObservableDataStore.Subscription) () -> { };
+        });
+        when(observableStore.version()).thenReturn(5L);
+        InMemoryCache<String, String> subscribedCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(10)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(observableStore)
+                .subscribeToChanges(true)
+                .build());
+        subscribedCache.put("key1", "value1");
+
+        // published before the put read version 5, the put overwrote it
+        listeners.get(0).accept(List.of(ChangeEvent.updated("key1", "staleValue", 4L),
+                ChangeEvent.removed("key1", 5L)));
+        assertEquals("value1", subscribedCache.getIfPresent("key1"));
+
+        listeners.get(0).accept(List.of(ChangeEvent.updated("key1", "updatedValue1", 6L)));
+        assertEquals("updatedValue1", subscribedCache.getIfPresent("key1"));
+        listeners.get(0).accept(List.of(ChangeEvent.removed("key1", 6L)));
+        assertEquals("updatedValue1", subscribedCache.getIfPresent("key1"));
+        listeners.get(0).accept(List.of(ChangeEvent.removed("key1", 7L)));
+        assertNull(subscribedCache.getIfPresent("key1"));
+        subscribedCache.close();
+    }
+
+    @Test
+    void testSubscribingRequiresObservableDataStore() {
+        DataStore<String, String> plainStore = mock(DataStore.class);
+        assertThrows(IllegalArgumentException.class, () -> CacheConfiguration.<String, String>builder()
+                .expirationPolicy(spyExpirationPolicy)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(plainStore)
+                .subscribeToChanges(true)
+                .build());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met within 2 s");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testOverwriteReplacesEntryInPlaceAndRenewsIt() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryCache<String, String> tickingCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(500L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .ticker(ticker)
+                .build());
+
+        tickingCache.put("key1", "value1");
+        ticker.advance(400, TimeUnit.MILLISECONDS);
+        tickingCache.put("key1", "value2");
+        ticker.advance(400, TimeUnit.MILLISECONDS);
+        // the overwrite restarted the time to live of the entry
+        assertEquals("value2", tickingCache.getIfPresent("key1"));
+        assertEquals(1, tickingCache.getSize());
+
+        ticker.advance(200, TimeUnit.MILLISECONDS);
+        assertNull(tickingCache.getIfPresent("key1"));
+        tickingCache.getAutoExpirationRunnable().run();
+        assertEquals(0, tickingCache.getSize());
+        tickingCache.close();
+    }
+
+    @Test
+    void testStatsDisabledByDefault() {
+        cache.put("key1", "value1");
+        cache.get("key1");
+        assertEquals(CacheStats.EMPTY, cache.stats());
+    }
+
     @Test
     void testLRUEviction() {
 
@@ -240,4 +631,556 @@ public class InMemoryCacheTest {
         assertEquals("valueA", newCache.get("keyA"));
         assertEquals("valueB", newCache.get("keyB"));
     }
+
+    @Test
+    void testConcurrentMissesLoadOnce() throws InterruptedException {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loadStarted.countDown();
+            releaseLoad.await();
+            return "value1";
+        }).when(spyDataStore).get("key1");
+
+        int numThreads = 10;
+        try (ExecutorService executor = Executors.newFixedThreadPool(numThreads)) {
+            CountDownLatch done = new CountDownLatch(numThreads);
+            AtomicInteger loaded = new AtomicInteger();
+            for (int i = 0; i < numThreads; i++) {
+                executor.submit(() -> {
+                    try {
+                        if ("value1".equals(cache.get("key1"))) {
+                            loaded.incrementAndGet();
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            assertTrue(loadStarted.await(1, TimeUnit.SECONDS));
+            // Give the remaining callers time to queue up behind the in-flight load
+            Thread.sleep(100);
+            releaseLoad.countDown();
+            assertTrue(done.await(1, TimeUnit.SECONDS));
+            assertEquals(numThreads, loaded.get());
+        }
+        verify(spyDataStore, times(1)).get("key1");
+    }
+
+    @Test
+    void testGetWithLoader() {
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("loaded1", cache.get("key1", key -> {
+            loads.incrementAndGet();
+            return "loaded1";
+        }));
+        assertEquals("loaded1", cache.get("key1", key -> "other"));
+        assertEquals(1, loads.get());
+        verify(mockWritePolicy, times(1)).write(eq("key1"), eq("loaded1"), any());
+        verify(spyDataStore, never()).get("key1");
+    }
+
+    @Test
+    void testLoaderFailureIsPropagatedAndNotCached() {
+        assertThrows(IllegalStateException.class, () -> cache.get("key1", key -> {
+            throw new IllegalStateException("load failed");
+        }));
+        assertEquals("value1", cache.get("key1", key -> "value1"));
+    }
+
+    @Test
+    void testExpiredEntryIsMissBeforeCleanupRuns() throws InterruptedException {
+        doNothing().when(spyExpirationPolicy).scheduleAutoCleanup(any(), any());
+        CacheConfiguration<String, String> config = CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(spyExpirationPolicy)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .build();
+        InMemoryCache<String, String> newCache = new InMemoryCache<>(config);
+
+        newCache.put("key1", "value1");
+        Thread.sleep(600);
+        // Cleanup never ran, the read must still treat the entry as expired
+        assertNull(newCache.get("key1"));
+        assertEquals(0, newCache.getSize());
+    }
+
+    @Test
+    void testWTinyLfuEvictionKeepsFrequentKey() {
+        CacheConfiguration<String, String> config = CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(spyExpirationPolicy)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .evictionPolicyFactory(WTinyLfuEvictionPolicy::new)
+                .build();
+        InMemoryCache<String, String> newCache = new InMemoryCache<>(config);
+
+        newCache.put("hot", "value");
+        for (int i = 0; i < 5; i++) {
+            newCache.get("hot");
+        }
+        for (int i = 0; i < 10; i++) {
+            newCache.put("cold" + i, "value" + i);
+        }
+        assertEquals(2, newCache.getSize());
+        assertEquals("value", newCache.get("hot"));
+    }
+
+    @Test
+    void testWeightedEviction() {
+        CacheConfiguration<String, String> config = CacheConfiguration.<String, String>builder()
+                .maxCapacity(100)
+                .expirationPolicy(spyExpirationPolicy)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .weigher((key, value) -> value.length())
+                .maxWeight(10)
+                .build();
+        InMemoryCache<String, String> newCache = new InMemoryCache<>(config);
+
+        newCache.put("key1", "aaaa");
+        newCache.put("key2", "bbbb");
+        assertEquals(8, newCache.getWeightedSize());
+        // Exceeds the weight budget, the least recently used entry is evicted
+        newCache.put("key3", "cccc");
+        assertEquals(2, newCache.getSize());
+        assertEquals(8, newCache.getWeightedSize());
+        // Overwrite tracks the new weight
+        newCache.put("key3", "cc");
+        assertEquals(6, newCache.getWeightedSize());
+    }
+
+    @Test
+    void testWeigherRequiresMaxWeight() {
+        assertThrows(IllegalArgumentException.class, () ->
+                CacheConfiguration.<String, String>builder()
+                        .expirationPolicy(spyExpirationPolicy)
+                        .writePropagationPolicy(mockWritePolicy)
+                        .refreshPolicy(spyRefreshPolicy)
+                        .dataStore(spyDataStore)
+                        .weigher((key, value) -> value.length())
+                        .build()
+        );
+    }
+
+    @Test
+    void testOffHeapStorageReclaimsMemory() {
+        CacheConfiguration<String, String> config = CacheConfiguration.<String, String>builder()
+                .maxCapacity(2)
+                .expirationPolicy(spyExpirationPolicy)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .storageMode(StorageMode.OFF_HEAP)
+                .valueSerializer(new StringSerializer())
+                .offHeapCapacity(1 << 20)
+                .build();
+        InMemoryCache<String, String> newCache = new InMemoryCache<>(config);
+
+        newCache.put("key1", "value1");
+        newCache.put("key2", "value2");
+        assertEquals("value1", newCache.get("key1"));
+        long usedBytes = newCache.getOffHeapUsedBytes();
+        assertTrue(usedBytes > 0);
+
+        // Overwrite and eviction free the replaced chunks
+        newCache.put("key1", "value1-updated");
+        newCache.put("key3", "value3");
+        assertEquals("value1-updated", newCache.get("key1"));
+        assertEquals("value3", newCache.get("key3"));
+        assertEquals(usedBytes, newCache.getOffHeapUsedBytes());
+
+        newCache.remove("key1");
+        newCache.remove("key3");
+        assertEquals(0, newCache.getOffHeapUsedBytes());
+    }
+
+    @Test
+    void testOffHeapStorageEvictsToMakeRoom() {
+        InMemoryCache<String, String> newCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(100)
+                .expirationPolicy(spyExpirationPolicy)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .storageMode(StorageMode.OFF_HEAP)
+                .valueSerializer(new StringSerializer())
+                .offHeapCapacity(1 << 20)
+                .recordStats(true)
+                .meterRegistry(new SimpleMeterRegistry())
+                .build());
+        String large = "a".repeat(100_000);
+
+        // a single slab holds eight chunks of this size class, the coldest are evicted for the others
+        for (int i = 0; i < 10; i++) {
+            newCache.put("key" + i, large + i);
+        }
+        assertEquals(8, newCache.getSize());
+        assertEquals(2, newCache.stats().evictionCount());
+        assertEquals(large + 9, newCache.get("key9"));
+
+        // the slab is emptied and reused by another size class
+        newCache.put("small", "value");
+        assertEquals("value", newCache.get("small"));
+        assertEquals(1, newCache.getSize());
+
+        // a value larger than a slab is rejected and does not leave the previous value behind
+        newCache.put("small", "x".repeat(2 << 20));
+        assertNull(newCache.get("small"));
+        assertEquals(1, newCache.stats().rejectedWriteCount());
+        newCache.close();
+    }
+
+    @Test
+    void testOffHeapStorageRequiresSerializer() {
+        assertThrows(NullPointerException.class, () ->
+                CacheConfiguration.<String, String>builder()
+                        .expirationPolicy(spyExpirationPolicy)
+                        .writePropagationPolicy(mockWritePolicy)
+                        .refreshPolicy(spyRefreshPolicy)
+                        .dataStore(spyDataStore)
+                        .storageMode(StorageMode.OFF_HEAP)
+                        .build()
+        );
+    }
+
+    @Test
+    void testCompressedStorageCompressesLargeValues() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InMemoryCache<String, String> compressedCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(4)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .storageMode(StorageMode.COMPRESSED)
+                .valueSerializer(new StringSerializer())
+                .compressionThresholdBytes(64)
+                .decompressedCacheSize(4)
+                .recordStats(true)
+                .name("compressed")
+                .meterRegistry(registry)
+                .build());
+        CompressedStore<String> store = (CompressedStore<String>) compressedCache.getValueStore();
+        String large = "{\"name\":\"value\"}".repeat(100);
+
+        compressedCache.put("small", "value1");
+        compressedCache.put("large", large);
+        assertEquals(1, store.getUncompressedValues());
+        assertEquals(1, store.getCompressedValues());
+        assertTrue(store.getCompressionRatio() > 10);
+
+        // the value is cached decompressed from its second read
+        assertEquals("value1", compressedCache.get("small"));
+        assertEquals(large, compressedCache.get("large"));
+        assertEquals(large, compressedCache.get("large"));
+        assertEquals(large, compressedCache.get("large"));
+        assertEquals(1, store.getDecompressedCacheHits());
+        assertEquals(2, store.getDecompressLatency().snapshot().count());
+
+        // an overwrite stores a new entry, the decompressed old value is not served
+        compressedCache.put("large", large + "1");
+        assertEquals(large + "1", compressedCache.get("large"));
+        compressedCache.put("large", "value2");
+        assertEquals("value2", compressedCache.get("large"));
+        assertEquals(1, store.getDecompressedCacheHits());
+
+        assertEquals(2.0, registry.get("cache.compression.values")
+                .tags("cache", "compressed", "result", "compressed").functionCounter().count());
+        assertEquals(store.getCompressionRatio(), registry.get("cache.compression.ratio").gauge().value());
+        compressedCache.close();
+    }
+
+    @Test
+    void testDeflateCodecRoundTripsIncompressibleBytes() {
+        DeflateCodec codec = new DeflateCodec();
+        byte[] bytes = new byte[4096];
+        new Random(42).nextBytes(bytes);
+
+        byte[] compressed = codec.compress(bytes);
+        assertTrue(compressed.length > bytes.length);
+        assertArrayEquals(bytes, codec.decompress(compressed, bytes.length));
+        assertThrows(IllegalArgumentException.class, () -> codec.decompress(compressed, bytes.length + 1));
+    }
+
+    private CacheConfiguration<String, String> snapshotConfig(int maxCapacity, Path snapshotPath, FakeTicker ticker,
+                                                              boolean asyncLoad) {
+        return CacheConfiguration.<String, String>builder()
+                .maxCapacity(maxCapacity)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(1000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .asyncLoad(asyncLoad)
+                .ticker(ticker)
+                .snapshotPath(snapshotPath)
+                .keySerializer(new StringSerializer())
+                .valueSerializer(new StringSerializer())
+                .build();
+    }
+
+    @Test
+    void testSnapshotRestoresHottestEntriesWithoutDataStore(@TempDir Path directory) {
+        Path snapshotPath = directory.resolve("cache.snapshot");
+        FakeTicker ticker = new FakeTicker();
+        InMemoryCache<String, String> snapshotCache = new InMemoryCache<>(snapshotConfig(3, snapshotPath, ticker, false));
+        snapshotCache.put("key1", "value1");
+        snapshotCache.put("key2", "value2");
+        snapshotCache.put("key3", "value3");
+        snapshotCache.get("key1");
+        snapshotCache.close();
+        assertTrue(Files.exists(snapshotPath));
+
+        // a smaller cache restores the two most recently used entries
+        reset(spyDataStore);
+        ticker.advance(600, TimeUnit.MILLISECONDS);
+        InMemoryCache<String, String> restoredCache = new InMemoryCache<>(snapshotConfig(2, snapshotPath, ticker, false));
+        assertEquals(2, restoredCache.getSize());
+        assertEquals("value1", restoredCache.getIfPresent("key1"));
+        assertEquals("value3", restoredCache.getIfPresent("key3"));
+        verify(spyDataStore, never()).getTopKeys(anyInt());
+
+        // restored entries keep their creation time
+        ticker.advance(500, TimeUnit.MILLISECONDS);
+        assertNull(restoredCache.getIfPresent("key1"));
+        restoredCache.close();
+    }
+
+    @Test
+    void testExpiredSnapshotFallsBackToDataStore(@TempDir Path directory) {
+        Path snapshotPath = directory.resolve("cache.snapshot");
+        FakeTicker ticker = new FakeTicker();
+        InMemoryCache<String, String> snapshotCache = new InMemoryCache<>(snapshotConfig(2, snapshotPath, ticker, false));
+        snapshotCache.put("key1", "value1");
+        snapshotCache.close();
+
+        spyDataStore.put("key2", "value2");
+        ticker.advance(2000, TimeUnit.MILLISECONDS);
+        InMemoryCache<String, String> restoredCache = new InMemoryCache<>(snapshotConfig(2, snapshotPath, ticker, false));
+        assertNull(restoredCache.getIfPresent("key1"));
+        assertEquals("value2", restoredCache.getIfPresent("key2"));
+        restoredCache.close();
+    }
+
+    @Test
+    void testAsyncRestoreOfMultipleChunks(@TempDir Path directory) {
+        Path snapshotPath = directory.resolve("cache.snapshot");
+        FakeTicker ticker = new FakeTicker();
+        int entries = CacheSnapshot.CHUNK_ENTRIES * 2 + 100;
+        InMemoryCache<String, String> snapshotCache = new InMemoryCache<>(
+                snapshotConfig(entries, snapshotPath, ticker, false));
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < entries; i++) {
+            values.put("key" + i, "value" + i);
+        }
+        snapshotCache.putAll(values);
+        assertEquals(entries, snapshotCache.writeSnapshot());
+        snapshotCache.close();
+
+        InMemoryCache<String, String> restoredCache = new InMemoryCache<>(
+                snapshotConfig(entries, snapshotPath, ticker, true));
+        restoredCache.getWarmUp().join();
+        assertEquals(entries, restoredCache.getSize());
+        assertEquals("value0", restoredCache.getIfPresent("key0"));
+        assertEquals("value" + (entries - 1), restoredCache.getIfPresent("key" + (entries - 1)));
+        restoredCache.close();
+    }
+
+    @Test
+    void testDamagedSnapshotFallsBackToDataStore(@TempDir Path directory) throws IOException {
+        Path snapshotPath = directory.resolve("cache.snapshot");
+        Files.write(snapshotPath, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24});
+        spyDataStore.put("key1", "value1");
+
+        InMemoryCache<String, String> restoredCache = new InMemoryCache<>(
+                snapshotConfig(2, snapshotPath, new FakeTicker(), false));
+        assertEquals("value1", restoredCache.getIfPresent("key1"));
+        restoredCache.close();
+    }
+
+    @Test
+    void testSnapshotRequiresKeySerializer(@TempDir Path directory) {
+        assertThrows(NullPointerException.class, () -> CacheConfiguration.<String, String>builder()
+                .expirationPolicy(spyExpirationPolicy)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .snapshotPath(directory.resolve("cache.snapshot"))
+                .valueSerializer(new StringSerializer())
+                .build());
+    }
+
+    @Test
+    void testWarmUpLoadsHottestKeysInParallelBatches() {
+        for (int i = 0; i < 40; i++) {
+            spyDataStore.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            for (int reads = 0; reads < 3; reads++) {
+                spyDataStore.get("key" + (i * 4));
+            }
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return invocation.callRealMethod();
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(spyDataStore).getAll(any());
+
+        InMemoryCache<String, String> warmCache = new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(10)
+                .expirationPolicy(spyExpirationPolicy)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .warmUpBatchSize(3)
+                .warmUpConcurrency(2)
+                .build());
+        assertEquals(10, warmCache.getSize());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(warmCache.getKeys().contains("key" + (i * 4)));
+        }
+        verify(spyDataStore, times(4)).getAll(any());
+        assertTrue(maxRunning.get() <= 2);
+        warmCache.close();
+    }
+
+    private CacheConfiguration<String, String> segmentedConfig(int maxCapacity, int segments) {
+        return CacheConfiguration.<String, String>builder()
+                .maxCapacity(maxCapacity)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .evictionSegments(segments)
+                .build();
+    }
+
+    @Test
+    void testSegmentedCacheStaysWithinCapacityUnderConcurrentWrites() throws Exception {
+        InMemoryCache<String, String> segmentedCache = new InMemoryCache<>(segmentedConfig(64, 4));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread * 2000;
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    segmentedCache.put("key" + (offset + i), "value");
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(64, segmentedCache.getSize());
+        assertEquals(64, segmentedCache.getWeightedSize());
+        assertArrayEquals(new long[]{16, 16, 16, 16}, segmentedCache.getSegmentMaximums());
+        segmentedCache.close();
+    }
+
+    @Test
+    void testRebalanceMovesCapacityToBusySegment() {
+        InMemoryCache<String, String> segmentedCache = new InMemoryCache<>(segmentedConfig(40, 4));
+        // keys of the first of four segments, as hashed by the cache
+        List<String> keys = IntStream.range(0, 1000)
+                .mapToObj(i -> "key" + i)
+                .filter(key -> (((key.hashCode() * 0x9E3779B9) & 0xFFFFFFFFL) * 4 >>> 32) == 0)
+                .limit(30)
+                .toList();
+        keys.forEach(key -> segmentedCache.put(key, "value"));
+        assertEquals(10, segmentedCache.getSize());
+
+        segmentedCache.rebalanceSegments();
+        long[] maximums = segmentedCache.getSegmentMaximums();
+        assertEquals(40, Arrays.stream(maximums).sum());
+        assertTrue(maximums[0] > 10);
+        for (long maximum : maximums) {
+            assertTrue(maximum >= 5);
+        }
+        keys.forEach(key -> segmentedCache.put(key, "value"));
+        assertEquals(maximums[0], segmentedCache.getSize());
+        segmentedCache.close();
+    }
+
+    private InMemoryCache<String, String> tickingCache(FakeTicker ticker, Expiry<String, String> expiry) {
+        return new InMemoryCache<>(CacheConfiguration.<String, String>builder()
+                .maxCapacity(10)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(500L))
+                .expiry(expiry)
+                .writePropagationPolicy(mockWritePolicy)
+                .refreshPolicy(spyRefreshPolicy)
+                .dataStore(spyDataStore)
+                .ticker(ticker)
+                .build());
+    }
+
+    @Test
+    void testPutWithTtlOverridesExpirationPolicy() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryCache<String, String> ttlCache = tickingCache(ticker, null);
+        ttlCache.put("short", "value", 100L);
+        ttlCache.put("long", "value", 5_000L);
+        ttlCache.put("default", "value");
+
+        ticker.advance(300, TimeUnit.MILLISECONDS);
+        ttlCache.getAutoExpirationRunnable().run();
+        assertEquals(2, ttlCache.getSize());
+        assertNull(ttlCache.getIfPresent("short"));
+
+        ticker.advance(300, TimeUnit.MILLISECONDS);
+        ttlCache.getAutoExpirationRunnable().run();
+        assertEquals(1, ttlCache.getSize());
+        assertEquals("value", ttlCache.getIfPresent("long"));
+
+        // an overwrite without a TTL expires as per the policy again
+        ttlCache.put("long", "value2");
+        ticker.advance(600, TimeUnit.MILLISECONDS);
+        assertNull(ttlCache.getIfPresent("long"));
+        assertThrows(IllegalArgumentException.class, () -> ttlCache.put("key", "value", 0L));
+        ttlCache.close();
+    }
+
+    @Test
+    void testExpiryComputesLifetimePerEntry() {
+        FakeTicker ticker = new FakeTicker();
+        InMemoryCache<String, String> expiryCache = tickingCache(ticker, new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, String value, long now) {
+                return key.startsWith("session") ? 100L : 2_000L;
+            }
+
+            @Override
+            public long expireAfterRead(String key, String value, long now, long currentDuration) {
+                return key.startsWith("session") ? 100L : currentDuration;
+            }
+        });
+        expiryCache.put("session1", "value");
+        expiryCache.put("session2", "value");
+        expiryCache.put("config", "value");
+
+        // reads keep a session alive, an idle one expires
+        for (int i = 0; i < 5; i++) {
+            ticker.advance(80, TimeUnit.MILLISECONDS);
+            assertEquals("value", expiryCache.getIfPresent("session1"));
+        }
+        assertNull(expiryCache.getIfPresent("session2"));
+        // outlives the 500 ms of the expiration policy
+        ticker.advance(1_000, TimeUnit.MILLISECONDS);
+        assertEquals("value", expiryCache.getIfPresent("config"));
+        expiryCache.getAutoExpirationRunnable().run();
+        assertEquals(1, expiryCache.getSize());
+        expiryCache.close();
+    }
 }
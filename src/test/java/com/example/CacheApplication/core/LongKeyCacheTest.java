@@ -0,0 +1,187 @@
+package com.example.CacheApplication.core;
+
+import com.example.CacheApplication.datastore.InMemoryLongDataStore;
+import com.example.CacheApplication.datastore.LongDataStore;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.expiration.TimeSinceLastAccessExpiration;
+import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.refreshpolicy.RefreshAfterWritePolicy;
+import com.example.CacheApplication.writepolicy.WriteBackPropagationPolicy;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LongKeyCacheTest {
+    private LongKeyCache<String> cache;
+    private LongDataStore<String> spyDataStore;
+
+    @BeforeEach
+    void setUp() {
+        spyDataStore = spy(new InMemoryLongDataStore<>(new ConcurrentHashMap<>()));
+        cache = new LongKeyCache<>(config(2).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    private CacheConfiguration.CacheConfigurationBuilder<Long, String> config(int maxCapacity) {
+        return CacheConfiguration.<Long, String>builder()
+                .maxCapacity(maxCapacity)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(10_000L))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(new FixedDurationRefreshPolicy<>(10_000L))
+                .dataStore(spyDataStore);
+    }
+
+    @Test
+    void testPutGetAndRemove() {
+        cache.put(1L, "value1");
+        assertEquals("value1", cache.get(1L));
+        assertEquals("value1", spyDataStore.get(1L));
+
+        cache.remove(1L);
+        assertNull(cache.getIfPresent(1L));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void testCloseFlushesWriteBackBuffer() {
+        LongKeyCache<String> writeBackCache = new LongKeyCache<>(config(2)
+                .writePropagationPolicy(new WriteBackPropagationPolicy<>(TimeUnit.HOURS.toMillis(1), spyDataStore))
+                .build());
+        writeBackCache.put(1L, "value1");
+        writeBackCache.put(2L, "value2");
+        assertNull(spyDataStore.get(1L));
+
+        writeBackCache.close();
+        assertEquals("value1", spyDataStore.get(1L));
+        assertEquals("value2", spyDataStore.get(2L));
+    }
+
+    @Test
+    void testGetLoadsFromDataStoreOnce() {
+        spyDataStore.put(7L, "value7");
+        assertEquals("value7", cache.get(7L));
+        assertEquals("value7", cache.get(7L));
+        verify(spyDataStore, times(1)).get(7L);
+    }
+
+    @Test
+    void testGetWithLoaderPropagatesValue() {
+        assertEquals("computed", cache.get(3L, key -> "computed"));
+        assertEquals("computed", spyDataStore.get(3L));
+        assertEquals("computed", cache.get(Long.valueOf(3L), key -> "other"));
+    }
+
+    @Test
+    void testClockEvictionKeepsReferencedKey() {
+        cache.put(1L, "value1");
+        cache.put(2L, "value2");
+        cache.get(1L);
+        cache.put(3L, "value3");
+
+        assertEquals(2, cache.getSize());
+        assertEquals("value1", cache.getIfPresent(1L));
+        assertNull(cache.getIfPresent(2L));
+        assertEquals("value3", cache.getIfPresent(3L));
+    }
+
+    @Test
+    void testExpiredEntryIsMissAndSwept() throws InterruptedException {
+        LongKeyCache<String> expiringCache = new LongKeyCache<>(config(100)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(50L))
+                .build());
+        expiringCache.put(1L, "value1");
+        expiringCache.put(2L, "value2");
+        Thread.sleep(100);
+
+        assertNull(expiringCache.getIfPresent(1L));
+        expiringCache.getAutoExpirationRunnable().run();
+        assertEquals(0, expiringCache.getSize());
+        expiringCache.close();
+    }
+
+    @Test
+    void testReadExtendsLastAccessExpiration() throws InterruptedException {
+        LongKeyCache<String> expiringCache = new LongKeyCache<>(config(100)
+                .expirationPolicy(new TimeSinceLastAccessExpiration<>(200L))
+                .build());
+        expiringCache.put(1L, "value1");
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(100);
+            assertEquals("value1", expiringCache.getIfPresent(1L));
+        }
+        expiringCache.close();
+    }
+
+    @Test
+    void testRefreshAfterWriteReloadsOnRead() throws InterruptedException {
+        LongKeyCache<String> refreshingCache = new LongKeyCache<>(config(100)
+                .refreshPolicy(new RefreshAfterWritePolicy<>(50L))
+                .build());
+        refreshingCache.put(1L, "value1");
+        spyDataStore.put(1L, "updatedValue1");
+        Thread.sleep(100);
+
+        assertEquals("value1", refreshingCache.get(1L));
+        verify(spyDataStore, timeout(1000).times(1)).get(1L);
+        Thread.sleep(50);
+        assertEquals("updatedValue1", refreshingCache.getIfPresent(1L));
+        refreshingCache.close();
+    }
+
+    @Test
+    void testUpdateCacheValuesReadsInBulk() {
+        LongKeyCache<String> refreshingCache = new LongKeyCache<>(config(100).build());
+        refreshingCache.put(1L, "value1");
+        refreshingCache.put(2L, "value2");
+        spyDataStore.put(1L, "updatedValue1");
+
+        refreshingCache.updateCacheValues(List.copyOf(refreshingCache.getKeys()));
+
+        assertEquals("updatedValue1", refreshingCache.getIfPresent(1L));
+        assertEquals(new HashSet<>(List.of(1L, 2L)), new HashSet<>(refreshingCache.getKeys()));
+        refreshingCache.close();
+    }
+
+    @Test
+    void testRandomOperationsMatchMap() {
+        // one densely filled segment, capacity above the key range so nothing is evicted
+        LongKeyCache<String> tableCache = new LongKeyCache<>(config(63).build());
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(60) * 1024L;
+            if (random.nextInt(3) == 0) {
+                tableCache.remove(key);
+                expected.remove(key);
+            } else {
+                tableCache.put(key, "value" + i);
+                expected.put(key, "value" + i);
+            }
+        }
+        assertEquals(expected.size(), tableCache.getSize());
+        expected.forEach((key, value) -> assertEquals(value, tableCache.getIfPresent(key)));
+        tableCache.close();
+    }
+
+    @Test
+    void testWeigherIsRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new LongKeyCache<>(config(10).weigher((key, value) -> 1).maxWeight(10).build()));
+    }
+}
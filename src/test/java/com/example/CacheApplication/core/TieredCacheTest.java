@@ -0,0 +1,179 @@
+package com.example.CacheApplication.core;
+
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.expiration.TimeSinceCreationExpiration;
+import com.example.CacheApplication.refreshpolicy.FixedDurationRefreshPolicy;
+import com.example.CacheApplication.storage.StorageMode;
+import com.example.CacheApplication.storage.StringSerializer;
+import com.example.CacheApplication.util.FakeTicker;
+import com.example.CacheApplication.writepolicy.WriteThroughPropagationPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TieredCacheTest {
+    private TieredCache<String, String> cache;
+    private DataStore<String, String> spyDataStore;
+    private FakeTicker ticker;
+
+    @BeforeEach
+    void setUp() {
+        spyDataStore = spy(new InMemoryDataStore<>(new ConcurrentHashMap<>()));
+        ticker = new FakeTicker();
+        cache = new TieredCache<>(config(2).build(), config(10)
+                .storageMode(StorageMode.OFF_HEAP)
+                .valueSerializer(new StringSerializer())
+                .offHeapCapacity(1 << 20)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    private CacheConfiguration.CacheConfigurationBuilder<String, String> config(int maxCapacity) {
+        return CacheConfiguration.<String, String>builder()
+                .maxCapacity(maxCapacity)
+                .expirationPolicy(new TimeSinceCreationExpiration<>(1000L))
+                .writePropagationPolicy(new WriteThroughPropagationPolicy<>())
+                .refreshPolicy(new FixedDurationRefreshPolicy<>(10_000L))
+                .dataStore(spyDataStore)
+                .recordStats(true)
+                .ticker(ticker);
+    }
+
+    @Test
+    void testEvictedEntryIsDemotedAndPromotedWithoutDataStoreRead() {
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+        assertEquals(2, cache.getL1Size());
+        assertEquals(1, cache.getL2Size());
+
+        assertEquals("value1", cache.get("key1"));
+        verify(spyDataStore, never()).get(anyString());
+        assertEquals(1, cache.l2Stats().hitCount());
+        assertEquals(0, cache.l1Stats().loadCount());
+        // promoting key1 demoted another entry, each key is in one tier
+        assertEquals(2, cache.getL1Size());
+        assertEquals(1, cache.getL2Size());
+    }
+
+    @Test
+    void testOnlyL1WarmsUpFromDataStore() {
+        cache.close();
+        spyDataStore.put("key1", "value1");
+        spyDataStore.put("key2", "value2");
+        cache = new TieredCache<>(config(2).build(), config(10).build());
+
+        assertEquals(2, cache.getL1Size());
+        assertEquals(0, cache.getL2Size());
+    }
+
+    @Test
+    void testL2MissLoadsFromDataStore() {
+        spyDataStore.put("key1", "value1");
+        assertEquals("value1", cache.get("key1"));
+        verify(spyDataStore, times(1)).get("key1");
+        assertEquals(1, cache.l2Stats().missCount());
+        assertEquals(1, cache.l1Stats().loadSuccessCount());
+    }
+
+    @Test
+    void testGetAllPromotesFromL2BeforeBulkRead() {
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+        spyDataStore.put("key4", "value4");
+
+        assertEquals(Map.of("key1", "value1", "key4", "value4"), cache.getAll(List.of("key1", "key4")));
+        verify(spyDataStore, times(1)).getAll(List.of("key4"));
+    }
+
+    @Test
+    void testDemotedEntryKeepsItsExpirationTime() {
+        cache.put("key1", "value1");
+        ticker.advance(600, TimeUnit.MILLISECONDS);
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+        assertEquals("value1", cache.getIfPresent("key1"));
+        cache.put("key4", "value4");
+
+        // key1 was written 1100 ms ago, its L2 copy expired with it
+        ticker.advance(500, TimeUnit.MILLISECONDS);
+        assertNull(cache.getIfPresent("key1"));
+        assertEquals("value1", cache.get("key1"));
+        verify(spyDataStore, times(1)).get("key1");
+    }
+
+    @Test
+    void testWriteReplacesDemotedValueAndPropagatesOnce() {
+        cache.put("key1", "value1");
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+
+        cache.put("key1", "updatedValue1");
+        assertEquals("updatedValue1", cache.get("key1"));
+        assertEquals("updatedValue1", spyDataStore.get("key1"));
+        verify(spyDataStore, times(4)).put(anyString(), anyString());
+
+        cache.remove("key1");
+        assertNull(cache.getIfPresent("key1"));
+    }
+
+    @Test
+    void testFileBackedL2(@TempDir Path directory) throws IOException {
+        TieredCache<String, String> fileCache = new TieredCache<>(config(1).build(), config(10)
+                .storageMode(StorageMode.FILE)
+                .valueSerializer(new StringSerializer())
+                .offHeapCapacity(4 << 20)
+                .storageDirectory(directory)
+                .build());
+        fileCache.put("key1", "value1");
+        fileCache.put("key2", "value2");
+        assertEquals(1, fileCache.getL2Size());
+
+        assertEquals("value1", fileCache.getIfPresent("key1"));
+        assertEquals("value2", fileCache.getIfPresent("key2"));
+        verify(spyDataStore, never()).get(anyString());
+
+        fileCache.close();
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testDemotedEntryKeepsItsTtl() {
+        cache.put("key1", "value1", 200L);
+        cache.put("key2", "value2");
+        cache.put("key3", "value3");
+        assertEquals(1, cache.getL2Size());
+
+        ticker.advance(300, TimeUnit.MILLISECONDS);
+        assertNull(cache.getIfPresent("key1"));
+        assertEquals("value2", cache.getIfPresent("key2"));
+    }
+
+    @Test
+    void testTiersMustShareTheDataStore() {
+        CacheConfiguration<String, String> otherStoreConfig = config(10)
+                .dataStore(new InMemoryDataStore<>(new ConcurrentHashMap<>()))
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> new TieredCache<>(config(2).build(), otherStoreConfig));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.CacheApplication.datastore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryDataStoreTest {
+
+    @Test
+    void testBurstIsCoalescedIntoOneBatch() throws InterruptedException {
+        InMemoryDataStore<String, String> store = new InMemoryDataStore<>(new ConcurrentHashMap<>(),
+                new ChangePublisher<>(100L, 1000));
+        BlockingQueue<List<ChangeEvent<String, String>>> batches = new LinkedBlockingQueue<>();
+        store.subscribe(batches::add);
+
+        store.put("key1", "value1");
+        store.put("key2", "value2");
+        store.put("key1", "updatedValue1");
+        store.remove("key2");
+        store.remove("absent");
+
+        List<ChangeEvent<String, String>> batch = batches.poll(1, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(2, batch.size());
+        assertEquals("key1", batch.get(0).key());
+        assertEquals("updatedValue1", batch.get(0).value());
+        assertEquals(ChangeEvent.Type.UPDATED, batch.get(0).type());
+        assertEquals(ChangeEvent.Type.REMOVED, batch.get(1).type());
+        assertTrue(batch.get(1).version() > batch.get(0).version());
+        assertNull(batches.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testFullBatchIsDeliveredWithoutWaitingForTheInterval() throws InterruptedException {
+        InMemoryDataStore<String, String> store = new InMemoryDataStore<>(new ConcurrentHashMap<>(),
+                new ChangePublisher<>(60_000L, 3));
+        BlockingQueue<List<ChangeEvent<String, String>>> batches = new LinkedBlockingQueue<>();
+        store.subscribe(batches::add);
+
+        store.putAll(Map.of("key1", "value1", "key2", "value2", "key3", "value3"));
+        List<ChangeEvent<String, String>> batch = batches.poll(1, TimeUnit.SECONDS);
+        assertNotNull(batch);
+        assertEquals(3, batch.size());
+    }
+
+    @Test
+    void testNoChangesAfterUnsubscribe() throws InterruptedException {
+        InMemoryDataStore<String, String> store = new InMemoryDataStore<>(new ConcurrentHashMap<>(),
+                new ChangePublisher<>(0L, 1000));
+        BlockingQueue<List<ChangeEvent<String, String>>> batches = new LinkedBlockingQueue<>();
+        ObservableDataStore.Subscription subscription = store.subscribe(batches::add);
+        store.put("key1", "value1");
+        assertNotNull(batches.poll(1, TimeUnit.SECONDS));
+
+        subscription.close();
+        store.put("key1", "value2");
+        assertNull(batches.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals("value2", store.get("key1"));
+    }
+
+    @Test
+    void testTopKeysAreTheMostAccessed() {
+        InMemoryDataStore<String, String> store = new InMemoryDataStore<>(new ConcurrentHashMap<>());
+        for (int i = 0; i < 100; i++) {
+            store.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            store.get("key42");
+            store.get("key7");
+        }
+        store.get("key7");
+        store.get("key99");
+        store.get("key99");
+
+        List<String> topKeys = new ArrayList<>();
+        store.getTopKeys(3).forEach(topKeys::add);
+        assertEquals(List.of("key7", "key42", "key99"), topKeys);
+    }
+}
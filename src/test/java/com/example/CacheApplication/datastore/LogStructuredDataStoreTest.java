@@ -0,0 +1,185 @@
+package com.example.CacheApplication.datastore;
+
+import com.example.CacheApplication.storage.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStructuredDataStoreTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    private LogStructuredDataStore<String, String> open() {
+        // compaction is triggered explicitly by the tests
+        return new LogStructuredDataStore<>(directory, new StringSerializer(), new StringSerializer(),
+                SEGMENT_SIZE, 0.5, 0L);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testPutGetRemove() {
+        try (LogStructuredDataStore<String, String> store = open()) {
+            store.put("key1", "value1");
+            store.put("key2", "value2");
+            store.put("key1", "value1-updated");
+            store.remove("key2");
+
+            assertEquals("value1-updated", store.get("key1"));
+            assertNull(store.get("key2"));
+            assertNull(store.get("key3"));
+        }
+    }
+
+    @Test
+    void testTopKeysAreTheMostRecentlyWritten() {
+        try (LogStructuredDataStore<String, String> store = open()) {
+            store.put("key1", "value1");
+            store.put("key2", "value2");
+            store.put("key3", "value3");
+            store.put("key1", "value1-1");
+
+            assertEquals(List.of("key1", "key3"), store.getTopKeys(2));
+        }
+    }
+
+    @Test
+    void testIndexRecoveredOnReopen() {
+        try (LogStructuredDataStore<String, String> store = open()) {
+            for (int i = 0; i < 200; i++) {
+                store.put("key" + i, "value" + i);
+            }
+            store.remove("key7");
+            store.put("key8", "value8-updated");
+        }
+        try (LogStructuredDataStore<String, String> store = open()) {
+            assertEquals("value0", store.get("key0"));
+            assertEquals("value199", store.get("key199"));
+            assertNull(store.get("key7"));
+            assertEquals("value8-updated", store.get("key8"));
+            // appends continue after the recovered records
+            store.put("key200", "value200");
+            assertEquals("value200", store.get("key200"));
+        }
+    }
+
+    @Test
+    void testTornRecordDiscardedOnRecovery() throws IOException {
+        try (LogStructuredDataStore<String, String> store = open()) {
+            store.put("key1", "value1");
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // simulate a crash halfway through appending the next record
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(12).putInt(42).putInt(4).putInt(100).flip();
+            channel.write(header, 12 + 4 + 6);
+        }
+        try (LogStructuredDataStore<String, String> store = open()) {
+            assertEquals("value1", store.get("key1"));
+            store.put("key2", "value2");
+        }
+        try (LogStructuredDataStore<String, String> store = open()) {
+            assertEquals("value1", store.get("key1"));
+            assertEquals("value2", store.get("key2"));
+        }
+    }
+
+    @Test
+    void testCompactionReclaimsOverwrittenSegments() throws IOException {
+        try (LogStructuredDataStore<String, String> store = open()) {
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 10; i++) {
+                    store.put("key" + i, "value" + i + "-" + round);
+                }
+            }
+            store.remove("key9");
+            long segmentsBefore = segmentCount();
+            assertTrue(segmentsBefore > 2);
+
+            store.compact();
+
+            assertTrue(segmentCount() < segmentsBefore);
+            for (int i = 0; i < 9; i++) {
+                assertEquals("value" + i + "-49", store.get("key" + i));
+            }
+            assertNull(store.get("key9"));
+        }
+        try (LogStructuredDataStore<String, String> store = open()) {
+            assertEquals("value0-49", store.get("key0"));
+            assertNull(store.get("key9"));
+        }
+    }
+
+    @Test
+    void testTombstonesHidingOlderValuesAreNotCompactedAway() throws IOException {
+        try (LogStructuredDataStore<String, String> store = open()) {
+            // segment 0, mostly live
+            store.put("keep1", "v".repeat(3000));
+            for (int i = 0; i < 9; i++) {
+                store.put(removedKey(i), "v");
+            }
+            // segment 1, tombstones of the values in segment 0 and a live record
+            for (int i = 0; i < 9; i++) {
+                store.remove(removedKey(i));
+            }
+            store.put("keep2", "v".repeat(900));
+            // segment 2
+            store.put("keep3", "v".repeat(3000));
+
+            store.compact();
+
+            assertEquals(3, segmentCount());
+            assertTrue(Files.exists(directory.resolve(String.format("segment-%020d.log", 1))));
+        }
+        try (LogStructuredDataStore<String, String> store = open()) {
+            assertNull(store.get(removedKey(0)));
+            assertEquals("v".repeat(900), store.get("keep2"));
+        }
+    }
+
+    private static String removedKey(int i) {
+        return ("removed" + i + "-").repeat(20).substring(0, 100);
+    }
+
+    @Test
+    void testBackgroundCompactionStopsOnClose() throws IOException, InterruptedException {
+        try (LogStructuredDataStore<String, String> store = new LogStructuredDataStore<>(directory,
+                new StringSerializer(), new StringSerializer(), SEGMENT_SIZE, 0.5, 10L)) {
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < 10; i++) {
+                    store.put("key" + i, "value" + i + "-" + round);
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (segmentCount() > 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(segmentCount() <= 2);
+        }
+        try (LogStructuredDataStore<String, String> store = open()) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals("value" + i + "-49", store.get("key" + i));
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.CacheApplication.eviction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WTinyLfuEvictionPolicyTest {
+
+    private static Set<Integer> write(EvictionPolicy<Integer> policy, int key) {
+        Set<Integer> evicted = new HashSet<>();
+        policy.recordWrite(key, 1);
+        Integer victim;
+        while ((victim = policy.evict()) != null) {
+            evicted.add(victim);
+        }
+        return evicted;
+    }
+
+    @Test
+    void testSizeStaysWithinMaximum() {
+        EvictionPolicy<Integer> policy = new WTinyLfuEvictionPolicy<>(100);
+        for (int i = 0; i < 1_000; i++) {
+            write(policy, i);
+            assertTrue(policy.size() <= 100);
+        }
+        assertEquals(100, policy.size());
+    }
+
+    @Test
+    void testScanDoesNotFlushFrequentKeys() {
+        EvictionPolicy<Integer> policy = new WTinyLfuEvictionPolicy<>(100);
+        Set<Integer> evicted = new HashSet<>();
+        // Build up a popular working set
+        for (int round = 0; round < 5; round++) {
+            for (int key = 0; key < 90; key++) {
+                evicted.addAll(write(policy, key));
+                policy.recordAccess(key);
+            }
+        }
+        // A scan of cold keys accessed once each
+        for (int key = 1_000; key < 1_300; key++) {
+            evicted.addAll(write(policy, key));
+        }
+        // The sketch is probabilistic, a cold key colliding with hot ones may still win admission
+        long hotEvicted = evicted.stream().filter(key -> key < 90).count();
+        assertTrue(hotEvicted <= 5, hotEvicted + " hot keys were evicted by the scan");
+    }
+
+    @Test
+    void testLruFlushedByScan() {
+        EvictionPolicy<Integer> policy = new LruEvictionPolicy<>(100);
+        Set<Integer> evicted = new HashSet<>();
+        for (int key = 0; key < 90; key++) {
+            write(policy, key);
+            policy.recordAccess(key);
+        }
+        for (int key = 1_000; key < 2_000; key++) {
+            evicted.addAll(write(policy, key));
+        }
+        assertTrue(evicted.containsAll(Set.of(0, 45, 89)));
+    }
+
+    @Test
+    void testRemovalStopsTrackingKey() {
+        EvictionPolicy<Integer> policy = new WTinyLfuEvictionPolicy<>(10);
+        write(policy, 1);
+        write(policy, 2);
+        policy.recordRemoval(1);
+        assertEquals(1, policy.size());
+        assertNull(policy.evict());
+    }
+
+    @Test
+    void testShrinkingMaximumEvictsDownToIt() {
+        EvictionPolicy<Integer> policy = new WTinyLfuEvictionPolicy<>(100);
+        for (int key = 0; key < 100; key++) {
+            write(policy, key);
+            policy.recordAccess(key);
+        }
+        policy.setMaximum(20);
+        int evicted = 0;
+        while (policy.evict() != null) {
+            evicted++;
+        }
+        assertEquals(80, evicted);
+        assertEquals(20, policy.size());
+        assertEquals(20, policy.hottestKeys(Integer.MAX_VALUE).size());
+    }
+}
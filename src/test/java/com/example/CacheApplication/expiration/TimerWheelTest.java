@@ -0,0 +1,62 @@
+package com.example.CacheApplication.expiration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimerWheelTest {
+    private static final long START = 1_000_000L;
+
+    @Test
+    void testAdvanceReturnsOnlyDueKeys() {
+        TimerWheel<String> wheel = new TimerWheel<>(START);
+        wheel.schedule("key1", START + 100);
+        wheel.schedule("key2", START + 5_000);
+
+        assertTrue(wheel.advance(START + 50).isEmpty());
+        assertEquals(List.of("key1"), wheel.advance(START + 300));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("key2"), wheel.advance(START + 6_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testKeysCascadeFromCoarseLevels() {
+        TimerWheel<String> wheel = new TimerWheel<>(START);
+        long oneHour = 60 * 60 * 1000L;
+        long oneWeek = 7 * 24 * oneHour;
+        wheel.schedule("hour", START + oneHour);
+        wheel.schedule("week", START + oneWeek);
+
+        // Walk time forward in steps, keys must not fire before their expiration time
+        for (long now = START; now < START + oneHour; now += 60_000L) {
+            assertTrue(wheel.advance(now).isEmpty());
+        }
+        assertEquals(List.of("hour"), wheel.advance(START + oneHour + TimerWheel.TICK_MILLIS));
+        assertTrue(wheel.advance(START + oneWeek - 1).isEmpty());
+        assertEquals(List.of("week"), wheel.advance(START + oneWeek + TimerWheel.TICK_MILLIS));
+    }
+
+    @Test
+    void testRescheduleAndDeschedule() {
+        TimerWheel<String> wheel = new TimerWheel<>(START);
+        wheel.schedule("key1", START + 100);
+        wheel.schedule("key1", START + 10_000);
+        wheel.schedule("key2", START + 100);
+        wheel.deschedule("key2");
+
+        assertTrue(wheel.advance(START + 1_000).isEmpty());
+        assertEquals(List.of("key1"), wheel.advance(START + 11_000));
+    }
+
+    @Test
+    void testPastDueKeyExpiresOnNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(START);
+        wheel.advance(START + 10_000);
+        wheel.schedule("key1", START);
+
+        assertEquals(List.of("key1"), wheel.advance(START + 10_000 + TimerWheel.TICK_MILLIS));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.CacheApplication.refreshpolicy;
+
+import com.example.CacheApplication.core.RefreshableCache;
+import com.example.CacheApplication.util.CacheScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedDurationRefreshPolicyTest {
+    private final CacheScheduler scheduler = new CacheScheduler();
+    private final ExecutorService loaderExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+        loaderExecutor.shutdownNow();
+    }
+
+    /**
+     * Records the time each key was refreshed at.
+     */
+    private class RecordingCache implements RefreshableCache<String, String> {
+        private final Set<String> keys;
+        private final Map<String, Long> refreshTimes = new ConcurrentHashMap<>();
+
+        private RecordingCache(int size) {
+            this.keys = IntStream.range(0, size).mapToObj(i -> "key" + i).collect(Collectors.toSet());
+        }
+
+        @Override
+        public Runnable getAutoRefreshRunnable() {
+            return () -> updateCacheValues(List.copyOf(keys));
+        }
+
+        @Override
+        public void updateCacheValue(String key) {
+            refreshTimes.putIfAbsent(key, System.currentTimeMillis());
+        }
+
+        @Override
+        public Set<String> getKeys() {
+            return keys;
+        }
+
+        @Override
+        public Executor getLoaderExecutor() {
+            return loaderExecutor;
+        }
+    }
+
+    @Test
+    void testRefreshIsSpreadOverSlots() throws InterruptedException {
+        RecordingCache cache = new RecordingCache(200);
+        FixedDurationRefreshPolicy<String, String> policy = FixedDurationRefreshPolicy.<String, String>builder()
+                .refreshPeriodMillis(400L)
+                .refreshSlots(4)
+                .concurrency(2)
+                .batchSize(16)
+                .build();
+        long start = System.currentTimeMillis();
+        policy.scheduleAutoRefresh(cache, scheduler);
+
+        Thread.sleep(250);
+        int refreshedEarly = cache.refreshTimes.size();
+        assertTrue(refreshedEarly > 0 && refreshedEarly < 200, "Slots should not refresh all keys at once");
+
+        Thread.sleep(350);
+        assertEquals(200, cache.refreshTimes.size());
+        long distinctSlots = cache.refreshTimes.values().stream().map(time -> (time - start) / 100).distinct().count();
+        assertTrue(distinctSlots >= 3, "Refresh times should be spread over the period");
+        assertTrue(policy.getRefreshedKeys() >= 200);
+    }
+
+    @Test
+    void testRefreshIsRateLimited() throws InterruptedException {
+        RecordingCache cache = new RecordingCache(100);
+        FixedDurationRefreshPolicy<String, String> policy = FixedDurationRefreshPolicy.<String, String>builder()
+                .refreshPeriodMillis(50L)
+                .maxRefreshesPerSecond(100)
+                .batchSize(10)
+                .build();
+        policy.scheduleAutoRefresh(cache, scheduler);
+
+        Thread.sleep(400);
+        // ~10 keys per 100ms after the first sweep starts at 50ms
+        assertTrue(cache.refreshTimes.size() <= 60, "Refreshed " + cache.refreshTimes.size() + " keys");
+        assertTrue(policy.getLastSweepLagMillis() >= 0);
+    }
+
+    @Test
+    void testRateLimitDoesNotBlockScheduler() throws InterruptedException {
+        RecordingCache cache = new RecordingCache(100);
+        FixedDurationRefreshPolicy<String, String> policy = FixedDurationRefreshPolicy.<String, String>builder()
+                .refreshPeriodMillis(50L)
+                .maxRefreshesPerSecond(10)
+                .batchSize(1)
+                .build();
+        ScheduledExecutorService maintenanceExecutor = Executors.newSingleThreadScheduledExecutor();
+        try (CacheScheduler singleThreadScheduler = new CacheScheduler(maintenanceExecutor)) {
+            policy.scheduleAutoRefresh(cache, singleThreadScheduler);
+            Thread.sleep(100);
+
+            CountDownLatch ran = new CountDownLatch(1);
+            singleThreadScheduler.scheduleWithFixedDelay(ran::countDown, 0, 1000, TimeUnit.MILLISECONDS);
+            assertTrue(ran.await(200, TimeUnit.MILLISECONDS), "Maintenance task waited on the refresh rate limit");
+        } finally {
+            maintenanceExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInvalidConfigurationThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> FixedDurationRefreshPolicy.<String, String>builder()
+                .refreshPeriodMillis(2L)
+                .refreshSlots(4)
+                .build());
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.CacheApplication.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesResolveToBucketUpperBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1_000L);
+        }
+        histogram.record(1_000_000L);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.count());
+        assertEquals(1_000_000L, snapshot.maxNanos());
+        // 1000ns falls in [512, 1024)
+        assertEquals(1_023L, snapshot.percentileNanos(0.5));
+        assertEquals(1_023L, snapshot.percentileNanos(0.99));
+        assertEquals(1_000_000L, snapshot.percentileNanos(1.0));
+        assertEquals((99 * 1_000.0 + 1_000_000.0) / 100, snapshot.meanNanos(), 1e-9);
+    }
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0L, snapshot.percentileNanos(0.99));
+        assertEquals(0.0, snapshot.meanNanos());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.CacheApplication.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheSchedulerTest {
+
+    @Test
+    void testCloseCancelsOnlyOwnTasks() throws InterruptedException {
+        ScheduledExecutorService shared = Executors.newScheduledThreadPool(1);
+        try {
+            CacheScheduler first = new CacheScheduler(shared);
+            CacheScheduler second = new CacheScheduler(shared);
+            AtomicInteger firstRuns = new AtomicInteger();
+            CountDownLatch secondRuns = new CountDownLatch(5);
+            ScheduledFuture<?> firstTask = first.scheduleAtFixedRate(firstRuns::incrementAndGet, 0, 10, TimeUnit.MILLISECONDS);
+            second.scheduleWithFixedDelay(secondRuns::countDown, 0, 10, TimeUnit.MILLISECONDS);
+
+            first.close();
+            assertTrue(firstTask.isCancelled());
+            int runsAtClose = firstRuns.get();
+            // shared executor keeps running the tasks of the other scheduler
+            assertTrue(secondRuns.await(1, TimeUnit.SECONDS));
+            assertFalse(shared.isShutdown());
+            assertTrue(firstRuns.get() <= runsAtClose + 1);
+            second.close();
+        } finally {
+            shared.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailedRunDoesNotCancelPeriodicTask() throws InterruptedException {
+        try (CacheScheduler scheduler = new CacheScheduler()) {
+            CountDownLatch runs = new CountDownLatch(3);
+            scheduler.scheduleWithFixedDelay(() -> {
+                runs.countDown();
+                throw new IllegalStateException("task failed");
+            }, 0, 10, TimeUnit.MILLISECONDS);
+
+            assertTrue(runs.await(1, TimeUnit.SECONDS));
+            assertTrue(scheduler.getFailedTasks() >= 2);
+        }
+    }
+
+    @Test
+    void testTaskDelayIsRecorded() throws Exception {
+        try (CacheScheduler scheduler = new CacheScheduler()) {
+            CountDownLatch blocker = new CountDownLatch(1);
+            var blocked1 = scheduler.executeAsync(() -> awaitQuietly(blocker));
+            var blocked2 = scheduler.executeAsync(() -> awaitQuietly(blocker));
+            // both threads are busy, a third task has to wait in the queue
+            var delayed = scheduler.executeAsync(() -> {});
+            Thread.sleep(50);
+            assertEquals(1, scheduler.getQueueDepth());
+            blocker.countDown();
+            blocked1.get(1, TimeUnit.SECONDS);
+            blocked2.get(1, TimeUnit.SECONDS);
+            delayed.get(1, TimeUnit.SECONDS);
+
+            assertEquals(3, scheduler.getCompletedTasks());
+            assertTrue(scheduler.getMaxTaskDelayMillis() >= 40);
+            assertTrue(scheduler.getAverageTaskDelayMillis() > 0.0);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
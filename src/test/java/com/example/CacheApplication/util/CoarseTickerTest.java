@@ -0,0 +1,18 @@
+package com.example.CacheApplication.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoarseTickerTest {
+
+    @Test
+    void testFollowsSystemClockWithinResolution() throws InterruptedException {
+        try (CoarseTicker ticker = new CoarseTicker(5L)) {
+            long start = ticker.read();
+            assertTrue(Math.abs(System.currentTimeMillis() - start) <= 50);
+            Thread.sleep(50);
+            assertTrue(ticker.read() > start);
+        }
+    }
+}
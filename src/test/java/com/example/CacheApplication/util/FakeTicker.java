@@ -0,0 +1,21 @@
+package com.example.CacheApplication.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Ticker} that only moves when advanced, for tests of time dependent behaviour.
+ */
+public class FakeTicker implements Ticker {
+    private final AtomicLong time = new AtomicLong();
+
+    @Override
+    public long read() {
+        return time.get();
+    }
+
+    public FakeTicker advance(long duration, TimeUnit unit) {
+        time.addAndGet(unit.toMillis(duration));
+        return this;
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.CacheApplication.writepolicy;
+
+import com.example.CacheApplication.datastore.DataStore;
+import com.example.CacheApplication.datastore.InMemoryDataStore;
+import com.example.CacheApplication.util.CacheScheduler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+public class WriteBackPropagationPolicyTest {
+    private DataStore<String, String> spyDataStore;
+
+    @BeforeEach
+    void setUp() {
+        spyDataStore = spy(new InMemoryDataStore<>(new ConcurrentHashMap<>()));
+    }
+
+    @Test
+    void testWritesAreCoalescedPerKey() {
+        WriteBackPropagationPolicy<String, String> policy = new WriteBackPropagationPolicy<>(60_000L, spyDataStore);
+        policy.write("key1", "value1", spyDataStore);
+        policy.write("key1", "value2", spyDataStore);
+        policy.write("key2", "value3", spyDataStore);
+        assertEquals(2, policy.getPendingWrites());
+
+        policy.flush();
+
+        verify(spyDataStore, times(1)).putAll(Map.of("key1", "value2", "key2", "value3"));
+        assertEquals(0, policy.getPendingWrites());
+        assertEquals(0L, policy.getFlushLagMillis());
+        assertEquals(2L, policy.getFlushedWrites());
+    }
+
+    @Test
+    void testFlushWritesBoundedBatches() {
+        WriteBackPropagationPolicy<String, String> policy = WriteBackPropagationPolicy.<String, String>builder()
+                .flushInterval(60_000L)
+                .dataStore(spyDataStore)
+                .maxBatchSize(10)
+                .build();
+        for (int i = 0; i < 9; i++) {
+            policy.write("key" + i, "value" + i, spyDataStore);
+        }
+        policy.flush();
+        for (int i = 0; i < 9; i++) {
+            policy.write("key" + i, "value" + i, spyDataStore);
+        }
+        policy.write("key9", "value9", spyDataStore);
+        // reaching the batch size requests a flush without waiting for the interval
+        verify(spyDataStore, timeout(1000).times(2)).putAll(anyMap());
+        assertEquals("value9", spyDataStore.get("key9"));
+    }
+
+    @Test
+    void testWriteThroughWhenBufferFull() {
+        WriteBackPropagationPolicy<String, String> policy = WriteBackPropagationPolicy.<String, String>builder()
+                .flushInterval(60_000L)
+                .dataStore(spyDataStore)
+                .maxBatchSize(2)
+                .maxBufferSize(2)
+                .backpressure(BackpressureStrategy.WRITE_THROUGH)
+                .maxRetries(0)
+                .build();
+        doThrow(new IllegalStateException("store unavailable")).when(spyDataStore).putAll(anyMap());
+        policy.write("key1", "value1", spyDataStore);
+        policy.write("key2", "value2", spyDataStore);
+        policy.write("key3", "value3", spyDataStore);
+
+        verify(spyDataStore, times(1)).put("key3", "value3");
+        // keys already buffered are still coalesced
+        policy.write("key1", "value4", spyDataStore);
+        verify(spyDataStore, never()).put(eq("key1"), any());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedAndKept() {
+        WriteBackPropagationPolicy<String, String> policy = WriteBackPropagationPolicy.<String, String>builder()
+                .flushInterval(60_000L)
+                .dataStore(spyDataStore)
+                .maxRetries(2)
+                .retryBackoffMillis(1L)
+                .build();
+        doThrow(new IllegalStateException("store unavailable")).when(spyDataStore).putAll(anyMap());
+        policy.write("key1", "value1", spyDataStore);
+
+        policy.flush();
+
+        verify(spyDataStore, times(3)).putAll(anyMap());
+        assertEquals(3L, policy.getFailedFlushes());
+        assertEquals(1, policy.getPendingWrites());
+
+        doCallRealMethod().when(spyDataStore).putAll(anyMap());
+        policy.flush();
+        assertEquals("value1", spyDataStore.get("key1"));
+        assertEquals(0, policy.getPendingWrites());
+    }
+
+    @Test
+    void testScheduledRetriesDoNotBlockTheScheduler() throws InterruptedException {
+        WriteBackPropagationPolicy<String, String> policy = WriteBackPropagationPolicy.<String, String>builder()
+                .flushInterval(60_000L)
+                .dataStore(spyDataStore)
+                .maxRetries(2)
+                .retryBackoffMillis(200L)
+                .build();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try (CacheScheduler scheduler = new CacheScheduler(executor)) {
+            policy.scheduleWrite(scheduler);
+            doThrow(new IllegalStateException("store unavailable")).when(spyDataStore).putAll(anyMap());
+            policy.write("key1", "value1", spyDataStore);
+
+            policy.flush();
+            verify(spyDataStore, times(1)).putAll(anyMap());
+
+            // the only scheduler thread is free while the retry waits for its backoff
+            CountDownLatch ran = new CountDownLatch(1);
+            scheduler.executeAsync(ran::countDown);
+            assertTrue(ran.await(100, TimeUnit.MILLISECONDS));
+
+            verify(spyDataStore, timeout(2000).times(3)).putAll(anyMap());
+            assertEquals(1, policy.getPendingWrites());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInvalidConfigurationThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> WriteBackPropagationPolicy.<String, String>builder()
+                .flushInterval(1000L)
+                .dataStore(spyDataStore)
+                .maxBatchSize(100)
+                .maxBufferSize(10)
+                .build());
+    }
+}